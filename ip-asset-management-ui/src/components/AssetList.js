@@ -3,9 +3,14 @@ import { Link } from 'react-router-dom';
 import { Table, Card, Badge, Spinner, Alert, Button, Form, Row, Col } from 'react-bootstrap';
 import ApiService from '../services/api.service';
 
+const PAGE_SIZE = 100;
+
 const AssetList = () => {
   const [assets, setAssets] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [totalCount, setTotalCount] = useState(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState('');
   const [filter, setFilter] = useState({
     type: '',
@@ -16,22 +21,22 @@ const AssetList = () => {
     loadAssets();
   }, [filter.type, filter.online]);
 
+  const pageParams = (after) => {
+    const params = { size: PAGE_SIZE };
+    if (after) params.after = after;
+    if (filter.type) params.type = filter.type;
+    if (filter.online !== '') params.online = filter.online;
+    return params;
+  };
+
   const loadAssets = () => {
     setLoading(true);
     
-    let apiCall;
-    
-    if (filter.type) {
-      apiCall = ApiService.getAssetsByType(filter.type);
-    } else if (filter.online !== '') {
-      apiCall = ApiService.getAssetsByOnlineStatus(filter.online === 'true');
-    } else {
-      apiCall = ApiService.getAllAssets();
-    }
-    
-    apiCall
+    ApiService.getAssetPage({ ...pageParams(null), count: true })
       .then(response => {
-        setAssets(response.data);
+        setAssets(response.data.items);
+        setNextCursor(response.data.nextCursor);
+        setTotalCount(response.data.totalCount);
         setLoading(false);
       })
       .catch(err => {
@@ -40,6 +45,21 @@ const AssetList = () => {
       });
   };
 
+  const loadMore = () => {
+    setLoadingMore(true);
+    
+    ApiService.getAssetPage(pageParams(nextCursor))
+      .then(response => {
+        setAssets(current => [...current, ...response.data.items]);
+        setNextCursor(response.data.nextCursor);
+        setLoadingMore(false);
+      })
+      .catch(err => {
+        setError('Failed to load assets. Please try again later.');
+        setLoadingMore(false);
+      });
+  };
+
   const formatDateTime = (dateTimeStr) => {
     if (!dateTimeStr) return 'N/A';
     const date = new Date(dateTimeStr);
@@ -171,6 +191,16 @@ const AssetList = () => {
                 ))}
               </tbody>
             </Table>
+            <div className="d-flex justify-content-between align-items-center">
+              <small className="text-muted">
+                Showing {assets.length}{totalCount !== null ? ` of ${totalCount}` : ''} assets
+              </small>
+              {nextCursor && (
+                <Button variant="outline-primary" size="sm" onClick={loadMore} disabled={loadingMore}>
+                  {loadingMore ? <Spinner animation="border" size="sm" /> : 'Load more'}
+                </Button>
+              )}
+            </div>
           </Card.Body>
         </Card>
       ) : (
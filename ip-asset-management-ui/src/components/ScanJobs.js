@@ -80,6 +80,8 @@ const ScanJobs = () => {
     switch (status) {
       case 'CREATED':
         return <Badge bg="secondary">Created</Badge>;
+      case 'QUEUED':
+        return <Badge bg="light" text="dark">Queued</Badge>;
       case 'SCHEDULED':
         return <Badge bg="info">Scheduled</Badge>;
       case 'RUNNING':
@@ -136,7 +138,12 @@ const ScanJobs = () => {
                 {scanJobs.map(job => (
                   <tr key={job.id}>
                     <td>{job.name}</td>
-                    <td>{getStatusBadge(job.status)}</td>
+                    <td>
+                      {getStatusBadge(job.status)}
+                      {job.status === 'QUEUED' && job.queuePosition && (
+                        <small className="text-muted ms-2">#{job.queuePosition} in queue</small>
+                      )}
+                    </td>
                     <td>{formatDateTime(job.createdAt)}</td>
                     <td>{formatDateTime(job.lastRunAt)}</td>
                     <td>
@@ -151,7 +158,7 @@ const ScanJobs = () => {
                         variant="success" 
                         size="sm" 
                         className="me-2"
-                        disabled={job.status === 'RUNNING' || runningJobs[job.id]}
+                        disabled={['QUEUED', 'SCHEDULED', 'RUNNING'].includes(job.status) || runningJobs[job.id]}
                         onClick={() => handleRunJob(job.id)}
                       >
                         {runningJobs[job.id] ? (
@@ -127,6 +127,18 @@ const ScanProgressComponent = ({ scanJobId, onComplete }) => {
             Total Targets
             <Badge bg="info" pill>{scanJob.totalTargets}</Badge>
           </ListGroup.Item>
+          {scanJob.phase && (
+            <ListGroup.Item className="d-flex justify-content-between align-items-center">
+              Phase
+              <Badge bg="secondary" pill>{scanJob.phase === 'DISCOVERY' ? 'Discovery' : 'Deep scan'}</Badge>
+            </ListGroup.Item>
+          )}
+          {scanJob.phase && (
+            <ListGroup.Item className="d-flex justify-content-between align-items-center">
+              Swept / Live
+              <Badge bg="info" pill>{scanJob.sweptTargets || 0} / {scanJob.liveTargets || 0}</Badge>
+            </ListGroup.Item>
+          )}
           <ListGroup.Item className="d-flex justify-content-between align-items-center">
             Completed
             <Badge bg="primary" pill>{scanJob.completedTargets}</Badge>
@@ -139,6 +151,12 @@ const ScanProgressComponent = ({ scanJobId, onComplete }) => {
             Failed
             <Badge bg="danger" pill>{scanJob.failedTargets}</Badge>
           </ListGroup.Item>
+          {scanJob.enrichedTargets > 0 && (
+            <ListGroup.Item className="d-flex justify-content-between align-items-center">
+              Enriched
+              <Badge bg="secondary" pill>{scanJob.enrichedTargets}</Badge>
+            </ListGroup.Item>
+          )}
         </ListGroup>
         
         {scanJob.status === 'RUNNING' && (
@@ -150,13 +168,19 @@ const ScanProgressComponent = ({ scanJobId, onComplete }) => {
           </div>
         )}
         
-        {scanJob.status === 'COMPLETED' && (
+        {scanJob.status === 'COMPLETED' && !(scanJob.unscannedTargets > 0) && (
           <div className="text-center text-success">
             <i className="bi bi-check-circle-fill me-2"></i>
             <span>Scan completed successfully</span>
           </div>
         )}
         
+        {scanJob.status === 'COMPLETED' && scanJob.unscannedTargets > 0 && (
+          <Alert variant="warning">
+            Scan completed, but {scanJob.unscannedTargets} targets could not be scanned and are counted as failed
+          </Alert>
+        )}
+        
         {(scanJob.status === 'FAILED' || scanJob.status === 'CANCELLED') && (
           <Alert variant={scanJob.status === 'FAILED' ? 'danger' : 'warning'}>
             {scanJob.status === 'FAILED' ? 'Scan failed to complete' : 'Scan was cancelled'}
@@ -50,6 +50,8 @@ const ScanResults = () => {
     switch (status) {
       case 'CREATED':
         return <Badge bg="secondary">Created</Badge>;
+      case 'QUEUED':
+        return <Badge bg="light" text="dark">Queued</Badge>;
       case 'SCHEDULED':
         return <Badge bg="info">Scheduled</Badge>;
       case 'RUNNING':
@@ -16,6 +16,10 @@ class ApiService {
     return axios.get(API_URL + 'assets', { headers: authHeader() });
   }
 
+  getAssetPage(params) {
+    return axios.get(API_URL + 'assets/page', { headers: authHeader(), params });
+  }
+
   getAssetById(id) {
     return axios.get(API_URL + `assets/${id}`, { headers: authHeader() });
   }
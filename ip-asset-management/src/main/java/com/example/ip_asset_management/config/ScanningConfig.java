@@ -1,5 +1,6 @@
 package com.example.ip_asset_management.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -10,12 +11,14 @@ import java.util.concurrent.ThreadPoolExecutor;
 public class ScanningConfig {
     
     @Bean(name = "scanTaskExecutor")
-    public ThreadPoolTaskExecutor scanTaskExecutor() {
+    public ThreadPoolTaskExecutor scanTaskExecutor(@Value("${scan.concurrent.max:10}") int maxConcurrentJobs,
+                                                   @Value("${scan.queue.small-job-slots:2}") int smallJobSlots) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         
-        // Initial configuration - will be adjusted dynamically
-        executor.setCorePoolSize(4);
-        executor.setMaxPoolSize(10);
+        // One thread per job the admission queue lets in, so admitted jobs never wait here
+        int jobThreads = maxConcurrentJobs + smallJobSlots;
+        executor.setCorePoolSize(jobThreads);
+        executor.setMaxPoolSize(jobThreads);
         executor.setQueueCapacity(250);
         executor.setThreadNamePrefix("scan-");
         
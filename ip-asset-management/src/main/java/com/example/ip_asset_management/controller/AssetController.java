@@ -1,13 +1,17 @@
 package com.example.ip_asset_management.controller;
 
+import com.example.ip_asset_management.dto.AssetPageResponse;
 import com.example.ip_asset_management.dto.AssetResponse;
 import com.example.ip_asset_management.model.Asset;
 import com.example.ip_asset_management.model.AssetType;
 import com.example.ip_asset_management.service.AssetService;
+import com.example.ip_asset_management.service.ExportWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -26,6 +30,40 @@ public class AssetController {
         return ResponseEntity.ok(assets);
     }
     
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    public ResponseEntity<AssetPageResponse> getAssetPage(
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", required = false) Integer size,
+            @RequestParam(value = "view", defaultValue = "summary") String view,
+            @RequestParam(value = "type", required = false) AssetType type,
+            @RequestParam(value = "online", required = false) Boolean online,
+            @RequestParam(value = "count", defaultValue = "false") boolean count) {
+        AssetPageResponse page = assetService.getAssetPage(after, size, "full".equalsIgnoreCase(view), type, online, count);
+        return ResponseEntity.ok(page);
+    }
+    
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAssets(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+            @RequestParam(value = "view", defaultValue = "summary") String view,
+            @RequestParam(value = "type", required = false) AssetType type,
+            @RequestParam(value = "online", required = false) Boolean online) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        boolean full = "full".equalsIgnoreCase(view);
+        StreamingResponseBody body = out -> assetService.exportAssets(out, exportFormat, gzip, full, type, online);
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"assets." + exportFormat.getExtension() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+    
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<AssetResponse> getAssetById(@PathVariable("id") String id) {
@@ -1,14 +1,19 @@
 package com.example.ip_asset_management.controller;
 
 import com.example.ip_asset_management.dto.ScanJobRequest;
+import com.example.ip_asset_management.dto.ScanQueueEntry;
+import com.example.ip_asset_management.dto.SubnetRttResponse;
 import com.example.ip_asset_management.model.ScanJob;
 import com.example.ip_asset_management.model.ScanResult;
+import com.example.ip_asset_management.service.ExportWriter;
 import com.example.ip_asset_management.service.ScanService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -34,6 +39,13 @@ public class ScanController {
         return ResponseEntity.ok().build();
     }
     
+    @GetMapping("/queue")
+    @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    public ResponseEntity<List<ScanQueueEntry>> getQueue() {
+        List<ScanQueueEntry> queue = scanService.getQueue();
+        return ResponseEntity.ok(queue);
+    }
+    
     @GetMapping("/jobs")
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<List<ScanJob>> getScanJobs() {
@@ -48,6 +60,13 @@ public class ScanController {
         return ResponseEntity.ok(scanJob);
     }
     
+    @GetMapping("/jobs/{id}/rtt")
+    @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    public ResponseEntity<List<SubnetRttResponse>> getRttEstimates(@PathVariable("id") String scanJobId) {
+        List<SubnetRttResponse> estimates = scanService.getRttEstimates(scanJobId);
+        return ResponseEntity.ok(estimates);
+    }
+    
     @GetMapping("/results/{jobId}")
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<List<ScanResult>> getScanResults(@PathVariable("jobId") String scanJobId) {
@@ -55,6 +74,27 @@ public class ScanController {
         return ResponseEntity.ok(results);
     }
     
+    @GetMapping("/results/{jobId}/export")
+    @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportScanResults(
+            @PathVariable("jobId") String scanJobId,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        ExportWriter.Format exportFormat = ExportWriter.Format.parse(format);
+        // Fails before the response starts if the job does not exist
+        scanService.getScanJob(scanJobId);
+        StreamingResponseBody body = out -> scanService.exportScanResults(scanJobId, out, exportFormat, gzip);
+        
+        String filename = "scan-results-" + scanJobId + "." + exportFormat.getExtension();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, exportFormat.getContentType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+    
     @DeleteMapping("/jobs/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('MODERATOR') or hasRole('ADMIN')")
     public ResponseEntity<?> deleteScanJob(@PathVariable("id") String scanJobId) {
@@ -0,0 +1,12 @@
+package com.example.ip_asset_management.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class AssetPageResponse {
+    private List<AssetResponse> items;
+    private String nextCursor; // Pass as "after" for the next page, null on the last page
+    private Long totalCount; // Only when requested
+}
\ No newline at end of file
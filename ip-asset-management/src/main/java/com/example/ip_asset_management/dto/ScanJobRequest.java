@@ -1,10 +1,13 @@
 package com.example.ip_asset_management.dto;
 
+import com.example.ip_asset_management.model.ScanPriority;
 import com.example.ip_asset_management.model.ScanSetting;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
 import lombok.Data;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 public class ScanJobRequest {
@@ -17,9 +20,21 @@ public class ScanJobRequest {
     
     private List<String> ipSegments;
     
+    private List<String> excludedSegments;
+    
+    private Map<String, String> segmentZones;
+    
     private boolean recurring;
     
     private String schedule;
     
     private List<ScanSetting> settings;
+    
+    private ScanPriority priority;
+    
+    @Positive
+    private Integer maxProbeRate;
+    
+    @Positive
+    private Integer minProbeRate;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.ip_asset_management.dto;
+
+import com.example.ip_asset_management.model.ScanPriority;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class ScanQueueEntry {
+    private int position;
+    private String jobId; // Only set for the caller's own jobs
+    private String name;
+    private boolean own;
+    private ScanPriority priority;
+    private int totalTargets;
+    private LocalDateTime queuedAt;
+    private long waitSeconds;
+}
\ No newline at end of file
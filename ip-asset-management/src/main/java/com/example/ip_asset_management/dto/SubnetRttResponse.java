@@ -0,0 +1,13 @@
+package com.example.ip_asset_management.dto;
+
+import lombok.Data;
+
+@Data
+public class SubnetRttResponse {
+    private String subnet;
+    private double smoothedRttMillis;
+    private double rttVarianceMillis;
+    private long timeoutMillis;
+    private long samples;
+    private int backoffs;
+}
\ No newline at end of file
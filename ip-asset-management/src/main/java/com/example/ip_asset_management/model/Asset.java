@@ -2,6 +2,9 @@ package com.example.ip_asset_management.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -9,12 +12,19 @@ import java.util.Map;
 
 @Data
 @Document(collection = "assets")
+@CompoundIndexes({
+        // Filtered listings page through by id
+        @CompoundIndex(name = "assetType_id", def = "{'assetType': 1, '_id': 1}"),
+        @CompoundIndex(name = "online_id", def = "{'online': 1, '_id': 1}")
+})
 public class Asset {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String ipAddress;
     private String hostname;
     private AssetType assetType;
+    @Indexed
     private String operatingSystem;
     private String osVersion;
     private String macAddress;
@@ -25,4 +35,6 @@ public class Asset {
     private LocalDateTime firstDiscovered;
     private LocalDateTime lastSeen;
     private String lastScanId;
+    private EnrichmentMethod preferredEnrichmentMethod; // Collection method that last worked for this host
+    private AssetFingerprint fingerprint;
 }
\ No newline at end of file
@@ -0,0 +1,18 @@
+package com.example.ip_asset_management.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * What a host looked like at its last full scan. A rescan that finds the same open ports and
+ * hostname skips deep probing and enrichment.
+ */
+@Data
+public class AssetFingerprint {
+    private List<Integer> openPorts;
+    private String hostname;
+    private String enrichmentHash; // Hash of the key fields probes and enrichment found; unset while enrichment is pending
+    private LocalDateTime takenAt;
+}
\ No newline at end of file
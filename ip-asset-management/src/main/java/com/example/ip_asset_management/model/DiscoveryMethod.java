@@ -0,0 +1,9 @@
+package com.example.ip_asset_management.model;
+
+/**
+ * How the liveness sweep found a host: a discovery port answered, or only the ping fallback did.
+ */
+public enum DiscoveryMethod {
+    TCP,
+    ICMP
+}
\ No newline at end of file
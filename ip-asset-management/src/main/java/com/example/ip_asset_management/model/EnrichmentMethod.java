@@ -0,0 +1,9 @@
+package com.example.ip_asset_management.model;
+
+public enum EnrichmentMethod {
+    WMI,
+    SMB,
+    POWERSHELL,
+    LOCAL_COMMANDS,
+    PORT_SCAN
+}
\ No newline at end of file
@@ -0,0 +1,9 @@
+package com.example.ip_asset_management.model;
+
+public enum PortState {
+    OPEN,
+    CLOSED,
+    FILTERED,
+    // The probe could not be sent, e.g. this process ran out of sockets; says nothing about the port
+    ERROR
+}
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.ip_asset_management.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Data
@@ -9,5 +10,6 @@ import org.springframework.data.mongodb.core.mapping.Document;
 public class Role {
     @Id
     private String id;
+    @Indexed(unique = true)
     private ERole name;
 }
\ No newline at end of file
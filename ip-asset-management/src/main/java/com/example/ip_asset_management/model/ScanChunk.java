@@ -0,0 +1,41 @@
+package com.example.ip_asset_management.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A slice of a scan job's targets that one backend node scans at a time. Nodes lease chunks
+ * and keep renewing the lease while they work; a chunk whose lease ran out is up for grabs.
+ */
+@Data
+@Document(collection = "scan_chunks")
+@CompoundIndexes({
+        @CompoundIndex(name = "scanJobId_status", def = "{'scanJobId': 1, 'status': 1}"),
+        // Claims look for pending chunks and leases that ran out
+        @CompoundIndex(name = "status_leaseExpiresAt", def = "{'status': 1, 'leaseExpiresAt': 1}")
+})
+public class ScanChunk {
+    @Id
+    private String id;
+    private String scanJobId;
+    private String zone; // Only nodes in this network zone may scan the chunk, null for any node
+    private Long fromAddress; // Unsigned IPv4 bounds, inclusive; null for the chunk of host names
+    private Long toAddress;
+    private int targetCount;
+    private ScanChunkStatus status;
+    private String owner; // Node holding the lease
+    private LocalDateTime leaseExpiresAt;
+    private int attempts;
+    private LocalDateTime completedAt;
+    // Progress written by the current lease holder only; also added to the job's counters
+    private int completedTargets;
+    private int successfulTargets;
+    private int failedTargets;
+    private int sweptTargets;
+    private int liveTargets;
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.ip_asset_management.model;
+
+public enum ScanChunkStatus {
+    PENDING,
+    LEASED,
+    DONE
+}
\ No newline at end of file
@@ -2,13 +2,22 @@ package com.example.ip_asset_management.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Document(collection = "scan_jobs")
+@CompoundIndexes({
+        @CompoundIndex(name = "userId_status", def = "{'userId': 1, 'status': 1}"),
+        @CompoundIndex(name = "recurring_nextRunAt", def = "{'recurring': 1, 'nextRunAt': 1}")
+})
 public class ScanJob {
     @Id
     private String id;
@@ -17,15 +26,30 @@ public class ScanJob {
     private String description;
     private List<String> ipAddresses;
     private List<String> ipSegments;
+    private List<String> excludedSegments;
+    private Map<String, String> segmentZones; // Network zone that must scan an address or segment, keyed by entry
     private boolean recurring;
     private String schedule; // Cron expression if recurring
     private LocalDateTime createdAt;
     private LocalDateTime lastRunAt;
     private LocalDateTime nextRunAt;
+    private LocalDateTime queuedAt;
+    private LocalDateTime scheduledAt; // When the job was last admitted from the queue to run
+    @Indexed
     private ScanJobStatus status;
+    private ScanPriority priority; // Requested admission priority, null to go by the job's size
+    @Transient
+    private Integer queuePosition; // 1-based place in the admission queue while QUEUED
+    private ScanPhase phase;
     private int totalTargets;
     private int completedTargets;
     private int successfulTargets;
     private int failedTargets;
+    private int sweptTargets; // Targets checked by the discovery sweep
+    private int liveTargets; // Targets the sweep found alive, only these are deep scanned
+    private int enrichedTargets; // Hosts whose deep enrichment finished, may trail the job's completion
+    private int unscannedTargets; // Targets of chunks given up on after too many attempts, counted as failed
     private List<ScanSetting> settings;
+    private Integer maxProbeRate; // Probes per second per /24, null for the configured default
+    private Integer minProbeRate; // Floor the rate never backs off below, null for the configured default
 }
\ No newline at end of file
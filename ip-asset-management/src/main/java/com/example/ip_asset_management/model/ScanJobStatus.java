@@ -2,6 +2,7 @@ package com.example.ip_asset_management.model;
 
 public enum ScanJobStatus {
     CREATED,
+    QUEUED,
     SCHEDULED,
     RUNNING,
     COMPLETED,
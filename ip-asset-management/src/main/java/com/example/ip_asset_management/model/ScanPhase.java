@@ -0,0 +1,6 @@
+package com.example.ip_asset_management.model;
+
+public enum ScanPhase {
+    DISCOVERY,
+    DEEP_SCAN
+}
\ No newline at end of file
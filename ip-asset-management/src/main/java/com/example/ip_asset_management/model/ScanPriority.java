@@ -0,0 +1,7 @@
+package com.example.ip_asset_management.model;
+
+public enum ScanPriority {
+    LOW,
+    NORMAL,
+    HIGH
+}
\ No newline at end of file
@@ -2,6 +2,9 @@ package com.example.ip_asset_management.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -9,15 +12,25 @@ import java.util.Map;
 
 @Data
 @Document(collection = "scan_results")
+@CompoundIndexes({
+        @CompoundIndex(name = "successful_scanTime", def = "{'successful': 1, 'scanTime': 1}")
+})
 public class ScanResult {
     @Id
     private String id;
+    @Indexed
     private String scanJobId;
+    @Indexed
     private String assetId;
     private String ipAddress;
+    // Chunk and lease attempt that scanned the host, so results of an abandoned attempt can be dropped
+    @Indexed(sparse = true)
+    private String chunkId;
+    private int chunkAttempt;
     private String hostname;
     private boolean successful;
     private String errorMessage;
+    @Indexed
     private LocalDateTime scanTime;
     private Map<String, Object> collectedData;
 }
\ No newline at end of file
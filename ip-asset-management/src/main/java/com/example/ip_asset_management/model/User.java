@@ -2,6 +2,7 @@ package com.example.ip_asset_management.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.HashSet;
@@ -12,7 +13,9 @@ import java.util.Set;
 public class User {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String username;
+    @Indexed(unique = true)
     private String email;
     private String password;
     private Set<Role> roles = new HashSet<>();
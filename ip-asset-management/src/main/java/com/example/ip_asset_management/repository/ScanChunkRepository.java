@@ -0,0 +1,14 @@
+package com.example.ip_asset_management.repository;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanChunkStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+
+public interface ScanChunkRepository extends MongoRepository<ScanChunk, String> {
+    List<ScanChunk> findByScanJobId(String scanJobId);
+    long countByScanJobId(String scanJobId);
+    long countByScanJobIdAndStatusNot(String scanJobId, ScanChunkStatus status);
+    void deleteByScanJobId(String scanJobId);
+}
\ No newline at end of file
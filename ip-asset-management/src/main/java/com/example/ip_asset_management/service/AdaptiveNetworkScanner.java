@@ -1,38 +1,46 @@
 package com.example.ip_asset_management.service;
 
-import com.example.ip_asset_management.model.Asset;
+import com.example.ip_asset_management.model.AssetFingerprint;
 import com.example.ip_asset_management.model.AssetType;
+import com.example.ip_asset_management.model.DiscoveryMethod;
+import com.example.ip_asset_management.model.PortState;
+import com.example.ip_asset_management.model.ScanChunk;
 import com.example.ip_asset_management.model.ScanJob;
 import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.model.ScanPhase;
 import com.example.ip_asset_management.model.ScanResult;
-import com.example.ip_asset_management.repository.AssetRepository;
 import com.example.ip_asset_management.repository.ScanJobRepository;
-import com.example.ip_asset_management.repository.ScanResultRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.net.InetAddress;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 
 @Service
 public class AdaptiveNetworkScanner {
     private static final Logger logger = LoggerFactory.getLogger(AdaptiveNetworkScanner.class);
+    private static final long CANCEL_CHECK_INTERVAL_MS = 500;
+    // Probed alongside the common ports so Mac and Windows detection never connect again
+    private static final List<Integer> EXTRA_HOST_PORTS = List.of(139, 5353, 7000);
     
     @Autowired
     private ResourceAwareExecutionController resourceController;
@@ -41,136 +49,273 @@ public class AdaptiveNetworkScanner {
     private ScanJobRepository scanJobRepository;
     
     @Autowired
-    private ScanResultRepository scanResultRepository;
+    private ScanResultWriter scanResultWriter;
     
     @Autowired
-    private AssetRepository assetRepository;
+    private ScanProgressTracker progressTracker;
     
     @Autowired
-    private WindowsScannerService windowsScannerService;
+    private AssetUpsertWriter assetUpsertWriter;
+    
+    @Autowired
+    private HostProbePlanner probePlanner;
+    
+    @Autowired
+    private AssetFingerprints assetFingerprints;
+    
+    @Autowired
+    private ScanChunkService scanChunkService;
+    
+    // Lazy, the worker in turn runs its chunks through this scanner
+    @Lazy
+    @Autowired
+    private ScanChunkWorker chunkWorker;
+    
+    @Autowired
+    private NioPortProber portProber;
+    
+    @Autowired
+    private HostnameResolver hostnameResolver;
+    
+    @Autowired
+    private HostDiscovery hostDiscovery;
+    
+    @Autowired
+    private RttEstimator rttEstimator;
+    
+    @Value("${scan.discovery.enabled:true}")
+    private boolean discoveryEnabled;
+    
+    @Value("${scan.discovery.max-in-flight-hosts:512}")
+    private int discoveryWindowSize;
     
     /**
-     * Starts a scan job with adaptive performance based on system resources
+     * Starts a scan job with adaptive performance based on system resources. The job is cut
+     * into chunks that any backend node can lease; this node starts working on them right
+     * away, and whichever node finishes the last chunk completes the job.
      */
     @Async("scanTaskExecutor")
     public CompletableFuture<ScanJob> executeScanJob(String scanJobId) {
-        ScanJob job = scanJobRepository.findById(scanJobId)
-                .orElseThrow(() -> new RuntimeException("Scan job not found"));
+        ScanJob job = scanJobRepository.findById(scanJobId).orElse(null);
+        // Deleted or cancelled while it waited for a thread; there is nothing to start
+        if (job == null || job.getStatus() != ScanJobStatus.SCHEDULED) {
+            logger.info("Scan job {} was deleted or cancelled before it started", scanJobId);
+            progressTracker.dropQueued(scanJobId);
+            return CompletableFuture.completedFuture(job);
+        }
         
         try {
-            job.setStatus(ScanJobStatus.RUNNING);
             job.setLastRunAt(LocalDateTime.now());
-            scanJobRepository.save(job);
             
-            // Get all targets to scan (IPs and IP segments)
-            List<String> allTargets = getAllTargets(job);
-            int totalTargets = allTargets.size();
+            // Chunks are address ranges; targets are streamed from them, never expanded up front
+            List<ScanChunk> chunks = scanChunkService.plan(job);
+            long targetCount = chunks.stream().mapToLong(ScanChunk::getTargetCount).sum();
+            int totalTargets = (int) Math.min(targetCount, Integer.MAX_VALUE);
             
-            job.setTotalTargets(totalTargets);
-            job.setCompletedTargets(0);
-            job.setSuccessfulTargets(0);
-            job.setFailedTargets(0);
-            scanJobRepository.save(job);
+            // The previous run's chunks go before the job is RUNNING and the new ones after, so
+            // recovery never mistakes old chunks for this run's
+            scanChunkService.delete(scanJobId);
             
-            logger.info("Starting scan job {} with {} targets", scanJobId, totalTargets);
+            // Progress lives in memory and is persisted as partial updates by the tracker
+            ScanJobProgress progress = progressTracker.start(job, totalTargets);
+            scanChunkService.save(chunks);
             
-            // Process in batches based on system resources
-            int processed = 0;
-            int successful = 0;
-            int failed = 0;
+            logger.info("Starting scan job {} with {} targets in {} chunks", scanJobId, totalTargets, chunks.size());
             
-            while (processed < totalTargets) {
-                // Get current optimal batch size
-                int batchSize = resourceController.getMaxBatchSize();
-                int remaining = totalTargets - processed;
-                int currentBatchSize = Math.min(batchSize, remaining);
-                
-                List<String> batch = allTargets.subList(processed, processed + currentBatchSize);
-                logger.debug("Processing batch of {} IPs from job {}", batch.size(), scanJobId);
-                
-                // Process this batch in parallel
-                List<CompletableFuture<ScanResult>> futures = batch.stream()
-                    .map(ip -> CompletableFuture.supplyAsync(() -> scanIpAddress(scanJobId, ip)))
-                    .collect(Collectors.toList());
-                
-                // Wait for all scans in this batch to complete
-                CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-                
-                // Process results from this batch
-                for (CompletableFuture<ScanResult> future : futures) {
-                    try {
-                        ScanResult result = future.get();
-                        if (result.isSuccessful()) {
-                            successful++;
-                        } else {
-                            failed++;
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error processing scan result", e);
-                        failed++;
-                    }
-                }
-                
-                processed += batch.size();
-                
-                // Update job progress
-                job.setCompletedTargets(processed);
-                job.setSuccessfulTargets(successful);
-                job.setFailedTargets(failed);
-                scanJobRepository.save(job);
-                
-                // Check if job was cancelled
-                ScanJob currentState = scanJobRepository.findById(scanJobId).orElse(job);
-                if (currentState.getStatus() == ScanJobStatus.CANCELLED) {
-                    logger.info("Scan job {} was cancelled", scanJobId);
-                    return CompletableFuture.completedFuture(currentState);
-                }
+            try {
+                chunkWorker.drain(scanJobId);
+            } finally {
+                progressTracker.leave(progress);
             }
+            return CompletableFuture.completedFuture(scanJobRepository.findById(scanJobId).orElse(job));
             
-            // Complete the job
-            job.setStatus(ScanJobStatus.COMPLETED);
-            if (job.isRecurring()) {
-                // Set next run time based on schedule
-                // For simplicity, just adding 24 hours
-                job.setNextRunAt(LocalDateTime.now().plusHours(24));
-            }
+        } catch (Exception e) {
+            logger.error("Error executing scan job {}: {}", scanJobId, e.getMessage());
+            progressTracker.finish(scanJobId, ScanJobStatus.FAILED, null);
+            return CompletableFuture.completedFuture(scanJobRepository.findById(scanJobId).orElse(job));
+        }
+    }
+    
+    /**
+     * Scans the targets of one leased chunk of a running job: a liveness sweep, then a deep
+     * scan of the hosts that answered.
+     *
+     * @param chunk The lease the targets are scanned under; results are tagged with it
+     * @param rateLimiter Pacing of the job's probes per subnet, shared by the job's chunks on this node
+     * @param hostExecutor Runs the job's host scans; shared by the job's chunks on this node and closed by the caller
+     * @param stopped Checked along with cancellation; true abandons the targets, e.g. when the lease was lost
+     * @return false if the scan stopped before every target was done
+     */
+    public boolean scanTargets(ScanJob job, ScanChunk chunk, ScanTargetSet targets, ScanJobProgress progress,
+                               ProbeRateLimiter rateLimiter, JobScanExecutor hostExecutor,
+                               BooleanSupplier stopped) throws InterruptedException {
+        String scanJobId = job.getId();
+        // Phase 1: cheap liveness sweep so dark addresses never reach the deep scan
+        Iterable<String> deepTargets = targets;
+        // How each host answered the sweep; stays empty without one
+        Map<String, DiscoveryMethod> liveHosts = new ConcurrentHashMap<>();
+        if (discoveryEnabled) {
+            progressTracker.enterPhase(progress, ScanPhase.DISCOVERY);
+            ResizableSemaphore sweepWindow = new ResizableSemaphore(discoveryWindowSize);
             
-            ScanJob completedJob = scanJobRepository.save(job);
-            logger.info("Completed scan job {} with {} successful and {} failed targets", 
-                     scanJobId, successful, failed);
+            for (String target : targets) {
+                if (!acquireSlot(sweepWindow, scanJobId, stopped)) {
+                    return stop(job);
+                }
+                hostDiscovery.discover(target, hostExecutor, rateLimiter).whenComplete((method, error) -> {
+                    boolean live = error == null && method != null;
+                    if (live) {
+                        liveHosts.put(target, method);
+                    } else {
+                        assetUpsertWriter.markOffline(target);
+                    }
+                    progress.recordSwept(live);
+                    sweepWindow.release();
+                });
+            }
+            sweepWindow.acquire(sweepWindow.getLimit());
             
-            return CompletableFuture.completedFuture(completedJob);
+            logger.info("Scan job {} found {} live hosts out of {} targets", 
+                     scanJobId, liveHosts.size(), targets.size());
+            deepTargets = liveHosts.keySet();
+        }
+        
+        // Phase 2: deep probing and enrichment of the remaining hosts
+        progressTracker.enterPhase(progress, ScanPhase.DEEP_SCAN);
+        
+        // Sliding window: a new host starts as soon as any in-flight scan finishes
+        ResizableSemaphore window = new ResizableSemaphore(resourceController.getMaxBatchSize());
+        
+        Iterator<String> remaining = deepTargets.iterator();
+        while (remaining.hasNext()) {
+            // Stored fingerprints are loaded a chunk of hosts at a time, not one query per host
+            List<String> batch = new ArrayList<>();
+            while (remaining.hasNext() && batch.size() < assetFingerprints.getPrefetchSize()) {
+                batch.add(remaining.next());
+            }
+            Map<String, AssetFingerprint> fingerprints = assetFingerprints.findAll(batch);
             
-        } catch (Exception e) {
-            logger.error("Error executing scan job {}: {}", scanJobId, e.getMessage());
-            job.setStatus(ScanJobStatus.FAILED);
-            ScanJob failedJob = scanJobRepository.save(job);
-            return CompletableFuture.completedFuture(failedJob);
+            for (String ip : batch) {
+                // Follow the controller's view of how many hosts may be in flight
+                window.setLimit(resourceController.getMaxBatchSize());
+                
+                if (!acquireSlot(window, scanJobId, stopped)) {
+                    return stop(job);
+                }
+                
+                AssetFingerprint previous = fingerprints.get(ip);
+                DiscoveryMethod discoveredBy = liveHosts.get(ip);
+                CompletableFuture.supplyAsync(() -> {
+                        // Service time of the host feeds the concurrency tuning; queueing is left out
+                        long started = System.nanoTime();
+                        try {
+                            return scanIpAddress(scanJobId, job.getLastRunAt(), chunk, ip, discoveredBy,
+                                                 rateLimiter, previous, hostExecutor);
+                        } finally {
+                            resourceController.recordHostCompleted(System.nanoTime() - started);
+                        }
+                    }, hostExecutor)
+                    .thenCompose(persisted -> persisted)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            logger.error("Error processing scan result for {}", ip, error);
+                        }
+                        progress.recordResult(error == null && result.isSuccessful());
+                        window.release();
+                    });
+            }
+        }
+        
+        // Drain the hosts that are still in flight
+        window.acquire(window.getLimit());
+        
+        return true;
+    }
+    
+    /**
+     * Waits for a free slot in the window, watching for cancellation while it is full.
+     *
+     * @return false if the job was cancelled or stopped; no slot is held in that case
+     */
+    private boolean acquireSlot(ResizableSemaphore window, String scanJobId, BooleanSupplier stopped)
+            throws InterruptedException {
+        boolean acquired = false;
+        while (!acquired && !isStopped(scanJobId, stopped)) {
+            acquired = window.tryAcquire(CANCEL_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        if (isStopped(scanJobId, stopped)) {
+            if (acquired) {
+                window.release();
+            }
+            return false;
+        }
+        return true;
+    }
+    
+    private boolean isStopped(String scanJobId, BooleanSupplier stopped) {
+        return progressTracker.isCancelled(scanJobId) || stopped.getAsBoolean();
+    }
+    
+    private boolean stop(ScanJob job) {
+        if (progressTracker.isCancelled(job.getId())) {
+            logger.info("Scan job {} was cancelled", job.getId());
+            // Push out what the job produced so far instead of leaving it buffered
+            assetUpsertWriter.flush();
+            scanResultWriter.flush();
+            progressTracker.finish(job.getId(), ScanJobStatus.CANCELLED, null);
         }
+        return false;
     }
     
     /**
-     * Scan a single IP address and capture all required system information
+     * Scan a single IP address and capture all required system information.
+     * The returned future completes once the result has been persisted.
+     *
+     * @param scanRunAt Start of the job run the host is scanned for
+     * @param chunk Lease the host is scanned under
+     * @param discoveredBy How the discovery sweep saw the host answer, or null if there was no sweep
+     * @param rateLimiter Pacing of the job's probes per subnet
+     * @param previous Fingerprint stored by the host's last full scan, or null
+     * @param hostExecutor Runs the result write once the asset is saved, off the asset writer's thread
      */
-    private ScanResult scanIpAddress(String scanJobId, String ipAddress) {
+    private CompletableFuture<ScanResult> scanIpAddress(String scanJobId, LocalDateTime scanRunAt, ScanChunk chunk,
+                                                        String ipAddress, DiscoveryMethod discoveredBy,
+                                                        ProbeRateLimiter rateLimiter, AssetFingerprint previous,
+                                                        JobScanExecutor hostExecutor) {
         ScanResult result = new ScanResult();
         result.setScanJobId(scanJobId);
         result.setIpAddress(ipAddress);
+        result.setChunkId(chunk.getId());
+        result.setChunkAttempt(chunk.getAttempts());
         result.setScanTime(LocalDateTime.now());
         
         Map<String, Object> collectedData = new HashMap<>();
+        CompletableFuture<String> assetId = CompletableFuture.completedFuture(null);
         
         try {
             InetAddress address = InetAddress.getByName(ipAddress);
-            boolean reachable = address.isReachable(5000); // 5 second timeout
+            // Connect and ping timeouts follow the measured round-trip time of the subnet
+            long timeoutMs = rttEstimator.timeoutFor(ipAddress);
+            // A host the sweep found is not pinged again
+            boolean reachable = discoveredBy != null || address.isReachable((int) timeoutMs);
             
             result.setSuccessful(true);
-            String hostname = address.getHostName();
+            // One cached reverse lookup serves both names; a target given by name keeps that name
+            String canonicalHostname = hostnameResolver.resolve(address);
+            String hostname = ipAddress.equals(address.getHostAddress()) ? canonicalHostname : ipAddress;
             result.setHostname(hostname);
             
-            collectedData.put("pingable", reachable);
+            if (discoveredBy == null) {
+                collectedData.put("pingable", reachable);
+            } else {
+                // Only the sweep's ping fallback says anything about ICMP
+                collectedData.put("discoveredBy", discoveredBy.name());
+                if (discoveredBy == DiscoveryMethod.ICMP) {
+                    collectedData.put("pingable", true);
+                }
+            }
             collectedData.put("hostname", hostname);
-            collectedData.put("canonicalHostname", address.getCanonicalHostName());
+            collectedData.put("canonicalHostname", canonicalHostname);
             
             // Enhanced port scanning
             Map<Integer, String> commonPorts = new HashMap<>();
@@ -184,223 +329,38 @@ public class AdaptiveNetworkScanner {
             commonPorts.put(445, "SMB");
             commonPorts.put(3389, "RDP");
             
+            // Every port any later step looks at is probed once, concurrently, under one
+            // host deadline; the Mac and Windows checks reuse these results
+            Set<Integer> hostPorts = new HashSet<>(commonPorts.keySet());
+            hostPorts.addAll(EXTRA_HOST_PORTS);
+            Map<Integer, NioPortProber.ProbeResult> probeResults =
+                    portProber.probeAll(ipAddress, hostPorts, timeoutMs, rateLimiter);
+            if (discoveredBy != null && answeredNothing(probeResults)) {
+                // The sweep just heard from this host, so silence points at a slower path
+                rttEstimator.recordTimeout(ipAddress);
+            }
+            
             Map<String, Boolean> openPorts = new HashMap<>();
             for (Map.Entry<Integer, String> entry : commonPorts.entrySet()) {
-                boolean isOpen = isPortOpen(ipAddress, entry.getKey());
-                openPorts.put(entry.getValue(), isOpen);
+                openPorts.put(entry.getValue(), probeResults.get(entry.getKey()).isOpen());
             }
             
             collectedData.put("openPorts", openPorts);
             
-            // Try to determine asset type and OS
-            String hostLower = hostname.toLowerCase();
-            AssetType assetType = determineAssetType(hostname, openPorts);
-            String operatingSystem = determineOperatingSystem(hostname, openPorts);
-            String osVersion = "Unknown";
-            
-            // MAC-SPECIFIC SCANNING ENHANCEMENT
-            if (assetType == AssetType.MAC) {
-                // Enhanced Mac detection
-                collectedData.put("osFamily", "macOS");
-                operatingSystem = "macOS";
-                
-                // Try alternative Mac scanning techniques
-                try {
-                    // Attempt to ping specific Mac ports
-                    boolean sshOpen = isPortOpen(ipAddress, 22);
-                    boolean airplayOpen = isPortOpen(ipAddress, 7000);
-                    boolean bonjourOpen = isPortOpen(ipAddress, 5353);
-                    
-                    openPorts.put("SSH", sshOpen);
-                    openPorts.put("AirPlay", airplayOpen);
-                    openPorts.put("Bonjour", bonjourOpen);
-                    
-                    // Mac-specific data inferences
-                    String macType = "Mac";
-                    if (hostLower.contains("macbook")) {
-                        macType = "MacBook";
-                        collectedData.put("macType", "MacBook");
-                        collectedData.put("model", "MacBook");
-                    } else if (hostLower.contains("imac")) {
-                        macType = "iMac";
-                        collectedData.put("macType", "iMac");
-                        collectedData.put("model", "iMac");
-                    } else if (hostLower.contains("mac mini")) {
-                        macType = "Mac Mini";
-                        collectedData.put("macType", "Mac Mini");
-                        collectedData.put("model", "Mac Mini");
-                    } else if (hostLower.contains("macpro")) {
-                        macType = "Mac Pro";
-                        collectedData.put("macType", "Mac Pro");
-                        collectedData.put("model", "Mac Pro");
-                    } else {
-                        collectedData.put("macType", "Mac");
-                        collectedData.put("model", "Mac");
-                    }
-                    
-                    // Attempt to gather macOS version from network response timing
-                    // This is a heuristic - different macOS versions have different response patterns
-                    if (sshOpen) {
-                        long sshResponseTime = measureResponseTime(ipAddress, 22);
-                        
-                        // Simple heuristic based on connection timing profiles (ms)
-                        if (sshResponseTime < 20) {
-                            collectedData.put("osVersionGuess", "Likely macOS 14 (Sonoma)");
-                            collectedData.put("osVersion", "macOS 14 (Sonoma) - Estimated");
-                        } else if (sshResponseTime < 30) {
-                            collectedData.put("osVersionGuess", "Likely macOS 13 (Ventura)");
-                            collectedData.put("osVersion", "macOS 13 (Ventura) - Estimated");
-                        } else {
-                            collectedData.put("osVersionGuess", "Likely macOS 12 or earlier");
-                            collectedData.put("osVersion", "macOS 12 or earlier - Estimated");
-                        }
-                    }
-                    
-                    // Set manufacturer to Apple for all Macs
-                    collectedData.put("manufacturer", "Apple Inc.");
-                    
-                } catch (Exception e) {
-                    logger.warn("Enhanced Mac scanning failed: {}", e.getMessage());
-                }
-            }
-            // END OF MAC-SPECIFIC ENHANCEMENT
-            
-            // If Windows detection, use the WindowsScannerService for detailed info
-            if (assetType == AssetType.WINDOWS || openPorts.get("RDP") || openPorts.get("SMB")) {
-                try {
-                    Map<String, Object> windowsInfo = windowsScannerService.getWindowsSystemInfo(ipAddress);
-                    if (windowsInfo != null && !windowsInfo.isEmpty()) {
-                        // Update OS info if available
-                        if (windowsInfo.containsKey("osName")) {
-                            operatingSystem = (String) windowsInfo.get("osName");
-                        }
-                        if (windowsInfo.containsKey("osVersion")) {
-                            osVersion = (String) windowsInfo.get("osVersion");
-                        }
-                        
-                        // Add all Windows info to collected data
-                        collectedData.putAll(windowsInfo);
-                    }
-                } catch (Exception e) {
-                    logger.warn("Failed to get detailed Windows information from " + ipAddress, e);
-                }
-            }
-            
-            // Create or update asset in database
-            Optional<Asset> existingAsset = assetRepository.findByIpAddress(ipAddress);
-            Asset asset;
-            
-            if (existingAsset.isPresent()) {
-                asset = existingAsset.get();
-                asset.setLastSeen(LocalDateTime.now());
-                asset.setOnline(reachable);
-                asset.setHostname(hostname);
-                asset.setLastScanId(scanJobId);
-                
-                // Update with more info if available
-                if (assetType != AssetType.UNKNOWN) {
-                    asset.setAssetType(assetType);
-                }
-                if (!"Unknown".equals(operatingSystem)) {
-                    asset.setOperatingSystem(operatingSystem);
-                }
-                if (!"Unknown".equals(osVersion)) {
-                    asset.setOsVersion(osVersion);
-                }
-                
-                // Update hardware info if available
-                if (collectedData.containsKey("manufacturer")) {
-                    asset.setManufacturer((String) collectedData.get("manufacturer"));
-                }
-                if (collectedData.containsKey("model")) {
-                    asset.setModel((String) collectedData.get("model"));
-                }
-                if (collectedData.containsKey("macAddress")) {
-                    asset.setMacAddress((String) collectedData.get("macAddress"));
-                }
-                if (collectedData.containsKey("osVersion")) {
-                    asset.setOsVersion((String) collectedData.get("osVersion"));
-                }
-                
-                // Update additional info
-                Map<String, Object> additionalInfo = asset.getAdditionalInfo();
-                if (additionalInfo == null) {
-                    additionalInfo = new HashMap<>();
-                }
-                
-                // Add specific hardware details we want to track
-                if (collectedData.containsKey("cpuModel")) {
-                    additionalInfo.put("cpuModel", collectedData.get("cpuModel"));
-                }
-                if (collectedData.containsKey("cpuCores")) {
-                    additionalInfo.put("cpuCores", collectedData.get("cpuCores")); 
-                }
-                if (collectedData.containsKey("ramSize")) {
-                    additionalInfo.put("ramSize", collectedData.get("ramSize"));
-                }
-                if (collectedData.containsKey("gpuName")) {
-                    additionalInfo.put("gpuName", collectedData.get("gpuName"));
-                }
-                if (collectedData.containsKey("lastUser")) {
-                    additionalInfo.put("lastLoggedUser", collectedData.get("lastUser"));
-                }
-                
-                // Add new collected data to existing additional info
-                additionalInfo.putAll(collectedData);
-                asset.setAdditionalInfo(additionalInfo);
-                
+            // The port check doubles as the cheap fingerprint: a host that looks exactly like
+            // it did at its last full scan only gets lastSeen bumped
+            if (assetFingerprints.isUnchanged(previous, AssetFingerprints.openPorts(probeResults), hostname)) {
+                collectedData.put("unchanged", true);
+                Update seen = new Update()
+                        .set("lastSeen", LocalDateTime.now())
+                        .set("online", reachable)
+                        .set("lastScanId", scanJobId);
+                assetId = assetUpsertWriter.upsert(ipAddress, seen);
             } else {
-                asset = new Asset();
-                asset.setIpAddress(ipAddress);
-                asset.setHostname(hostname);
-                asset.setOnline(reachable);
-                asset.setFirstDiscovered(LocalDateTime.now());
-                asset.setLastSeen(LocalDateTime.now());
-                asset.setLastScanId(scanJobId);
-                asset.setAssetType(assetType);
-                asset.setOperatingSystem(operatingSystem);
-                asset.setOsVersion(osVersion);
-                
-                // Set hardware info if available
-                if (collectedData.containsKey("manufacturer")) {
-                    asset.setManufacturer((String) collectedData.get("manufacturer"));
-                }
-                if (collectedData.containsKey("model")) {
-                    asset.setModel((String) collectedData.get("model"));
-                }
-                if (collectedData.containsKey("macAddress")) {
-                    asset.setMacAddress((String) collectedData.get("macAddress"));
-                }
-                if (collectedData.containsKey("osVersion")) {
-                    asset.setOsVersion((String) collectedData.get("osVersion"));
-                }
-                
-                Map<String, Object> additionalInfo = new HashMap<>();
-                // Add specific hardware details we want to track
-                if (collectedData.containsKey("cpuModel")) {
-                    additionalInfo.put("cpuModel", collectedData.get("cpuModel"));
-                }
-                if (collectedData.containsKey("cpuCores")) {
-                    additionalInfo.put("cpuCores", collectedData.get("cpuCores")); 
-                }
-                if (collectedData.containsKey("ramSize")) {
-                    additionalInfo.put("ramSize", collectedData.get("ramSize"));
-                }
-                if (collectedData.containsKey("gpuName")) {
-                    additionalInfo.put("gpuName", collectedData.get("gpuName"));
-                }
-                if (collectedData.containsKey("lastUser")) {
-                    additionalInfo.put("lastLoggedUser", collectedData.get("lastUser"));
-                }
-                
-                additionalInfo.putAll(collectedData);
-                asset.setAdditionalInfo(additionalInfo);
+                assetId = probeHost(scanJobId, scanRunAt, ipAddress, hostname, reachable,
+                                    probeResults, openPorts, collectedData);
             }
             
-            // Save the asset and link to scan result
-            Asset savedAsset = assetRepository.save(asset);
-            result.setAssetId(savedAsset.getId());
-            
         } catch (Exception e) {
             result.setSuccessful(false);
             result.setErrorMessage(e.getMessage());
@@ -408,185 +368,125 @@ public class AdaptiveNetworkScanner {
         }
         
         result.setCollectedData(collectedData);
-        return scanResultRepository.save(result);
+        
+        // Link the result to its asset once the asset batch is written. The result write may
+        // block on a full buffer, so it is handed to the job's threads; once the executor is
+        // closed, e.g. after a cancel, the few hosts still in flight write from the asset writer
+        Executor handOff = task -> {
+            try {
+                hostExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        };
+        return assetId.handleAsync((id, error) -> {
+            if (error != null) {
+                logger.warn("Asset for {} could not be saved: {}", ipAddress, error.getMessage());
+            }
+            result.setAssetId(id);
+            return scanResultWriter.write(result);
+        }, handOff).thenCompose(persisted -> persisted);
     }
     
     /**
-     * Check if a specific port is open
+     * True if the host let every probe time out; probes that failed locally do not count.
      */
-    private boolean isPortOpen(String ip, int port) {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(ip, port), 1000); // 1 second timeout
-            return true;
-        } catch (Exception e) {
-            return false;
+    private static boolean answeredNothing(Map<Integer, NioPortProber.ProbeResult> probeResults) {
+        boolean timedOut = false;
+        for (NioPortProber.ProbeResult probeResult : probeResults.values()) {
+            if (probeResult.getState() == PortState.OPEN || probeResult.getState() == PortState.CLOSED) {
+                return false;
+            }
+            timedOut |= probeResult.getState() == PortState.FILTERED;
         }
+        return timedOut;
     }
     
     /**
-     * Determine asset type based on hostname and open ports
+     * Runs the host's probes and queues its full asset upsert, including a new fingerprint.
+     *
+     * @return The asset id, once the upsert is written
      */
-    private AssetType determineAssetType(String hostname, Map<String, Boolean> openPorts) {
-        String hostLower = hostname.toLowerCase();
-        
-        // Check based on hostname
-        if (hostLower.contains("win") || hostLower.contains("desktop") || 
-                hostLower.contains("laptop") || Boolean.TRUE.equals(openPorts.get("RDP"))) {
-            return AssetType.WINDOWS;
-        } else if (hostLower.contains("linux") || hostLower.contains("ubuntu") || 
-                hostLower.contains("debian") || hostLower.contains("cent")) {
-            return AssetType.LINUX;
-        } else if (hostLower.contains("mac") || hostLower.contains("apple") || 
-                hostLower.contains("mbp") || hostLower.contains("imac")) {
-            return AssetType.MAC;
-        } else if (hostLower.contains("cisco") || hostLower.contains("router") || 
-                hostLower.contains("switch") || hostLower.contains("gateway") || 
-                hostLower.contains("access-point")) {
-            return AssetType.NETWORK_DEVICE;
-        }
-        
-        // Check based on ports
-        if (Boolean.TRUE.equals(openPorts.get("RDP"))) {
-            return AssetType.WINDOWS;
-        } else if (Boolean.TRUE.equals(openPorts.get("SSH")) && !Boolean.TRUE.equals(openPorts.get("SMB"))) {
-            // SSH but no SMB often indicates Linux/Unix
-            return AssetType.LINUX;
+    private CompletableFuture<String> probeHost(String scanJobId, LocalDateTime scanRunAt, String ipAddress,
+                                                String hostname, boolean reachable,
+                                                Map<Integer, NioPortProber.ProbeResult> probeResults,
+                                                Map<String, Boolean> openPorts, Map<String, Object> collectedData) {
+        // Asset type, OS and hardware come from the probes the planner picks for this host
+        HostProbeContext probeContext = new HostProbeContext(scanJobId, scanRunAt, ipAddress, hostname,
+                                                             probeResults, openPorts, collectedData);
+        collectedData.put("probes", probePlanner.run(probeContext));
+        AssetType assetType = probeContext.getAssetType();
+        String operatingSystem = probeContext.getOperatingSystem();
+        for (String field : new String[]{HostProbeContext.OS_VERSION, HostProbeContext.MANUFACTURER,
+                                         HostProbeContext.MODEL}) {
+            if (probeContext.get(field) != null) {
+                collectedData.put(field, probeContext.get(field));
+            }
         }
         
-        return AssetType.UNKNOWN;
-    }
-    
-    /**
-     * Determine OS based on hostname and open ports
-     */
-    private String determineOperatingSystem(String hostname, Map<String, Boolean> openPorts) {
-        String hostLower = hostname.toLowerCase();
+        // Queue a field-level upsert; the write-behind stage batches it with other hosts
+        Update assetUpdate = buildAssetUpdate(scanJobId, hostname, reachable, assetType,
+                                              operatingSystem, collectedData);
+        assetFingerprints.setFingerprint(assetUpdate, AssetFingerprints.openPorts(probeResults), hostname,
+                probeContext.isEnrichmentPending() ? null : AssetFingerprints.hash(probeContext.getFields(),
+                        HostProbeContext.ASSET_TYPE, HostProbeContext.OPERATING_SYSTEM, HostProbeContext.OS_VERSION,
+                        HostProbeContext.MANUFACTURER, HostProbeContext.MODEL));
+        CompletableFuture<String> assetId = assetUpsertWriter.upsert(ipAddress, assetUpdate);
         
-        if (hostLower.contains("win")) {
-            return "Windows";
-        } else if (hostLower.contains("ubuntu")) {
-            return "Ubuntu Linux";
-        } else if (hostLower.contains("debian")) {
-            return "Debian Linux";
-        } else if (hostLower.contains("cent")) {
-            return "CentOS Linux";
-        } else if (hostLower.contains("fedora")) {
-            return "Fedora Linux";
-        } else if (hostLower.contains("red hat") || hostLower.contains("redhat")) {
-            return "Red Hat Linux";
-        } else if (hostLower.contains("linux")) {
-            return "Linux";
-        } else if (hostLower.contains("mac") || hostLower.contains("apple") || 
-                hostLower.contains("mbp") || hostLower.contains("imac")) {
-            return "macOS";
-        } else if (Boolean.TRUE.equals(openPorts.get("RDP"))) {
-            return "Windows";
-        } else if (Boolean.TRUE.equals(openPorts.get("SSH")) && !Boolean.TRUE.equals(openPorts.get("SMB"))) {
-            return "Unix/Linux";
-        }
+        // Hand-overs to other stages that update the same asset, such as Windows enrichment
+        probeContext.getAfterAssetWrite().forEach(Runnable::run);
         
-        return "Unknown";
+        return assetId;
     }
     
     /**
-     * Get all target IPs to scan from a job
+     * Build the asset upsert for a scanned host. Values that are only known on first sight,
+     * and fallbacks for values the scan could not determine, use $setOnInsert so they never
+     * overwrite what an earlier scan found.
      */
-    private List<String> getAllTargets(ScanJob job) {
-        List<String> allTargets = new ArrayList<>();
+    private Update buildAssetUpdate(String scanJobId, String hostname, boolean reachable, AssetType assetType,
+                                    String operatingSystem, Map<String, Object> collectedData) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .setOnInsert("firstDiscovered", now)
+                .set("lastSeen", now)
+                .set("online", reachable)
+                .set("hostname", hostname)
+                .set("lastScanId", scanJobId);
         
-        // Add individual IP addresses
-        if (job.getIpAddresses() != null) {
-            allTargets.addAll(job.getIpAddresses());
+        if (assetType != AssetType.UNKNOWN) {
+            update.set("assetType", assetType);
+        } else {
+            update.setOnInsert("assetType", assetType);
         }
-        
-        // Expand IP segments
-        if (job.getIpSegments() != null) {
-            for (String segment : job.getIpSegments()) {
-                allTargets.addAll(expandIpSegment(segment));
-            }
+        if (!"Unknown".equals(operatingSystem)) {
+            update.set("operatingSystem", operatingSystem);
+        } else {
+            update.setOnInsert("operatingSystem", operatingSystem);
         }
         
-        return allTargets;
-    }
-    
-    /**
-     * Expand an IP segment into individual IPs
-     */
-    private List<String> expandIpSegment(String segment) {
-        List<String> ips = new ArrayList<>();
+        // Only a probe knows the version; without one the stored version is kept
+        if (collectedData.containsKey("osVersion")) {
+            update.set("osVersion", collectedData.get("osVersion"));
+        } else {
+            update.setOnInsert("osVersion", "Unknown");
+        }
         
-        try {
-            // CIDR notation (e.g., 192.168.1.0/24)
-            if (segment.contains("/")) {
-                String[] parts = segment.split("/");
-                String baseIp = parts[0];
-                int prefixLength = Integer.parseInt(parts[1]);
-                
-                if (prefixLength == 24) {
-                    // For a /24 network, scan the whole subnet
-                    String prefix = baseIp.substring(0, baseIp.lastIndexOf(".") + 1);
-                    for (int i = 1; i <= 254; i++) {
-                        ips.add(prefix + i);
-                    }
-                } else if (prefixLength == 16) {
-                    // For a /16, just scan a few addresses as an example
-                    String prefix = baseIp.substring(0, baseIp.indexOf(".", baseIp.indexOf(".") + 1) + 1);
-                    // Just scan the first subnet (.1.*) for demo purposes
-                    prefix = prefix + "1.";
-                    for (int i = 1; i <= 254; i++) {
-                        ips.add(prefix + i);
-                    }
-                } else {
-                    // Add the base IP if we don't know how to expand
-                    ips.add(baseIp);
-                }
-            } 
-            // Range notation (e.g., 192.168.1.1-10)
-            else if (segment.contains("-")) {
-                String[] parts = segment.split("-");
-                if (parts.length == 2) {
-                    String baseIp = parts[0];
-                    int lastDot = baseIp.lastIndexOf(".");
-                    String prefix = baseIp.substring(0, lastDot + 1);
-                    int start = Integer.parseInt(baseIp.substring(lastDot + 1));
-                    int end = Integer.parseInt(parts[1]);
-                    
-                    for (int i = start; i <= end; i++) {
-                        ips.add(prefix + i);
-                    }
-                } else {
-                    // If the format is unexpected, add as is
-                    ips.add(segment);
-                }
-            } else {
-                // If it's just a single IP, add it
-                ips.add(segment);
+        // Update hardware info if available
+        for (String field : new String[]{"manufacturer", "model", "macAddress"}) {
+            if (collectedData.containsKey(field)) {
+                update.set(field, collectedData.get(field));
             }
-        } catch (Exception e) {
-            logger.warn("Error expanding IP segment " + segment + ": " + e.getMessage());
-            // If there's any error, just add the original segment
-            ips.add(segment);
         }
         
-        return ips;
-    }
-
-    /**
-     * Measures connection response time to a specific port
-     * @param ipAddress Target IP address
-     * @param port Port to connect to
-     * @return Response time in milliseconds
-     */
-    private long measureResponseTime(String ipAddress, int port) {
-        long startTime = System.currentTimeMillis();
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(ipAddress, port), 1000);
-            if (socket.isConnected()) {
-                return System.currentTimeMillis() - startTime;
-            }
-        } catch (Exception ignored) {
-            // Connection failed
+        // Merge collected data into additional info key by key, keeping keys from earlier scans
+        if (collectedData.containsKey("lastUser")) {
+            update.set("additionalInfo.lastLoggedUser", collectedData.get("lastUser"));
         }
-        return 1000; // Default to 1000ms (timeout) if connection fails
+        for (Map.Entry<String, Object> entry : collectedData.entrySet()) {
+            update.set("additionalInfo." + entry.getKey(), entry.getValue());
+        }
+        
+        return update;
     }
 }
\ No newline at end of file
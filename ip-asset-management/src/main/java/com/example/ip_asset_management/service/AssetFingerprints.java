@@ -0,0 +1,129 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.Asset;
+import com.example.ip_asset_management.model.AssetFingerprint;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Stored per-asset fingerprints for incremental rescans. A host counts as unchanged when its
+ * open ports and hostname match the fingerprint of its last full scan, that scan's enrichment
+ * finished, and the fingerprint is not older than the maximum age, after which a full scan is
+ * forced to catch changes that ports and names do not show.
+ */
+@Component
+public class AssetFingerprints {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.incremental.enabled:true}")
+    private boolean enabled;
+
+    @Value("${scan.incremental.max-age-hours:168}")
+    private long maxAgeHours;
+
+    @Value("${scan.incremental.prefetch-size:500}")
+    private int prefetchSize;
+
+    /**
+     * Loads the fingerprints of a chunk of hosts with one query.
+     *
+     * @return Fingerprints by IP address; hosts without one are missing
+     */
+    public Map<String, AssetFingerprint> findAll(Collection<String> ipAddresses) {
+        Map<String, AssetFingerprint> fingerprints = new HashMap<>();
+        if (!enabled || ipAddresses.isEmpty()) {
+            return fingerprints;
+        }
+        Query query = Query.query(Criteria.where("ipAddress").in(ipAddresses));
+        query.fields().include("ipAddress").include("fingerprint");
+        for (Asset asset : mongoTemplate.find(query, Asset.class)) {
+            if (asset.getFingerprint() != null) {
+                fingerprints.put(asset.getIpAddress(), asset.getFingerprint());
+            }
+        }
+        return fingerprints;
+    }
+
+    public boolean isUnchanged(AssetFingerprint previous, List<Integer> openPorts, String hostname) {
+        String result;
+        if (previous == null || previous.getEnrichmentHash() == null || previous.getTakenAt() == null
+                || previous.getTakenAt().isBefore(LocalDateTime.now().minusHours(maxAgeHours))) {
+            result = "full";
+        } else if (openPorts.equals(previous.getOpenPorts()) && hostname.equals(previous.getHostname())) {
+            result = "unchanged";
+        } else {
+            result = "changed";
+        }
+        meterRegistry.counter("scan.incremental.hosts", "result", result).increment();
+        return result.equals("unchanged");
+    }
+
+    /**
+     * Adds a new fingerprint to an asset update. While enrichment is still pending the hash is
+     * left unset, so the next scan repeats the full scan if enrichment never finishes.
+     *
+     * @param enrichmentHash Hash of the fields the scan found, or null if enrichment is pending
+     */
+    public void setFingerprint(Update update, List<Integer> openPorts, String hostname, String enrichmentHash) {
+        update.set("fingerprint.openPorts", openPorts)
+              .set("fingerprint.hostname", hostname)
+              .set("fingerprint.takenAt", LocalDateTime.now());
+        if (enrichmentHash != null) {
+            update.set("fingerprint.enrichmentHash", enrichmentHash);
+        } else {
+            update.unset("fingerprint.enrichmentHash");
+        }
+    }
+
+    public int getPrefetchSize() {
+        return prefetchSize;
+    }
+
+    /**
+     * Sorted ports that answered, the port part of a fingerprint.
+     */
+    public static List<Integer> openPorts(Map<Integer, NioPortProber.ProbeResult> probeResults) {
+        return probeResults.entrySet().stream()
+                .filter(entry -> entry.getValue().isOpen())
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Short hash over the given keys of a result map, in the order given.
+     */
+    public static String hash(Map<String, ?> values, String... keys) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String key : keys) {
+                digest.update((key + "=" + Objects.toString(values.get(key), "") + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
\ No newline at end of file
@@ -1,21 +1,57 @@
 package com.example.ip_asset_management.service;
 
+import com.example.ip_asset_management.dto.AssetPageResponse;
 import com.example.ip_asset_management.dto.AssetResponse;
 import com.example.ip_asset_management.model.Asset;
 import com.example.ip_asset_management.model.AssetType;
 import com.example.ip_asset_management.repository.AssetRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class AssetService {
+    private static final Logger logger = LoggerFactory.getLogger(AssetService.class);
+    
+    
+    // Fields of the summary view; the full view adds additionalInfo
+    private static final String[] SUMMARY_FIELDS = {
+            "ipAddress", "hostname", "assetType", "operatingSystem", "osVersion", "macAddress",
+            "manufacturer", "model", "online", "firstDiscovered", "lastSeen"
+    };
     
     @Autowired
     private AssetRepository assetRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${assets.page.default-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${assets.page.max-size:500}")
+    private int maxPageSize;
+    
     public List<AssetResponse> getAllAssets() {
         List<Asset> assets = assetRepository.findAll();
         return assets.stream()
@@ -23,6 +59,78 @@ public class AssetService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * One page of assets in id order. Pages are found by seeking past the last id of the
+     * previous page rather than by skipping, so every page costs the same however deep it is.
+     *
+     * @param after Cursor from the previous page, null for the first page
+     * @param size Page size, capped at the configured maximum
+     * @param full Include additionalInfo, which can be large, instead of the summary fields only
+     * @param countTotal Also count all assets matching the filters
+     */
+    public AssetPageResponse getAssetPage(String after, Integer size, boolean full, AssetType type, Boolean online,
+                                          boolean countTotal) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        
+        Query filter = filterQuery(type, online);
+        Query query = Query.of(filter);
+        if (after != null && !after.isBlank()) {
+            if (!ObjectId.isValid(after)) {
+                throw new RuntimeException("Invalid cursor");
+            }
+            query.addCriteria(Criteria.where("id").gt(new ObjectId(after)));
+        }
+        query.with(Sort.by("id")).limit(pageSize + 1);
+        query.fields().include(SUMMARY_FIELDS);
+        if (full) {
+            query.fields().include("additionalInfo");
+        }
+        
+        // One extra document tells whether there is a next page
+        List<Asset> assets = mongoTemplate.find(query, Asset.class);
+        boolean hasMore = assets.size() > pageSize;
+        if (hasMore) {
+            assets = assets.subList(0, pageSize);
+        }
+        
+        AssetPageResponse page = new AssetPageResponse();
+        page.setItems(assets.stream().map(this::convertToResponse).collect(Collectors.toList()));
+        page.setNextCursor(hasMore ? assets.get(assets.size() - 1).getId() : null);
+        if (countTotal) {
+            // Without filters the collection metadata has the count, no need to scan
+            page.setTotalCount(filter.getQueryObject().isEmpty()
+                    ? mongoTemplate.estimatedCount(Asset.class)
+                    : mongoTemplate.count(filter, Asset.class));
+        }
+        return page;
+    }
+    
+    /**
+     * Writes the assets matching the filters to an export as they are read from a cursor, in
+     * the same shape and order as {@link #getAssetPage}.
+     */
+    public void exportAssets(OutputStream out, ExportWriter.Format format, boolean compress, boolean full,
+                             AssetType type, Boolean online) throws IOException {
+        Query query = filterQuery(type, online).with(Sort.by("id")).cursorBatchSize(ExportWriter.CURSOR_BATCH_SIZE);
+        query.fields().include(SUMMARY_FIELDS);
+        List<String> columns = new ArrayList<>();
+        columns.add("id");
+        columns.addAll(Arrays.asList(SUMMARY_FIELDS));
+        if (full) {
+            query.fields().include("additionalInfo");
+            columns.add("additionalInfo");
+        }
+        
+        try (Stream<Asset> assets = mongoTemplate.stream(query, Asset.class);
+             ExportWriter writer = new ExportWriter(out, format, compress, columns, objectMapper)) {
+            Iterator<Asset> iterator = assets.iterator();
+            while (iterator.hasNext()) {
+                writer.write(convertToResponse(iterator.next()));
+            }
+            logger.info("Exported {} assets as {}", writer.getWritten(), format);
+        }
+    }
+    
     public AssetResponse getAssetById(String id) {
         Asset asset = assetRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Asset not found"));
@@ -47,6 +155,17 @@ public class AssetService {
         assetRepository.deleteById(id);
     }
     
+    private static Query filterQuery(AssetType type, Boolean online) {
+        Query query = new Query();
+        if (type != null) {
+            query.addCriteria(Criteria.where("assetType").is(type));
+        }
+        if (online != null) {
+            query.addCriteria(Criteria.where("online").is(online));
+        }
+        return query;
+    }
+    
     private AssetResponse convertToResponse(Asset asset) {
         AssetResponse response = new AssetResponse();
         response.setId(asset.getId());
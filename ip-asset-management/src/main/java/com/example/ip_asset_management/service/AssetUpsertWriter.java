@@ -0,0 +1,250 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.Asset;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for asset updates produced by scans. Updates are collected and written
+ * as unordered bulk upserts keyed on {@code ipAddress}, flushed when a batch fills up or the
+ * flush interval passes, whichever comes first. Hosts that stopped answering are marked
+ * offline in the same cycle with one multi-update per batch. The queue is bounded; when it is
+ * full, callers block until the writer catches up and those waits are counted.
+ */
+@Component
+public class AssetUpsertWriter {
+    private static final Logger logger = LoggerFactory.getLogger(AssetUpsertWriter.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.persistence.asset-batch-size:500}")
+    private int batchSize;
+
+    @Value("${scan.persistence.asset-buffer-capacity:5000}")
+    private int bufferCapacity;
+
+    @Value("${scan.persistence.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "asset-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ConcurrentLinkedQueue<String> offlineQueue = new ConcurrentLinkedQueue<>();
+    private BlockingQueue<PendingUpsert> queue;
+    private Counter backpressureWaits;
+
+    @PostConstruct
+    public void initialize() {
+        queue = new ArrayBlockingQueue<>(bufferCapacity);
+        backpressureWaits = meterRegistry.counter("scan.assets.backpressure.waits");
+        Gauge.builder("scan.assets.queued", queue, BlockingQueue::size).register(meterRegistry);
+
+        flusher.scheduleWithFixedDelay(this::flushQueued, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        flush();
+        flusher.shutdown();
+    }
+
+    /**
+     * Queues an upsert of the asset with the given address, blocking while the queue is full.
+     * Callbacks on the returned future run on the writer thread unless they are chained
+     * with an executor of their own.
+     *
+     * @param ipAddress Key of the asset; it is set on the document when the upsert inserts
+     * @param update Field-level changes, using $setOnInsert for values that must only be set once
+     * @return A future completed with the asset id once the batch holding this update is written
+     */
+    public CompletableFuture<String> upsert(String ipAddress, Update update) {
+        PendingUpsert pending = new PendingUpsert(ipAddress, update);
+        if (!queue.offer(pending)) {
+            backpressureWaits.increment();
+            logger.debug("Asset upsert queue full ({} entries), waiting for the writer", bufferCapacity);
+            flusher.execute(this::flushQueued);
+            try {
+                queue.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.future.completeExceptionally(e);
+                return pending.future;
+            }
+        }
+
+        if (queue.size() >= batchSize) {
+            flusher.execute(this::flushQueued);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Queues marking the asset with the given address offline. Unknown addresses are ignored;
+     * no asset is created for a host that never answered.
+     */
+    public void markOffline(String ipAddress) {
+        offlineQueue.add(ipAddress);
+    }
+
+    /**
+     * Writes everything queued so far and waits until it is persisted.
+     */
+    public void flush() {
+        try {
+            flusher.submit(this::flushQueued).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Asset flush failed: {}", e.getCause().getMessage());
+        } catch (Exception e) {
+            // Flusher already shut down, write on the calling thread instead
+            flushQueued();
+        }
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private synchronized void flushQueued() {
+        flushOffline();
+        // Held here rather than put back in the queue, where callers may have taken the room
+        Deque<PendingUpsert> carried = new ArrayDeque<>();
+        while (!queue.isEmpty() || !carried.isEmpty()) {
+            List<PendingUpsert> batch = new ArrayList<>();
+            List<PendingUpsert> deferred = new ArrayList<>();
+            Set<String> addresses = new HashSet<>();
+
+            // Two upserts of the same address in one unordered batch could race,
+            // so repeats wait for the next batch
+            PendingUpsert pending;
+            while (batch.size() < batchSize
+                    && (pending = carried.isEmpty() ? queue.poll() : carried.poll()) != null) {
+                if (addresses.add(pending.ipAddress)) {
+                    batch.add(pending);
+                } else {
+                    deferred.add(pending);
+                }
+            }
+            for (int i = deferred.size() - 1; i >= 0; i--) {
+                carried.addFirst(deferred.get(i));
+            }
+
+            writeBatch(batch, addresses);
+        }
+    }
+
+    private void flushOffline() {
+        List<String> batch = new ArrayList<>(batchSize);
+        String address;
+        while ((address = offlineQueue.poll()) != null) {
+            batch.add(address);
+            if (batch.size() == batchSize || offlineQueue.isEmpty()) {
+                try {
+                    Query query = Query.query(Criteria.where("ipAddress").in(batch).and("online").is(true));
+                    long updated = mongoTemplate.updateMulti(query, Update.update("online", false), Asset.class)
+                            .getModifiedCount();
+                    logger.debug("Marked {} of {} unresponsive assets offline", updated, batch.size());
+                } catch (Exception e) {
+                    logger.error("Marking {} assets offline failed: {}", batch.size(), e.getMessage());
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingUpsert> batch, Set<String> addresses) {
+        Map<Integer, BulkWriteError> failures = new HashMap<>();
+        try {
+            BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Asset.class);
+            for (PendingUpsert pending : batch) {
+                operations.upsert(Query.query(Criteria.where("ipAddress").is(pending.ipAddress)), pending.update);
+            }
+            operations.execute();
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the reported upserts was written
+            for (BulkWriteError error : e.getErrors()) {
+                failures.put(error.getIndex(), error);
+                addresses.remove(batch.get(error.getIndex()).ipAddress);
+            }
+            logger.error("{} of {} asset upserts failed", failures.size(), batch.size());
+        } catch (Exception e) {
+            logger.error("Bulk asset upsert of {} assets failed: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+
+        // One lookup resolves the ids of inserted and matched assets alike
+        Map<String, String> ids = new HashMap<>();
+        try {
+            Query idQuery = Query.query(Criteria.where("ipAddress").in(addresses));
+            idQuery.fields().include("id", "ipAddress");
+            for (Asset asset : mongoTemplate.find(idQuery, Asset.class)) {
+                ids.put(asset.getIpAddress(), asset.getId());
+            }
+        } catch (Exception e) {
+            // The upserts are written; only the link from their scan results is lost
+            logger.error("Looking up the ids of {} upserted assets failed: {}", addresses.size(), e.getMessage());
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingUpsert pending = batch.get(i);
+            BulkWriteError failure = failures.get(i);
+            if (failure != null) {
+                pending.future.completeExceptionally(new IllegalStateException(failure.getMessage()));
+            } else {
+                pending.future.complete(ids.get(pending.ipAddress));
+            }
+        }
+        logger.debug("Upserted {} assets", batch.size() - failures.size());
+    }
+
+    private static final class PendingUpsert {
+        private final String ipAddress;
+        private final Update update;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        private PendingUpsert(String ipAddress, Update update) {
+            this.ipAddress = ipAddress;
+            this.update = update;
+        }
+    }
+}
\ No newline at end of file
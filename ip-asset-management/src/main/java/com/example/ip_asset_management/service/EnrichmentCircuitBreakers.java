@@ -0,0 +1,141 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.EnrichmentMethod;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breakers for the Windows collection methods, one per method and host and one per
+ * method and /24. After enough consecutive failures a breaker opens and the method is
+ * skipped for that host or subnet; once the open period passes, a single trial call is let
+ * through (half-open) and its outcome closes or reopens the breaker. Only breakers that have
+ * seen failures are kept, a success removes them.
+ */
+@Component
+public class EnrichmentCircuitBreakers {
+    private static final Logger logger = LoggerFactory.getLogger(EnrichmentCircuitBreakers.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.enrichment.breaker.host-failure-threshold:3}")
+    private int hostFailureThreshold;
+
+    @Value("${scan.enrichment.breaker.subnet-failure-threshold:10}")
+    private int subnetFailureThreshold;
+
+    @Value("${scan.enrichment.breaker.open-seconds:600}")
+    private long openSeconds;
+
+    @Value("${scan.enrichment.breaker.max-entries:100000}")
+    private int maxEntries;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Whether a method may be tried on a host. In the half-open state only the first caller
+     * gets through; it must report back with {@link #record}.
+     */
+    public boolean allowRequest(EnrichmentMethod method, String ipAddress) {
+        long now = System.nanoTime();
+        Breaker host = breakers.get(hostKey(method, ipAddress));
+        Breaker subnet = breakers.get(subnetKey(method, ipAddress));
+        boolean allowed = host == null || host.tryPass(now);
+        if (allowed && subnet != null && !subnet.tryPass(now)) {
+            // The call will not happen, so it cannot serve as the host's trial either
+            if (host != null) {
+                host.releaseTrial();
+            }
+            allowed = false;
+        }
+        if (!allowed) {
+            meterRegistry.counter("scan.enrichment.breaker.skipped").increment();
+        }
+        return allowed;
+    }
+
+    public void record(EnrichmentMethod method, String ipAddress, boolean success) {
+        record(hostKey(method, ipAddress), hostFailureThreshold, success);
+        record(subnetKey(method, ipAddress), subnetFailureThreshold, success);
+    }
+
+    public int getOpenCount() {
+        long now = System.nanoTime();
+        return (int) breakers.values().stream().filter(breaker -> breaker.isOpen(now)).count();
+    }
+
+    private void record(String key, int threshold, boolean success) {
+        if (success) {
+            if (breakers.remove(key) != null) {
+                logger.debug("Circuit breaker {} closed", key);
+            }
+            return;
+        }
+        if (breakers.size() >= maxEntries && !breakers.containsKey(key)) {
+            logger.info("Circuit breaker table full ({} entries), resetting it", maxEntries);
+            breakers.clear();
+        }
+        Breaker breaker = breakers.computeIfAbsent(key, k -> new Breaker());
+        if (breaker.recordFailure(threshold, System.nanoTime())) {
+            meterRegistry.counter("scan.enrichment.breaker.opened").increment();
+            logger.debug("Circuit breaker {} opened for {}s", key, openSeconds);
+        }
+    }
+
+    private static String hostKey(EnrichmentMethod method, String ipAddress) {
+        return method + "|" + ipAddress;
+    }
+
+    private static String subnetKey(EnrichmentMethod method, String ipAddress) {
+        return method + "|" + RttEstimator.subnetKey(ipAddress);
+    }
+
+    private final class Breaker {
+        private int consecutiveFailures;
+        private long openUntil; // 0 while closed
+        private boolean trialInFlight;
+
+        private synchronized boolean tryPass(long now) {
+            if (openUntil == 0) {
+                return true;
+            }
+            if (now - openUntil < 0 || trialInFlight) {
+                return false;
+            }
+            // Half-open: let exactly one trial through
+            trialInFlight = true;
+            return true;
+        }
+
+        private synchronized void releaseTrial() {
+            trialInFlight = false;
+        }
+
+        /**
+         * @return true if this failure opened the breaker
+         */
+        private synchronized boolean recordFailure(int threshold, long now) {
+            consecutiveFailures++;
+            if (trialInFlight || consecutiveFailures >= threshold) {
+                // A failed trial reopens; further failures of calls already under way only extend
+                boolean opened = openUntil == 0 || trialInFlight;
+                trialInFlight = false;
+                openUntil = now + TimeUnit.SECONDS.toNanos(openSeconds);
+                return opened;
+            }
+            return false;
+        }
+
+        private synchronized boolean isOpen(long now) {
+            return openUntil != 0 && now - openUntil < 0;
+        }
+    }
+}
\ No newline at end of file
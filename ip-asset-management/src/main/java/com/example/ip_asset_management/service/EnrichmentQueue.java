@@ -0,0 +1,312 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.Asset;
+import com.example.ip_asset_management.model.AssetType;
+import com.example.ip_asset_management.model.EnrichmentMethod;
+import com.example.ip_asset_management.model.ScanJob;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deep enrichment of Windows hosts, decoupled from the host scan. Scans write the basic asset
+ * and hand the host over; a bounded queue with its own workers runs the slow management
+ * fallback chain (WMI, SMB, PowerShell, ...) under a per-attempt deadline, retries attempts
+ * that time out or fail, and updates the asset when it gets an answer.
+ * <p>
+ * Attempts run on a separate executor so a worker is free again at the deadline. Blocking
+ * calls of the fallback chain do not always answer an interrupt, so an attempt that times out
+ * is abandoned rather than stopped; abandoned attempts are counted while they still run.
+ */
+@Component
+public class EnrichmentQueue {
+    private static final Logger logger = LoggerFactory.getLogger(EnrichmentQueue.class);
+
+    @Autowired
+    private WindowsScannerService windowsScannerService;
+
+    @Autowired
+    private AssetUpsertWriter assetUpsertWriter;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.enrichment.workers:8}")
+    private int workerCount;
+
+    @Value("${scan.enrichment.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${scan.enrichment.deadline-seconds:60}")
+    private long deadlineSeconds;
+
+    @Value("${scan.enrichment.max-attempts:2}")
+    private int maxAttempts;
+
+    @Value("${scan.enrichment.retry-delay-ms:5000}")
+    private long retryDelayMs;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "enrichment-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger abandonedRunning = new AtomicInteger();
+    private ThreadPoolExecutor workers;
+    private ThreadPoolExecutor attempts;
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "enrichment-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // Room for every worker's attempt plus as many abandoned ones still running
+        AtomicInteger attemptCounter = new AtomicInteger();
+        attempts = new ThreadPoolExecutor(0, workerCount * 2, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "enrichment-attempt-" + attemptCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Gauge.builder("scan.enrichment.queued", workers, executor -> executor.getQueue().size()).register(meterRegistry);
+        Gauge.builder("scan.enrichment.active", workers, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("scan.enrichment.abandoned.running", abandonedRunning, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        timer.shutdownNow();
+        workers.shutdownNow();
+        attempts.shutdownNow();
+    }
+
+    /**
+     * Queues a host for enrichment.
+     *
+     * @param scanRunAt Start of the job run that scanned the host; only that run counts the enrichment
+     * @param knownPorts Probe results from the host scan, so the fallback chain does not probe them again
+     * @return false if the queue is full and the host was not queued
+     */
+    public boolean submit(String scanJobId, LocalDateTime scanRunAt, String ipAddress,
+                          Map<Integer, NioPortProber.ProbeResult> knownPorts) {
+        return enqueue(new EnrichmentTask(scanJobId, scanRunAt, ipAddress, knownPorts, 1));
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size();
+    }
+
+    private boolean enqueue(EnrichmentTask task) {
+        try {
+            workers.execute(() -> runAttempt(task));
+            return true;
+        } catch (RejectedExecutionException e) {
+            meterRegistry.counter("scan.enrichment.rejected").increment();
+            logger.warn("Enrichment queue full, skipping enrichment of {}", task.ipAddress);
+            return false;
+        }
+    }
+
+    private void runAttempt(EnrichmentTask task) {
+        EnrichmentMethod preferred = findPreferredMethod(task.ipAddress);
+        AttemptCall call = new AttemptCall(task, preferred);
+        Future<Map<String, Object>> attempt = null;
+        String failure;
+        try {
+            attempt = attempts.submit(call::run);
+            // The deadline covers the attempt itself, not the time it waited in the queue
+            Map<String, Object> info = attempt.get(deadlineSeconds, TimeUnit.SECONDS);
+            if (info != null && !info.isEmpty()) {
+                applyToAsset(task, info);
+                meterRegistry.counter("scan.enrichment.completed").increment();
+            } else {
+                // Every method answered, none of them with data; trying again will not change that
+                meterRegistry.counter("scan.enrichment.empty").increment();
+            }
+            return;
+        } catch (TimeoutException e) {
+            // The interrupt is a request only; the worker moves on whether or not the attempt stops
+            call.abandon();
+            attempt.cancel(true);
+            meterRegistry.counter("scan.enrichment.timeouts").increment();
+            meterRegistry.counter("scan.enrichment.abandoned").increment();
+            logger.warn("Enrichment attempt {} of {} abandoned after {}s, {} abandoned attempts still running",
+                    task.attempt, task.ipAddress, deadlineSeconds, abandonedRunning.get());
+            failure = "timed out after " + deadlineSeconds + "s";
+        } catch (RejectedExecutionException e) {
+            // Every attempt thread is taken, mostly by abandoned attempts that have not returned
+            failure = "found no free attempt thread";
+        } catch (ExecutionException e) {
+            failure = e.getCause().getMessage();
+        } catch (InterruptedException e) {
+            attempt.cancel(true);
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (task.attempt < maxAttempts) {
+            logger.debug("Enrichment of {} {} (attempt {}), retrying", task.ipAddress, failure, task.attempt);
+            meterRegistry.counter("scan.enrichment.retries").increment();
+            timer.schedule(() -> enqueue(task.nextAttempt()), retryDelayMs, TimeUnit.MILLISECONDS);
+        } else {
+            logger.warn("Enrichment of {} {}, giving up after {} attempts", task.ipAddress, failure, task.attempt);
+            meterRegistry.counter("scan.enrichment.failed").increment();
+        }
+    }
+
+    /**
+     * The collection method that last worked for the host, so it can be tried first.
+     */
+    private EnrichmentMethod findPreferredMethod(String ipAddress) {
+        try {
+            Query query = Query.query(Criteria.where("ipAddress").is(ipAddress));
+            query.fields().include("preferredEnrichmentMethod");
+            Asset asset = mongoTemplate.findOne(query, Asset.class);
+            return asset != null ? asset.getPreferredEnrichmentMethod() : null;
+        } catch (Exception e) {
+            logger.debug("Could not look up preferred enrichment method of {}: {}", ipAddress, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Merges enrichment results into the asset. The update goes through the same write-behind
+     * stage as the scan's own upsert, which was queued first, so it is applied after it.
+     */
+    private void applyToAsset(EnrichmentTask task, Map<String, Object> info) {
+        Update update = new Update()
+                .setOnInsert("firstDiscovered", LocalDateTime.now())
+                .set("additionalInfo.enrichedAt", LocalDateTime.now());
+
+        if (info.containsKey("osName")) {
+            update.set("operatingSystem", info.get("osName"));
+        }
+        if (info.containsKey("osVersion")) {
+            update.set("osVersion", info.get("osVersion"));
+        }
+        if ("WINDOWS".equals(info.get("assetType"))) {
+            update.set("assetType", AssetType.WINDOWS);
+        }
+        for (String field : new String[]{"manufacturer", "model", "macAddress"}) {
+            if (info.containsKey(field)) {
+                update.set(field, info.get(field));
+            }
+        }
+        if (info.containsKey("lastUser")) {
+            update.set("additionalInfo.lastLoggedUser", info.get("lastUser"));
+        }
+        for (Map.Entry<String, Object> entry : info.entrySet()) {
+            update.set("additionalInfo." + entry.getKey(), entry.getValue());
+        }
+        // Completes the fingerprint the scan left pending, so unchanged rescans skip this host
+        update.set("fingerprint.enrichmentHash",
+                AssetFingerprints.hash(info, "assetType", "osName", "osVersion", "manufacturer", "model", "macAddress"));
+        // Port scanning is always available as the last resort, remembering it gains nothing
+        Object method = info.get("collectionMethod");
+        if (method != null && !EnrichmentMethod.PORT_SCAN.name().equals(method)) {
+            update.set("preferredEnrichmentMethod", EnrichmentMethod.valueOf(method.toString()));
+        }
+
+        // The counter update runs on the timer: the callback would otherwise block the asset
+        // writer's single thread, and the worker queue may be full and refuse it
+        assetUpsertWriter.upsert(task.ipAddress, update).whenCompleteAsync((id, error) -> {
+            if (error != null) {
+                logger.warn("Enriched asset {} could not be saved: {}", task.ipAddress, error.getMessage());
+                return;
+            }
+            // Counted only while the job is still on the run that scanned the host; a late
+            // enrichment must not add to the counters of a run that started after it
+            mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(task.scanJobId)
+                            .and("lastRunAt").is(task.scanRunAt)),
+                    new Update().inc("enrichedTargets", 1), ScanJob.class);
+        }, timer);
+    }
+
+    /**
+     * One attempt on an attempt thread. An attempt that outlives its deadline keeps counting
+     * as abandoned until its call returns.
+     */
+    private final class AttemptCall {
+        private final EnrichmentTask task;
+        private final EnrichmentMethod preferred;
+        private boolean abandoned;
+        private boolean finished;
+
+        private AttemptCall(EnrichmentTask task, EnrichmentMethod preferred) {
+            this.task = task;
+            this.preferred = preferred;
+        }
+
+        private Map<String, Object> run() {
+            try {
+                return windowsScannerService.getWindowsSystemInfo(task.ipAddress, task.knownPorts, preferred);
+            } finally {
+                synchronized (this) {
+                    finished = true;
+                    if (abandoned) {
+                        abandonedRunning.decrementAndGet();
+                    }
+                }
+            }
+        }
+
+        private synchronized void abandon() {
+            if (!finished && !abandoned) {
+                abandoned = true;
+                abandonedRunning.incrementAndGet();
+            }
+        }
+    }
+
+    private static final class EnrichmentTask {
+        private final String scanJobId;
+        private final LocalDateTime scanRunAt;
+        private final String ipAddress;
+        private final Map<Integer, NioPortProber.ProbeResult> knownPorts;
+        private final int attempt;
+
+        private EnrichmentTask(String scanJobId, LocalDateTime scanRunAt, String ipAddress,
+                               Map<Integer, NioPortProber.ProbeResult> knownPorts, int attempt) {
+            this.scanJobId = scanJobId;
+            this.scanRunAt = scanRunAt;
+            this.ipAddress = ipAddress;
+            this.knownPorts = knownPorts;
+            this.attempt = attempt;
+        }
+
+        private EnrichmentTask nextAttempt() {
+            return new EnrichmentTask(scanJobId, scanRunAt, ipAddress, knownPorts, attempt + 1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.example.ip_asset_management.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes exported records one at a time, as newline-delimited JSON or as CSV, optionally
+ * gzipped. Nothing is kept between records, so an export of any size runs in constant memory.
+ */
+public class ExportWriter implements Closeable {
+    private static final TypeReference<Map<String, Object>> FIELDS = new TypeReference<>() {};
+    private static final int FLUSH_EVERY = 1000;
+
+    // Documents an export's cursor fetches per round trip
+    public static final int CURSOR_BATCH_SIZE = 1000;
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format)) {
+                    return value;
+                }
+            }
+            throw new RuntimeException("Unsupported export format: " + format);
+        }
+    }
+
+    private final Format format;
+    private final List<String> columns;
+    private final ObjectMapper objectMapper;
+    private final GZIPOutputStream gzip;
+    private final Writer writer;
+    private long written;
+
+    /**
+     * @param columns CSV columns, named after the record's JSON properties; nested values are
+     *                written as JSON. Ignored for NDJSON, which writes every property.
+     */
+    public ExportWriter(OutputStream out, Format format, boolean compress, List<String> columns,
+                        ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.columns = columns;
+        this.objectMapper = objectMapper;
+        this.gzip = compress ? new GZIPOutputStream(out) : null;
+        this.writer = new BufferedWriter(new OutputStreamWriter(compress ? gzip : out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write(String.join(",", columns));
+            writer.write("\r\n");
+        }
+    }
+
+    public void write(Object record) throws IOException {
+        if (format == Format.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(record));
+            writer.write('\n');
+        } else {
+            Map<String, Object> fields = objectMapper.convertValue(record, FIELDS);
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvCell(fields.get(columns.get(i))));
+            }
+            writer.write("\r\n");
+        }
+        // Keeps the client receiving data instead of waiting for the buffers to fill up
+        if (++written % FLUSH_EVERY == 0) {
+            writer.flush();
+        }
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        writer.close();
+    }
+
+    private String csvCell(Object value) throws IOException {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Map || value instanceof List
+                ? objectMapper.writeValueAsString(value) : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
\ No newline at end of file
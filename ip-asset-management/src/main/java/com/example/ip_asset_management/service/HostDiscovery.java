@@ -0,0 +1,79 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.DiscoveryMethod;
+import com.example.ip_asset_management.model.PortState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Liveness sweep used before deep scanning. A host counts as alive as soon as any discovery
+ * port answers, refused connections included, since a reset proves something is there. Only
+ * when every port stays silent is an ICMP-style reachability check spent on it. Both use the
+ * timeout the {@link RttEstimator} derives for the target's subnet.
+ */
+@Component
+public class HostDiscovery {
+    private static final Logger logger = LoggerFactory.getLogger(HostDiscovery.class);
+
+    @Autowired
+    private NioPortProber portProber;
+
+    @Value("${scan.discovery.ports:80,443,22,445,3389,135}")
+    private List<Integer> discoveryPorts;
+
+    @Autowired
+    private RttEstimator rttEstimator;
+
+    /**
+     * Checks whether a target is alive.
+     *
+     * @param target Address or hostname to check
+     * @param pingExecutor Executor for the blocking reachability fallback
+     * @param rateLimiter Pacing of the job's probes per subnet
+     * @return A future completed with the way the target answered as soon as it is known to be
+     *         alive, or with null if it never did
+     */
+    public CompletableFuture<DiscoveryMethod> discover(String target, Executor pingExecutor,
+                                                       ProbeRateLimiter rateLimiter) {
+        CompletableFuture<DiscoveryMethod> alive = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(discoveryPorts.size());
+        long timeoutMs = rttEstimator.timeoutFor(target);
+
+        for (int port : discoveryPorts) {
+            portProber.probe(target, port, timeoutMs, rateLimiter).whenComplete((result, error) -> {
+                if (error == null && (result.getState() == PortState.OPEN
+                        || result.getState() == PortState.CLOSED)) {
+                    alive.complete(DiscoveryMethod.TCP);
+                } else if (remaining.decrementAndGet() == 0 && !alive.isDone()) {
+                    ping(target, (int) timeoutMs, pingExecutor, alive);
+                }
+            });
+        }
+        return alive;
+    }
+
+    private void ping(String target, int timeoutMs, Executor pingExecutor, CompletableFuture<DiscoveryMethod> alive) {
+        try {
+            pingExecutor.execute(() -> {
+                try {
+                    alive.complete(InetAddress.getByName(target).isReachable(timeoutMs) ? DiscoveryMethod.ICMP : null);
+                } catch (Exception e) {
+                    logger.debug("Reachability check of {} failed: {}", target, e.getMessage());
+                    alive.complete(null);
+                }
+            });
+        } catch (Exception e) {
+            // Executor closed because the job ended
+            alive.complete(null);
+        }
+    }
+}
\ No newline at end of file
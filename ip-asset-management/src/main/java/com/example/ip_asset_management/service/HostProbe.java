@@ -0,0 +1,31 @@
+package com.example.ip_asset_management.service;
+
+import java.util.Set;
+
+/**
+ * A way of learning something about a scanned host. Probes are Spring beans and are picked
+ * up by {@link HostProbePlanner}, which decides per host which of them to run and in what
+ * order, based on what each declares below.
+ */
+public interface HostProbe {
+
+    String getName();
+
+    /**
+     * Asset fields this probe can determine, see the field names in {@link HostProbeContext}.
+     * The probe is skipped once all of them are known with enough confidence.
+     */
+    Set<String> getProducedFields();
+
+    /**
+     * Whether the probe's prerequisites hold for the host, given what is known so far.
+     */
+    boolean isApplicable(HostProbeContext context);
+
+    /**
+     * Expected latency of running the probe against the host, used to run cheap probes first.
+     */
+    long estimateCostMillis(HostProbeContext context);
+
+    void run(HostProbeContext context) throws Exception;
+}
\ No newline at end of file
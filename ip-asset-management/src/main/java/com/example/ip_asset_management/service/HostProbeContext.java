@@ -0,0 +1,151 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.AssetType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What is known about one host while its probes run: the scan's port results, the data
+ * collected so far, and each asset field determined so far together with how confident the
+ * probe that set it was, from 0 (a guess) to 1 (reported by the host itself).
+ */
+public class HostProbeContext {
+    public static final String ASSET_TYPE = "assetType";
+    public static final String OPERATING_SYSTEM = "operatingSystem";
+    public static final String OS_VERSION = "osVersion";
+    public static final String MANUFACTURER = "manufacturer";
+    public static final String MODEL = "model";
+
+    private final String scanJobId;
+    private final LocalDateTime scanRunAt;
+    private final String ipAddress;
+    private final String hostname;
+    private final Map<Integer, NioPortProber.ProbeResult> probeResults;
+    private final Map<String, Boolean> openPorts;
+    private final Map<String, Object> collectedData;
+    private final Map<String, Object> fields = new HashMap<>();
+    private final Map<String, Double> confidence = new HashMap<>();
+    private final List<Runnable> afterAssetWrite = new ArrayList<>();
+    private double confidenceThreshold = 1;
+    private boolean enrichmentPending;
+
+    public HostProbeContext(String scanJobId, LocalDateTime scanRunAt, String ipAddress, String hostname,
+                            Map<Integer, NioPortProber.ProbeResult> probeResults,
+                            Map<String, Boolean> openPorts, Map<String, Object> collectedData) {
+        this.scanJobId = scanJobId;
+        this.scanRunAt = scanRunAt;
+        this.ipAddress = ipAddress;
+        this.hostname = hostname;
+        this.probeResults = probeResults;
+        this.openPorts = openPorts;
+        this.collectedData = collectedData;
+    }
+
+    /**
+     * Sets a field unless an earlier probe already determined it with at least the same confidence.
+     */
+    public void determine(String field, Object value, double fieldConfidence) {
+        if (value != null && fieldConfidence > getConfidence(field)) {
+            fields.put(field, value);
+            confidence.put(field, fieldConfidence);
+        }
+    }
+
+    public Object get(String field) {
+        return fields.get(field);
+    }
+
+    public Map<String, Object> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    public double getConfidence(String field) {
+        return confidence.getOrDefault(field, 0.0);
+    }
+
+    /**
+     * Whether the field is known well enough that probes need not look for it any more.
+     */
+    public boolean isConclusive(String field) {
+        return getConfidence(field) >= confidenceThreshold;
+    }
+
+    public AssetType getAssetType() {
+        Object assetType = fields.get(ASSET_TYPE);
+        return assetType != null ? (AssetType) assetType : AssetType.UNKNOWN;
+    }
+
+    public String getOperatingSystem() {
+        Object operatingSystem = fields.get(OPERATING_SYSTEM);
+        return operatingSystem != null ? operatingSystem.toString() : "Unknown";
+    }
+
+    public boolean isPortOpen(int port) {
+        NioPortProber.ProbeResult result = probeResults.get(port);
+        return result != null && result.isOpen();
+    }
+
+    /**
+     * Queues work that has to wait until the host's basic asset upsert is queued, such as
+     * handing the host over to another stage that updates the same asset.
+     */
+    public void afterAssetWrite(Runnable action) {
+        afterAssetWrite.add(action);
+    }
+
+    public List<Runnable> getAfterAssetWrite() {
+        return afterAssetWrite;
+    }
+
+    /**
+     * Whether another stage will add fields to the asset later, so the scan's view of the
+     * host is not complete yet.
+     */
+    public boolean isEnrichmentPending() {
+        return enrichmentPending;
+    }
+
+    public void setEnrichmentPending(boolean enrichmentPending) {
+        this.enrichmentPending = enrichmentPending;
+    }
+
+    void setConfidenceThreshold(double confidenceThreshold) {
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    public String getScanJobId() {
+        return scanJobId;
+    }
+
+    /**
+     * Start of the job run that scans the host, telling its work apart from earlier runs'.
+     */
+    public LocalDateTime getScanRunAt() {
+        return scanRunAt;
+    }
+
+    public String getIpAddress() {
+        return ipAddress;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public Map<Integer, NioPortProber.ProbeResult> getProbeResults() {
+        return probeResults;
+    }
+
+    public Map<String, Boolean> getOpenPorts() {
+        return openPorts;
+    }
+
+    public Map<String, Object> getCollectedData() {
+        return collectedData;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,80 @@
+package com.example.ip_asset_management.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the registered {@link HostProbe}s against a host, cheapest first. The plan is made one
+ * step at a time: after every probe the remaining ones are re-checked, so a probe whose
+ * prerequisites were just met becomes eligible, and a probe whose fields are all known with
+ * enough confidence by now is dropped. That keeps slow probes off hosts a cheap fingerprint
+ * already identified.
+ */
+@Component
+public class HostProbePlanner {
+    private static final Logger logger = LoggerFactory.getLogger(HostProbePlanner.class);
+
+    @Autowired
+    private List<HostProbe> probes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.probe.confidence-threshold:0.8}")
+    private double confidenceThreshold;
+
+    /**
+     * Runs the probes worth running for the host.
+     *
+     * @return Names of the probes that ran, in order
+     */
+    public List<String> run(HostProbeContext context) {
+        context.setConfidenceThreshold(confidenceThreshold);
+        List<HostProbe> remaining = new ArrayList<>(probes);
+        List<String> executed = new ArrayList<>();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            HostProbe next = null;
+            long nextCost = Long.MAX_VALUE;
+            for (HostProbe probe : new ArrayList<>(remaining)) {
+                if (!probe.isApplicable(context)) {
+                    continue;
+                }
+                if (probe.getProducedFields().stream().allMatch(context::isConclusive)) {
+                    remaining.remove(probe);
+                    meterRegistry.counter("scan.probe.skipped", "probe", probe.getName()).increment();
+                    logger.debug("Skipping {} on {}, its fields are already known", probe.getName(), context.getIpAddress());
+                    continue;
+                }
+                long cost = probe.estimateCostMillis(context);
+                if (cost < nextCost) {
+                    next = probe;
+                    nextCost = cost;
+                }
+            }
+            if (next == null) {
+                break;
+            }
+
+            remaining.remove(next);
+            executed.add(next.getName());
+            long start = System.nanoTime();
+            try {
+                next.run(context);
+            } catch (Exception e) {
+                logger.warn("Probe {} failed for {}: {}", next.getName(), context.getIpAddress(), e.getMessage());
+            }
+            meterRegistry.timer("scan.probe.duration", "probe", next.getName())
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return executed;
+    }
+}
\ No newline at end of file
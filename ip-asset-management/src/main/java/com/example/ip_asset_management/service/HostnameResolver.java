@@ -0,0 +1,166 @@
+package com.example.ip_asset_management.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reverse-DNS lookups with a TTL cache. Names that do not resolve are cached for a shorter
+ * time, lookups are capped by a timeout and run on a bounded pool, and concurrent requests
+ * for the same address share one lookup.
+ */
+@Component
+public class HostnameResolver {
+    private static final Logger logger = LoggerFactory.getLogger(HostnameResolver.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.dns.cache-ttl-seconds:3600}")
+    private long cacheTtlSeconds;
+
+    @Value("${scan.dns.negative-ttl-seconds:300}")
+    private long negativeTtlSeconds;
+
+    @Value("${scan.dns.timeout-ms:2000}")
+    private long lookupTimeoutMs;
+
+    @Value("${scan.dns.max-parallel:16}")
+    private int maxParallelLookups;
+
+    @Value("${scan.dns.max-entries:100000}")
+    private int maxEntries;
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private ExecutorService lookupExecutor;
+    private Counter hits;
+    private Counter misses;
+    private Counter timeouts;
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger counter = new AtomicInteger();
+        lookupExecutor = Executors.newFixedThreadPool(maxParallelLookups, runnable -> {
+            Thread thread = new Thread(runnable, "dns-lookup-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        hits = meterRegistry.counter("scan.dns.cache.hits");
+        misses = meterRegistry.counter("scan.dns.cache.misses");
+        timeouts = meterRegistry.counter("scan.dns.timeouts");
+        Gauge.builder("scan.dns.cache.size", cache, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        lookupExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the PTR name of an address, or its literal address when it has none or the
+     * lookup did not finish in time.
+     */
+    public String resolve(InetAddress address) {
+        String key = address.getHostAddress();
+        long now = System.currentTimeMillis();
+
+        CacheEntry entry = cache.get(key);
+        if (entry != null && !entry.isExpired(now)) {
+            hits.increment();
+        } else {
+            misses.increment();
+            CacheEntry fresh = new CacheEntry();
+            entry = cache.compute(key, (k, existing) ->
+                    existing != null && !existing.isExpired(now) ? existing : fresh);
+            if (entry == fresh) {
+                startLookup(key, fresh);
+                evictIfFull(now);
+            }
+        }
+
+        try {
+            return entry.future.get(lookupTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            logger.debug("Reverse lookup of {} timed out after {}ms", key, lookupTimeoutMs);
+            return key;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return key;
+        } catch (Exception e) {
+            return key;
+        }
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private void startLookup(String key, CacheEntry entry) {
+        try {
+            lookupExecutor.execute(() -> {
+                String name = lookUp(key);
+                boolean resolved = !key.equals(name);
+                long ttl = TimeUnit.SECONDS.toMillis(resolved ? cacheTtlSeconds : negativeTtlSeconds);
+                entry.expiresAt = System.currentTimeMillis() + ttl;
+                entry.future.complete(name);
+            });
+        } catch (Exception e) {
+            // Executor shut down; answer with the address and let the entry expire right away
+            entry.expiresAt = 0;
+            entry.future.complete(key);
+        }
+    }
+
+    /**
+     * Looks up the PTR name of an address, or returns the address when it has none.
+     */
+    String lookUp(String address) {
+        try {
+            // getCanonicalHostName returns the literal address when there is no PTR record
+            return InetAddress.getByName(address).getCanonicalHostName();
+        } catch (Exception e) {
+            logger.debug("Reverse lookup of {} failed: {}", address, e.getMessage());
+            return address;
+        }
+    }
+
+    private void evictIfFull(long now) {
+        if (cache.size() <= maxEntries) {
+            return;
+        }
+        cache.values().removeIf(entry -> entry.isExpired(now));
+        if (cache.size() > maxEntries) {
+            logger.info("Hostname cache still above {} entries after expiry, clearing it", maxEntries);
+            cache.clear();
+        }
+    }
+
+    private static final class CacheEntry {
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        // Entries still being looked up never expire
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package com.example.ip_asset_management.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Bounded executor owned by a single scan job. Host scans submitted here run with at most
+ * {@link #getConcurrencyLimit()} in parallel; the limit is driven by the
+ * {@link ResourceAwareExecutionController} while the job runs.
+ */
+public class JobScanExecutor implements Executor, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(JobScanExecutor.class);
+
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private final String jobId;
+    private final String userId;
+    private final Mode mode;
+    private final ExecutorService delegate;
+    private final ResizableSemaphore permits;
+    private final Consumer<JobScanExecutor> onClose;
+
+    JobScanExecutor(String jobId, String userId, Mode requestedMode, int concurrencyLimit,
+                    Consumer<JobScanExecutor> onClose) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.onClose = onClose;
+        this.permits = new ResizableSemaphore(concurrencyLimit);
+
+        ExecutorService virtualExecutor = requestedMode == Mode.VIRTUAL ? newVirtualThreadExecutor() : null;
+        if (virtualExecutor != null) {
+            this.mode = Mode.VIRTUAL;
+            this.delegate = virtualExecutor;
+        } else {
+            if (requestedMode == Mode.VIRTUAL) {
+                logger.warn("Virtual threads are not available on this JVM, job {} falls back to platform threads", jobId);
+            }
+            this.mode = Mode.PLATFORM;
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrencyLimit, concurrencyLimit,
+                    30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), namedThreadFactory(jobId));
+            pool.allowCoreThreadTimeOut(true);
+            this.delegate = pool;
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (mode == Mode.PLATFORM) {
+            delegate.execute(task);
+            return;
+        }
+
+        // One virtual thread per host; the semaphore caps how many actually run
+        delegate.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    public synchronized void setConcurrencyLimit(int limit) {
+        int newLimit = Math.max(1, limit);
+        if (newLimit == permits.getLimit()) {
+            return;
+        }
+
+        if (delegate instanceof ThreadPoolExecutor pool) {
+            // Core size must never exceed max size, so the order depends on direction
+            if (newLimit > pool.getMaximumPoolSize()) {
+                pool.setMaximumPoolSize(newLimit);
+                pool.setCorePoolSize(newLimit);
+            } else {
+                pool.setCorePoolSize(newLimit);
+                pool.setMaximumPoolSize(newLimit);
+            }
+        }
+        permits.setLimit(newLimit);
+        logger.debug("Job {} host concurrency set to {}", jobId, newLimit);
+    }
+
+    public int getConcurrencyLimit() {
+        return permits.getLimit();
+    }
+
+    public int getActiveCount() {
+        if (delegate instanceof ThreadPoolExecutor pool) {
+            return pool.getActiveCount();
+        }
+        return permits.getInUse();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    @Override
+    public void close() {
+        onClose.accept(this);
+        delegate.shutdown();
+    }
+
+    private static ThreadFactory namedThreadFactory(String jobId) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "scan-" + jobId + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Looked up reflectively so the project still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
\ No newline at end of file
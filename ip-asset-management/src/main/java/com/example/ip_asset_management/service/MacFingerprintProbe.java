@@ -0,0 +1,93 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.AssetType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fills in model, manufacturer and a rough macOS version for hosts identified as Macs, from
+ * the hostname and the Mac specific ports the scan already probed.
+ */
+@Component
+public class MacFingerprintProbe implements HostProbe {
+    private static final double MAC_CONFIDENCE = 0.6;
+    private static final double VERSION_GUESS_CONFIDENCE = 0.2;
+
+    @Override
+    public String getName() {
+        return "mac-fingerprint";
+    }
+
+    @Override
+    public Set<String> getProducedFields() {
+        return Set.of(HostProbeContext.OPERATING_SYSTEM, HostProbeContext.OS_VERSION,
+                HostProbeContext.MANUFACTURER, HostProbeContext.MODEL);
+    }
+
+    @Override
+    public boolean isApplicable(HostProbeContext context) {
+        return context.getAssetType() == AssetType.MAC;
+    }
+
+    @Override
+    public long estimateCostMillis(HostProbeContext context) {
+        return 0;
+    }
+
+    @Override
+    public void run(HostProbeContext context) {
+        Map<String, Object> collectedData = context.getCollectedData();
+        Map<String, Boolean> openPorts = context.getOpenPorts();
+        String hostLower = context.getHostname().toLowerCase();
+
+        // Enhanced Mac detection
+        collectedData.put("osFamily", "macOS");
+        context.determine(HostProbeContext.OPERATING_SYSTEM, "macOS", MAC_CONFIDENCE);
+
+        // Mac specific ports, already probed with the rest of the host
+        boolean sshOpen = context.isPortOpen(22);
+        openPorts.put("SSH", sshOpen);
+        openPorts.put("AirPlay", context.isPortOpen(7000));
+        openPorts.put("Bonjour", context.isPortOpen(5353));
+
+        // Mac-specific data inferences
+        String macType = "Mac";
+        if (hostLower.contains("macbook")) {
+            macType = "MacBook";
+        } else if (hostLower.contains("imac")) {
+            macType = "iMac";
+        } else if (hostLower.contains("mac mini")) {
+            macType = "Mac Mini";
+        } else if (hostLower.contains("macpro")) {
+            macType = "Mac Pro";
+        }
+        collectedData.put("macType", macType);
+        context.determine(HostProbeContext.MODEL, macType, MAC_CONFIDENCE);
+
+        // Attempt to gather macOS version from network response timing
+        // This is a heuristic - different macOS versions have different response patterns
+        if (sshOpen) {
+            // Connect time of the scan's SSH probe
+            long sshResponseTime = context.getProbeResults().get(22).getRttMillis();
+
+            // Simple heuristic based on connection timing profiles (ms)
+            String osVersion;
+            if (sshResponseTime < 20) {
+                collectedData.put("osVersionGuess", "Likely macOS 14 (Sonoma)");
+                osVersion = "macOS 14 (Sonoma) - Estimated";
+            } else if (sshResponseTime < 30) {
+                collectedData.put("osVersionGuess", "Likely macOS 13 (Ventura)");
+                osVersion = "macOS 13 (Ventura) - Estimated";
+            } else {
+                collectedData.put("osVersionGuess", "Likely macOS 12 or earlier");
+                osVersion = "macOS 12 or earlier - Estimated";
+            }
+            context.determine(HostProbeContext.OS_VERSION, osVersion, VERSION_GUESS_CONFIDENCE);
+        }
+
+        // Set manufacturer to Apple for all Macs
+        context.determine(HostProbeContext.MANUFACTURER, "Apple Inc.", MAC_CONFIDENCE);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,395 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.PortState;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking TCP connect prober. A handful of selector threads keep thousands of
+ * connects in flight, so probing cost is bounded by network RTT instead of thread count.
+ * Only what the network answers decides a port's state: a reset is closed, silence or an
+ * unreachable destination is filtered. Probes that fail on this side, for example when the
+ * process runs out of file descriptors or local ports, end as errors and are counted, so they
+ * never pass for filtered ports or feed the round-trip and rate estimates.
+ */
+@Component
+public class NioPortProber {
+    private static final Logger logger = LoggerFactory.getLogger(NioPortProber.class);
+
+    @Autowired
+    private RttEstimator rttEstimator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.probe.selector-threads:2}")
+    private int selectorThreads;
+
+    @Value("${scan.probe.max-in-flight:4096}")
+    private int maxInFlight;
+
+    private ProbeLoop[] loops;
+    private Semaphore inFlight;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+
+    @PostConstruct
+    public void initialize() throws IOException {
+        inFlight = new Semaphore(maxInFlight);
+        loops = new ProbeLoop[Math.max(1, selectorThreads)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new ProbeLoop(Selector.open());
+            Thread thread = new Thread(loops[i], "port-probe-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        logger.info("Port prober started with {} selector threads and {} max in-flight probes",
+                    loops.length, maxInFlight);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        for (ProbeLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * Starts a TCP connect probe. Blocks only if the global in-flight limit is reached.
+     *
+     * @param ip Target IP address
+     * @param port Target port
+     * @param timeoutMillis Deadline for the connect, after which the port is reported as filtered
+     * @return A future completed with the probe outcome; it never completes exceptionally
+     */
+    public CompletableFuture<ProbeResult> probe(String ip, int port, long timeoutMillis) {
+        return probe(ip, port, timeoutMillis, null);
+    }
+
+    /**
+     * Starts a TCP connect probe paced by a job's rate limiter, which also learns its outcome.
+     * Blocks while the limiter or the global in-flight limit holds it back.
+     */
+    public CompletableFuture<ProbeResult> probe(String ip, int port, long timeoutMillis, ProbeRateLimiter limiter) {
+        if (!acquireSlots(ip, 1, limiter)) {
+            return CompletableFuture.completedFuture(new ProbeResult(port, PortState.ERROR, timeoutMillis));
+        }
+        return start(ip, port, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), limiter);
+    }
+
+    /**
+     * Probes all given ports of a host concurrently and waits for every outcome. The ports
+     * share one deadline, so a host that drops everything costs a single timeout.
+     */
+    public Map<Integer, ProbeResult> probeAll(String ip, Collection<Integer> ports, long timeoutMillis) {
+        return probeAll(ip, ports, timeoutMillis, null);
+    }
+
+    /**
+     * Like {@link #probeAll(String, Collection, long)}, paced by a job's rate limiter. Tokens and
+     * in-flight slots for all ports are taken before the deadline starts, so waiting for them
+     * never eats into the host's timeout.
+     */
+    public Map<Integer, ProbeResult> probeAll(String ip, Collection<Integer> ports, long timeoutMillis,
+                                              ProbeRateLimiter limiter) {
+        Map<Integer, ProbeResult> results = new LinkedHashMap<>();
+        if (!acquireSlots(ip, ports.size(), limiter)) {
+            for (Integer port : ports) {
+                results.put(port, new ProbeResult(port, PortState.ERROR, timeoutMillis));
+            }
+            return results;
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Map<Integer, CompletableFuture<ProbeResult>> futures = new LinkedHashMap<>();
+        for (Integer port : ports) {
+            futures.put(port, start(ip, port, deadlineNanos, limiter));
+        }
+        futures.forEach((port, future) -> results.put(port, future.join()));
+        return results;
+    }
+
+    private boolean acquireSlots(String ip, int probes, ProbeRateLimiter limiter) {
+        if (probes > maxInFlight) {
+            throw new IllegalArgumentException("Cannot probe " + probes + " ports at once, the limit is " + maxInFlight);
+        }
+        try {
+            if (limiter != null) {
+                limiter.acquire(ip, probes);
+            }
+            inFlight.acquire(probes);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Opens the connect for a probe whose in-flight slot is already held. The clock starts
+     * here, so time spent waiting for a slot never counts as round-trip time.
+     */
+    private CompletableFuture<ProbeResult> start(String ip, int port, long deadlineNanos, ProbeRateLimiter limiter) {
+        Probe probe = new Probe(port, deadlineNanos);
+        probe.future.whenComplete((result, error) -> {
+            inFlight.release();
+            if (result == null) {
+                return;
+            }
+            if (result.getState() == PortState.ERROR) {
+                // Nothing was learned about the target
+                return;
+            }
+            // Only answers measure the path; a timeout would just echo the deadline
+            if (result.getState() != PortState.FILTERED) {
+                rttEstimator.recordSample(ip, probe.rttNanos);
+            }
+            if (limiter != null) {
+                limiter.record(ip, result.getState());
+            }
+        });
+
+        try {
+            SocketChannel channel = SocketChannel.open();
+            probe.channel = channel;
+            channel.configureBlocking(false);
+            if (channel.connect(new InetSocketAddress(ip, port))) {
+                probe.complete(PortState.OPEN);
+                return probe.future;
+            }
+        } catch (ConnectException e) {
+            probe.complete(PortState.CLOSED);
+            return probe.future;
+        } catch (NoRouteToHostException | UnresolvedAddressException e) {
+            probe.complete(PortState.FILTERED);
+            return probe.future;
+        } catch (Exception e) {
+            // Opening or binding the socket failed here, the target was never contacted
+            probe.fail(e);
+            return probe.future;
+        }
+
+        loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].submit(probe);
+        return probe.future;
+    }
+
+    /**
+     * Blocking convenience for callers that only need to know whether a port accepts connections.
+     */
+    public boolean isPortOpen(String ip, int port, long timeoutMillis) {
+        return probe(ip, port, timeoutMillis).join().getState() == PortState.OPEN;
+    }
+
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Outcome of a single connect probe.
+     */
+    public static final class ProbeResult {
+        private final int port;
+        private final PortState state;
+        private final long rttMillis;
+
+        public ProbeResult(int port, PortState state, long rttMillis) {
+            this.port = port;
+            this.state = state;
+            this.rttMillis = rttMillis;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public PortState getState() {
+            return state;
+        }
+
+        public long getRttMillis() {
+            return rttMillis;
+        }
+
+        public boolean isOpen() {
+            return state == PortState.OPEN;
+        }
+    }
+
+    private final class Probe {
+        private final int port;
+        private final long startNanos = System.nanoTime();
+        private final long deadlineNanos;
+        private volatile long rttNanos;
+        private final CompletableFuture<ProbeResult> future = new CompletableFuture<>();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private SocketChannel channel;
+        private SelectionKey key;
+
+        private Probe(int port, long deadlineNanos) {
+            this.port = port;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        private void complete(PortState state) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing useful to do with a failed close
+                }
+            }
+            rttNanos = System.nanoTime() - startNanos;
+            future.complete(new ProbeResult(port, state, TimeUnit.NANOSECONDS.toMillis(rttNanos)));
+        }
+
+        private void fail(Exception cause) {
+            meterRegistry.counter("scan.probe.errors", "cause", cause.getClass().getSimpleName()).increment();
+            logger.debug("Probe of port {} failed locally: {}", port, cause.toString());
+            complete(PortState.ERROR);
+        }
+    }
+
+    /**
+     * One selector thread: registers submitted connects, completes them as they resolve
+     * and expires the ones whose deadline passed.
+     */
+    private final class ProbeLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Probe> pending = new ConcurrentLinkedQueue<>();
+        private final PriorityQueue<Probe> deadlines =
+                new PriorityQueue<>((a, b) -> Long.compare(a.deadlineNanos, b.deadlineNanos));
+        private volatile boolean running = true;
+
+        private ProbeLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        private void submit(Probe probe) {
+            pending.add(probe);
+            selector.wakeup();
+        }
+
+        private void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    registerPending();
+                    selector.select(nextSelectTimeout());
+
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        finishConnect((Probe) key.attachment());
+                    }
+
+                    expireOverdue();
+                } catch (Exception e) {
+                    logger.warn("Port probe loop error: {}", e.getMessage());
+                }
+            }
+
+            // Fail whatever is still outstanding so no caller waits forever
+            Probe probe;
+            while ((probe = pending.poll()) != null) {
+                probe.complete(PortState.ERROR);
+            }
+            while ((probe = deadlines.poll()) != null) {
+                probe.complete(PortState.ERROR);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // Shutting down anyway
+            }
+        }
+
+        private void registerPending() {
+            Probe probe;
+            while ((probe = pending.poll()) != null) {
+                try {
+                    probe.key = probe.channel.register(selector, SelectionKey.OP_CONNECT, probe);
+                    deadlines.add(probe);
+                } catch (Exception e) {
+                    probe.fail(e);
+                }
+            }
+        }
+
+        private long nextSelectTimeout() {
+            Probe next;
+            while ((next = deadlines.peek()) != null && next.done.get()) {
+                deadlines.poll();
+            }
+            if (next == null) {
+                return 0; // Block until woken by a new submission
+            }
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(next.deadlineNanos - System.nanoTime());
+            return Math.max(1, waitMillis);
+        }
+
+        private void finishConnect(Probe probe) {
+            try {
+                if (probe.channel.finishConnect()) {
+                    probe.complete(PortState.OPEN);
+                }
+            } catch (ConnectException e) {
+                // Connection refused means the host answered with a reset
+                probe.complete(PortState.CLOSED);
+            } catch (BindException e) {
+                // No local address or port left to connect from
+                probe.fail(e);
+            } catch (IOException e) {
+                // No route, host unreachable and similar ICMP-driven failures
+                probe.complete(PortState.FILTERED);
+            }
+        }
+
+        private void expireOverdue() {
+            long now = System.nanoTime();
+            Probe next;
+            while ((next = deadlines.peek()) != null && (next.done.get() || next.deadlineNanos - now <= 0)) {
+                deadlines.poll();
+                next.complete(PortState.FILTERED);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.AssetType;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Guesses asset type and OS from the hostname and the ports the scan found open. Costs
+ * nothing, but hostnames and port sets are weak evidence, so its answers are never
+ * conclusive on their own.
+ */
+@Component
+public class PortFingerprintProbe implements HostProbe {
+    private static final double HOSTNAME_CONFIDENCE = 0.6;
+    private static final double PORT_CONFIDENCE = 0.4;
+
+    @Override
+    public String getName() {
+        return "port-fingerprint";
+    }
+
+    @Override
+    public Set<String> getProducedFields() {
+        return Set.of(HostProbeContext.ASSET_TYPE, HostProbeContext.OPERATING_SYSTEM);
+    }
+
+    @Override
+    public boolean isApplicable(HostProbeContext context) {
+        return true;
+    }
+
+    @Override
+    public long estimateCostMillis(HostProbeContext context) {
+        return 0;
+    }
+
+    @Override
+    public void run(HostProbeContext context) {
+        determineAssetType(context);
+        determineOperatingSystem(context);
+    }
+
+    /**
+     * Determine asset type based on hostname and open ports
+     */
+    private void determineAssetType(HostProbeContext context) {
+        String hostLower = context.getHostname().toLowerCase();
+        Map<String, Boolean> openPorts = context.getOpenPorts();
+
+        // Check based on hostname
+        AssetType assetType = AssetType.UNKNOWN;
+        if (hostLower.contains("win") || hostLower.contains("desktop") ||
+                hostLower.contains("laptop") || Boolean.TRUE.equals(openPorts.get("RDP"))) {
+            assetType = AssetType.WINDOWS;
+        } else if (hostLower.contains("linux") || hostLower.contains("ubuntu") ||
+                hostLower.contains("debian") || hostLower.contains("cent")) {
+            assetType = AssetType.LINUX;
+        } else if (hostLower.contains("mac") || hostLower.contains("apple") ||
+                hostLower.contains("mbp") || hostLower.contains("imac")) {
+            assetType = AssetType.MAC;
+        } else if (hostLower.contains("cisco") || hostLower.contains("router") ||
+                hostLower.contains("switch") || hostLower.contains("gateway") ||
+                hostLower.contains("access-point")) {
+            assetType = AssetType.NETWORK_DEVICE;
+        }
+        if (assetType != AssetType.UNKNOWN) {
+            context.determine(HostProbeContext.ASSET_TYPE, assetType, HOSTNAME_CONFIDENCE);
+            return;
+        }
+
+        // Check based on ports
+        if (Boolean.TRUE.equals(openPorts.get("SSH")) && !Boolean.TRUE.equals(openPorts.get("SMB"))) {
+            // SSH but no SMB often indicates Linux/Unix
+            context.determine(HostProbeContext.ASSET_TYPE, AssetType.LINUX, PORT_CONFIDENCE);
+        }
+    }
+
+    /**
+     * Determine OS based on hostname and open ports
+     */
+    private void determineOperatingSystem(HostProbeContext context) {
+        String hostLower = context.getHostname().toLowerCase();
+        Map<String, Boolean> openPorts = context.getOpenPorts();
+
+        String operatingSystem = null;
+        double confidence = HOSTNAME_CONFIDENCE;
+        if (hostLower.contains("win")) {
+            operatingSystem = "Windows";
+        } else if (hostLower.contains("ubuntu")) {
+            operatingSystem = "Ubuntu Linux";
+        } else if (hostLower.contains("debian")) {
+            operatingSystem = "Debian Linux";
+        } else if (hostLower.contains("cent")) {
+            operatingSystem = "CentOS Linux";
+        } else if (hostLower.contains("fedora")) {
+            operatingSystem = "Fedora Linux";
+        } else if (hostLower.contains("red hat") || hostLower.contains("redhat")) {
+            operatingSystem = "Red Hat Linux";
+        } else if (hostLower.contains("linux")) {
+            operatingSystem = "Linux";
+        } else if (hostLower.contains("mac") || hostLower.contains("apple") ||
+                hostLower.contains("mbp") || hostLower.contains("imac")) {
+            operatingSystem = "macOS";
+        } else if (Boolean.TRUE.equals(openPorts.get("RDP"))) {
+            operatingSystem = "Windows";
+            confidence = PORT_CONFIDENCE;
+        } else if (Boolean.TRUE.equals(openPorts.get("SSH")) && !Boolean.TRUE.equals(openPorts.get("SMB"))) {
+            operatingSystem = "Unix/Linux";
+            confidence = PORT_CONFIDENCE;
+        }
+
+        context.determine(HostProbeContext.OPERATING_SYSTEM, operatingSystem, confidence);
+    }
+}
\ No newline at end of file
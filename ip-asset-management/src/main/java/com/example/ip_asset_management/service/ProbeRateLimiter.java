@@ -0,0 +1,139 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.PortState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-job probe rate limit for each destination /24. Every subnet has a token bucket whose
+ * rate is steered by AIMD: after each window of outcomes the rate grows by a fixed step,
+ * unless the share of timeouts or resets jumped above its usual level for that subnet, in
+ * which case the rate is cut by a factor. Comparing against a smoothed baseline rather than
+ * an absolute level keeps sparse or firewalled subnets, which always time out a lot, from
+ * being mistaken for congested ones.
+ */
+public class ProbeRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(ProbeRateLimiter.class);
+    private static final double BASELINE_WEIGHT = 0.1;
+
+    private final String jobId;
+    private final double initialRate;
+    private final double minRate;
+    private final double maxRate;
+    private final double additiveIncrease;
+    private final double decreaseFactor;
+    private final double spikeThreshold;
+    private final int window;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    ProbeRateLimiter(String jobId, double initialRate, double minRate, double maxRate, double additiveIncrease,
+                     double decreaseFactor, double spikeThreshold, int window) {
+        this.jobId = jobId;
+        this.minRate = minRate;
+        this.maxRate = Math.max(minRate, maxRate);
+        this.initialRate = Math.max(minRate, Math.min(this.maxRate, initialRate));
+        this.additiveIncrease = additiveIncrease;
+        this.decreaseFactor = decreaseFactor;
+        this.spikeThreshold = spikeThreshold;
+        this.window = window;
+    }
+
+    /**
+     * Takes tokens for probes to the target's subnet, sleeping until the bucket allows them.
+     */
+    public void acquire(String target, int probes) throws InterruptedException {
+        long waitNanos = bucket(target).reserve(probes, System.nanoTime());
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Feeds the outcome of a probe back into the rate of the target's subnet.
+     */
+    public void record(String target, PortState state) {
+        bucket(target).record(state);
+    }
+
+    /**
+     * Current rate for the target's subnet, in probes per second.
+     */
+    public double getRate(String target) {
+        Bucket bucket = buckets.get(RttEstimator.subnetKey(target));
+        return bucket != null ? bucket.rate : initialRate;
+    }
+
+    private Bucket bucket(String target) {
+        return buckets.computeIfAbsent(RttEstimator.subnetKey(target), Bucket::new);
+    }
+
+    private final class Bucket {
+        private final String subnet;
+        private volatile double rate = initialRate;
+        private double tokens = 1;
+        private long lastRefill = System.nanoTime();
+
+        private int outcomes;
+        private int timeouts;
+        private int resets;
+        private double timeoutBaseline = -1;
+        private double resetBaseline = -1;
+
+        private Bucket(String subnet) {
+            this.subnet = subnet;
+        }
+
+        /**
+         * Reserves tokens, going into debt if needed, and returns how long the caller has to
+         * wait until the debt is paid off.
+         */
+        private synchronized long reserve(int probes, long now) {
+            // A small burst allowance, so an idle subnet is not throttled on its first few probes
+            double burst = Math.max(1, rate / 10);
+            tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1e9);
+            lastRefill = now;
+            tokens -= probes;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        }
+
+        private synchronized void record(PortState state) {
+            outcomes++;
+            if (state == PortState.FILTERED) {
+                timeouts++;
+            } else if (state == PortState.CLOSED) {
+                resets++;
+            }
+            if (outcomes < window) {
+                return;
+            }
+
+            double timeoutRatio = (double) timeouts / outcomes;
+            double resetRatio = (double) resets / outcomes;
+            outcomes = 0;
+            timeouts = 0;
+            resets = 0;
+
+            if (timeoutBaseline < 0) {
+                // First window only establishes what is normal for this subnet
+                timeoutBaseline = timeoutRatio;
+                resetBaseline = resetRatio;
+                return;
+            }
+
+            if (timeoutRatio > timeoutBaseline + spikeThreshold || resetRatio > resetBaseline + spikeThreshold) {
+                rate = Math.max(minRate, rate * decreaseFactor);
+                logger.debug("Job {} backing off {} to {} probes/s (timeouts {}, resets {})",
+                             jobId, subnet, Math.round(rate), timeoutRatio, resetRatio);
+            } else {
+                rate = Math.min(maxRate, rate + additiveIncrease);
+            }
+            // Baselines follow slowly, so a lasting change eventually stops counting as a spike
+            timeoutBaseline += BASELINE_WEIGHT * (timeoutRatio - timeoutBaseline);
+            resetBaseline += BASELINE_WEIGHT * (resetRatio - resetBaseline);
+        }
+    }
+}
\ No newline at end of file
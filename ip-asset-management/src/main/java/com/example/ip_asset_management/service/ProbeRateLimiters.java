@@ -0,0 +1,46 @@
+package com.example.ip_asset_management.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the per-job {@link ProbeRateLimiter}s from the configured AIMD settings; a job may
+ * override the floor and ceiling of its rates.
+ */
+@Component
+public class ProbeRateLimiters {
+
+    @Value("${scan.probe.rate.initial:100}")
+    private double initialRate;
+
+    @Value("${scan.probe.rate.min:5}")
+    private double minRate;
+
+    @Value("${scan.probe.rate.max:1000}")
+    private double maxRate;
+
+    @Value("${scan.probe.rate.additive-increase:10}")
+    private double additiveIncrease;
+
+    @Value("${scan.probe.rate.decrease-factor:0.5}")
+    private double decreaseFactor;
+
+    @Value("${scan.probe.rate.spike-threshold:0.2}")
+    private double spikeThreshold;
+
+    @Value("${scan.probe.rate.window:50}")
+    private int rateWindow;
+
+    /**
+     * Creates the per-subnet rate limiter for one job.
+     *
+     * @param maxRate Ceiling in probes per second per /24, or null for the configured default
+     * @param minRate Floor in probes per second per /24, or null for the configured default
+     */
+    public ProbeRateLimiter newRateLimiter(String jobId, Integer maxRate, Integer minRate) {
+        return new ProbeRateLimiter(jobId, initialRate,
+                minRate != null ? minRate : this.minRate,
+                maxRate != null ? maxRate : this.maxRate,
+                additiveIncrease, decreaseFactor, spikeThreshold, rateWindow);
+    }
+}
\ No newline at end of file
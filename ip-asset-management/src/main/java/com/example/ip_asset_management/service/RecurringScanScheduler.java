@@ -0,0 +1,148 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.repository.ScanJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Queues runs of recurring scan jobs when their cron schedule comes due; the
+ * {@link ScanAdmissionQueue} starts them as capacity allows. Each run time gets a random
+ * delay of up to the maximum jitter, so jobs sharing a schedule do not all start at once. A
+ * job that is still queued or running when its next run comes due skips that run. Jobs are
+ * claimed with a conditional update, so a due run is queued once even with several instances
+ * polling.
+ */
+@Component
+public class RecurringScanScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RecurringScanScheduler.class);
+    private static final Set<String> MACROS = Set.of("yearly", "annually", "monthly", "weekly", "daily", "midnight", "hourly");
+    private static final List<ScanJobStatus> ACTIVE =
+            List.of(ScanJobStatus.QUEUED, ScanJobStatus.SCHEDULED, ScanJobStatus.RUNNING);
+
+    @Autowired
+    private ScanJobRepository scanJobRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ScanAdmissionQueue admissionQueue;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.scheduler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${scan.scheduler.max-jitter-seconds:300}")
+    private long maxJitterSeconds;
+
+    @Scheduled(fixedDelayString = "${scan.scheduler.poll-interval-ms:30000}",
+               initialDelayString = "${scan.scheduler.poll-interval-ms:30000}")
+    public void launchDueJobs() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<ScanJob> due = scanJobRepository.findByRecurringAndNextRunAtBefore(true, now);
+        if (due.isEmpty()) {
+            return;
+        }
+        // Longest overdue first
+        due.sort(Comparator.comparing(ScanJob::getNextRunAt));
+
+        boolean queued = false;
+        for (ScanJob job : due) {
+            LocalDateTime next = nextRunAfter(job, now);
+            if (ACTIVE.contains(job.getStatus())) {
+                // Still busy with the previous run; skip this one rather than queueing it up
+                if (advance(job, next, true)) {
+                    meterRegistry.counter("scan.scheduler.skipped").increment();
+                    logger.info("Skipping run of scan job {}, the previous run is still in progress", job.getId());
+                }
+                continue;
+            }
+            if (advance(job, next, false)) {
+                queued = true;
+                meterRegistry.counter("scan.scheduler.queued").increment();
+                logger.info("Queueing scheduled run of scan job {}, next run at {}", job.getId(), next);
+            }
+        }
+        if (queued) {
+            admissionQueue.admit();
+        }
+    }
+
+    /**
+     * Next run time of a schedule after the given time, jitter included.
+     *
+     * @throws IllegalArgumentException if the schedule is not a valid cron expression
+     */
+    public LocalDateTime nextRunAt(String schedule, LocalDateTime after) {
+        LocalDateTime next = parse(schedule).next(after);
+        if (next == null) {
+            return null;
+        }
+        long jitter = maxJitterSeconds > 0 ? ThreadLocalRandom.current().nextLong(maxJitterSeconds + 1) : 0;
+        return next.plusSeconds(jitter);
+    }
+
+    /**
+     * Parses standard five-field cron expressions, Spring's six-field ones with seconds, and
+     * macros such as {@code daily}, with or without the leading {@code @}.
+     */
+    static CronExpression parse(String schedule) {
+        if (schedule == null || schedule.isBlank()) {
+            throw new IllegalArgumentException("Schedule is empty");
+        }
+        String expression = schedule.trim();
+        if (MACROS.contains(expression.toLowerCase())) {
+            expression = "@" + expression.toLowerCase();
+        } else if (expression.split("\\s+").length == 5) {
+            expression = "0 " + expression;
+        }
+        return CronExpression.parse(expression);
+    }
+
+    private LocalDateTime nextRunAfter(ScanJob job, LocalDateTime now) {
+        try {
+            return nextRunAt(job.getSchedule(), now);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Scan job {} has an invalid schedule '{}', it will not recur: {}",
+                        job.getId(), job.getSchedule(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Moves a due job to its next run time, only if no other poller got to it first. When
+     * launching, the job is also queued for admission.
+     */
+    private boolean advance(ScanJob job, LocalDateTime next, boolean skipping) {
+        Criteria criteria = Criteria.where("id").is(job.getId()).and("nextRunAt").is(job.getNextRunAt());
+        criteria = skipping ? criteria.and("status").in(ACTIVE) : criteria.and("status").nin(ACTIVE);
+        Update update = next != null ? Update.update("nextRunAt", next) : new Update().unset("nextRunAt");
+        if (!skipping) {
+            update.set("status", ScanJobStatus.QUEUED).set("queuedAt", LocalDateTime.now());
+        }
+        return mongoTemplate.updateFirst(Query.query(criteria), update, ScanJob.class).getModifiedCount() > 0;
+    }
+}
\ No newline at end of file
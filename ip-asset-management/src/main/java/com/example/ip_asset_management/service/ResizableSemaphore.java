@@ -0,0 +1,34 @@
+package com.example.ip_asset_management.service;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Semaphore whose total number of permits can be changed while permits are held.
+ * Shrinking takes effect as holders release their permits.
+ */
+public class ResizableSemaphore extends Semaphore {
+    private int limit;
+
+    public ResizableSemaphore(int limit) {
+        super(limit);
+        this.limit = limit;
+    }
+
+    public synchronized void setLimit(int newLimit) {
+        int delta = newLimit - limit;
+        if (delta > 0) {
+            release(delta);
+        } else if (delta < 0) {
+            reducePermits(-delta);
+        }
+        limit = newLimit;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public int getInUse() {
+        return getLimit() - availablePermits();
+    }
+}
\ No newline at end of file
@@ -1,39 +1,104 @@
 package com.example.ip_asset_management.service;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Tunes how many hosts are scanned concurrently. Host scans are I/O-bound, so the controller
+ * hill-climbs on measured throughput (completed hosts per second): it keeps moving the limit
+ * in one direction while throughput improves and turns around when it drops. When throughput
+ * is flat but host latency has risen well above its baseline, the extra concurrency is only
+ * queueing, so the limit is lowered. Memory pressure and a saturated CPU still veto growth.
+ * The limit is shared by the jobs running on this node: each user gets a part proportional
+ * to their weight, split evenly across their jobs, so one user's large sweep cannot take the
+ * threads another user's small scan needs.
+ */
 @Component
 public class ResourceAwareExecutionController {
     private static final Logger logger = LoggerFactory.getLogger(ResourceAwareExecutionController.class);
+    private static final double LATENCY_GRADIENT_LIMIT = 0.5; // Latency 50% above baseline means saturation
+    private static final double BASELINE_DRIFT = 1.05; // Lets the latency baseline follow a slower network
     
     private final ScheduledExecutorService monitor = Executors.newSingleThreadScheduledExecutor();
     private final AtomicInteger optimalThreadCount = new AtomicInteger(4); // Default starting point
     private final AtomicInteger maxScanBatchSize = new AtomicInteger(100);
+    private final Set<JobScanExecutor> jobExecutors = ConcurrentHashMap.newKeySet();
+    
+    // Host scans finished since the last adjustment
+    private final LongAdder completedHosts = new LongAdder();
+    private final LongAdder hostLatencyNanos = new LongAdder();
     
     @Autowired
     private ThreadPoolTaskExecutor scanTaskExecutor;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private UserShareWeights userShareWeights;
+    
+    @Value("${scan.executor.mode:platform}")
+    private String executorMode;
+    
+    @Value("${scan.executor.max-concurrency:64}")
+    private int maxHostConcurrency;
+    
+    @Value("${scan.autotune.min-concurrency:2}")
+    private int minHostConcurrency;
+    
+    @Value("${scan.autotune.interval-ms:5000}")
+    private long adjustIntervalMs;
+    
+    @Value("${scan.autotune.tolerance:0.05}")
+    private double tolerance;
+    
+    // Hill-climbing state, only touched by the monitor thread
+    private int direction = 1;
+    private double lastThroughput = -1;
+    private double baselineLatencyMillis = -1;
+    private long lastAdjustNanos = System.nanoTime();
+    private int memoryBatchCap;
+    
+    // Last measurements, exported as gauges
+    private volatile double throughput;
+    private volatile double latencyMillis;
+    
     @PostConstruct
     public void initialize() {
-        // Start background resource monitoring
-        monitor.scheduleAtFixedRate(this::adjustBasedOnSystemResources, 0, 5, TimeUnit.SECONDS);
-        
         // Initial calibration based on system specs
         calibrateToSystem();
+        
+        Gauge.builder("scan.autotune.concurrency", optimalThreadCount, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("scan.autotune.window", maxScanBatchSize, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("scan.autotune.throughput", this, controller -> controller.throughput)
+                .baseUnit("hosts/s").register(meterRegistry);
+        Gauge.builder("scan.autotune.latency", this, controller -> controller.latencyMillis)
+                .baseUnit("ms").register(meterRegistry);
+        
+        // Start background tuning
+        monitor.scheduleAtFixedRate(this::adjustConcurrency, adjustIntervalMs, adjustIntervalMs, TimeUnit.MILLISECONDS);
     }
     
     @PreDestroy
@@ -45,94 +110,177 @@ public class ResourceAwareExecutionController {
         // Get available processors - simple starting point for thread calculation
         int availableCores = Runtime.getRuntime().availableProcessors();
         
-        // Set initial thread count (75% of available cores)
-        optimalThreadCount.set(Math.max(2, (int)(availableCores * 0.75)));
-        
-        // Update the executor's thread counts
-        scanTaskExecutor.setCorePoolSize(optimalThreadCount.get());
-        scanTaskExecutor.setMaxPoolSize(Math.max(optimalThreadCount.get() * 2, 10));
+        // Set initial thread count (75% of available cores); tuning takes it from there
+        optimalThreadCount.set(Math.max(minHostConcurrency, (int)(availableCores * 0.75)));
         
         // Determine max memory available for the JVM
         long maxMemory = Runtime.getRuntime().maxMemory() / (1024 * 1024); // MB
         
-        // Set batch size based on available memory (very conservative initial estimate)
+        // Cap the window by available memory (very conservative estimate)
         // Each scan might use ~2MB of memory at peak
-        maxScanBatchSize.set((int)Math.min(500, maxMemory / 4));
+        memoryBatchCap = (int) Math.max(20, Math.min(1000, maxMemory / 4));
+        maxScanBatchSize.set(windowFor(optimalThreadCount.get()));
         
-        logger.info("System calibration: {} threads, batch size of {}", 
+        logger.info("System calibration: {} threads, batch size of {}",
                     optimalThreadCount.get(), maxScanBatchSize.get());
     }
     
-    private void adjustBasedOnSystemResources() {
+    /**
+     * Records a finished host scan.
+     *
+     * @param latencyNanos Time the host spent being scanned, excluding time queued before it
+     */
+    public void recordHostCompleted(long latencyNanos) {
+        completedHosts.increment();
+        hostLatencyNanos.add(latencyNanos);
+    }
+    
+    private void adjustConcurrency() {
         try {
-            // Get current CPU load (requires OperatingSystemMXBean)
-            OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
-            double cpuLoad = getSystemCpuLoad(osBean);
+            long now = System.nanoTime();
+            double seconds = (now - lastAdjustNanos) / 1e9;
+            lastAdjustNanos = now;
+            long completed = completedHosts.sumThenReset();
+            long latencySum = hostLatencyNanos.sumThenReset();
+            
+            int limit = optimalThreadCount.get();
             
-            // Get current memory usage
+            // Memory pressure overrides everything else
             long usedMemory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
-            long maxMemory = Runtime.getRuntime().maxMemory();
-            double memoryUsage = (double)usedMemory / maxMemory;
+            double memoryUsage = (double) usedMemory / Runtime.getRuntime().maxMemory();
+            if (memoryUsage > 0.85) {
+                apply(Math.max(minHostConcurrency, limit / 2), "memory");
+                lastThroughput = -1;
+                return;
+            }
             
-            // Adjust thread count based on CPU load
-            if (cpuLoad > 0.8) { // >80% CPU
-                optimalThreadCount.updateAndGet(count -> Math.max(2, count - 1));
-                maxScanBatchSize.updateAndGet(size -> Math.max(20, size / 2));
-                
-                // Update the executor
-                scanTaskExecutor.setCorePoolSize(optimalThreadCount.get());
-            } else if (cpuLoad < 0.3 && memoryUsage < 0.7) { // <30% CPU and memory ok
-                optimalThreadCount.updateAndGet(count -> 
-                    Math.min(Runtime.getRuntime().availableProcessors(), count + 1));
-                maxScanBatchSize.updateAndGet(size -> Math.min(1000, size + 20));
-                
-                // Update the executor
-                scanTaskExecutor.setCorePoolSize(optimalThreadCount.get());
-                scanTaskExecutor.setMaxPoolSize(Math.max(optimalThreadCount.get() * 2, 10));
+            if (completed == 0) {
+                // Nothing finished, so there is nothing to learn from; start over once work resumes
+                throughput = 0;
+                lastThroughput = -1;
+                record("idle");
+                return;
             }
             
-            // Adjust batch size based on memory pressure
-            if (memoryUsage > 0.8) { // >80% memory used
-                maxScanBatchSize.updateAndGet(size -> Math.max(20, size / 2));
+            throughput = completed / seconds;
+            latencyMillis = latencySum / 1e6 / completed;
+            baselineLatencyMillis = baselineLatencyMillis < 0
+                    ? latencyMillis : Math.min(latencyMillis, baselineLatencyMillis * BASELINE_DRIFT);
+            
+            if (lastThroughput > 0) {
+                double change = (throughput - lastThroughput) / lastThroughput;
+                if (change < -tolerance) {
+                    // The last step hurt, go back the other way
+                    direction = -direction;
+                } else if (change <= tolerance) {
+                    // Flat throughput: rising latency means we are past the knee
+                    direction = latencyMillis > baselineLatencyMillis * (1 + LATENCY_GRADIENT_LIMIT) ? -1 : 1;
+                }
+            }
+            lastThroughput = throughput;
+            
+            if (direction > 0 && !canGrow(limit)) {
+                record("hold");
+                return;
             }
             
-            logger.debug("Resource adjustment: CPU load={}, Memory usage={}, Threads={}, Batch size={}",
-                       cpuLoad, memoryUsage, optimalThreadCount.get(), maxScanBatchSize.get());
+            int step = Math.max(1, limit / 10);
+            int target = Math.max(minHostConcurrency, Math.min(maxHostConcurrency, limit + direction * step));
+            apply(target, target > limit ? "increase" : target < limit ? "decrease" : "hold");
+            
+            logger.debug("Concurrency tuning: {} hosts/s, latency {}ms (baseline {}ms), threads {} -> {}",
+                       Math.round(throughput), Math.round(latencyMillis), Math.round(baselineLatencyMillis), limit, target);
         } catch (Exception e) {
-            logger.warn("Error adjusting resources: {}", e.getMessage());
+            logger.warn("Error adjusting concurrency: {}", e.getMessage());
         }
     }
     
-    // Helper method to get system CPU load, implementation depends on JVM and OS
-    private double getSystemCpuLoad(OperatingSystemMXBean osBean) {
-        double loadValue = 0.5; // Default value
+    /**
+     * Growing only helps when the current limit is actually in use and the CPU has room left.
+     */
+    private boolean canGrow(int limit) {
+        boolean saturated = jobExecutors.stream()
+                .anyMatch(executor -> executor.getActiveCount() >= executor.getConcurrencyLimit());
+        if (!saturated) {
+            return false;
+        }
+        double cpuLoad = getCpuLoad();
+        return cpuLoad < 0 || cpuLoad < 0.9;
+    }
+    
+    private void apply(int limit, String decision) {
+        optimalThreadCount.set(limit);
+        maxScanBatchSize.set(windowFor(limit));
         
-        try {
-            // Try different methods through reflection
-            for (String methodName : new String[]{"getCpuLoad", "getSystemCpuLoad", "getSystemLoadAverage"}) {
-                try {
-                    Method method = osBean.getClass().getMethod(methodName);
-                    method.setAccessible(true);
-                    Object result = method.invoke(osBean);
-                    if (result instanceof Double) {
-                        double value = (Double) result;
-                        // For getSystemLoadAverage, normalize by CPU count
-                        if (methodName.equals("getSystemLoadAverage") && value > 0) {
-                            value = value / Runtime.getRuntime().availableProcessors();
-                            // Cap it at 1.0
-                            value = Math.min(value, 1.0);
-                        }
-                        return value;
-                    }
-                } catch (Exception ignored) {
-                    // Just try the next method
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("CPU load detection failed: {}", e.getMessage());
+        // Push the new shares to every running job
+        rebalance();
+        record(decision);
+    }
+    
+    /**
+     * Splits the concurrency limit across the running jobs by user weight. Every job keeps
+     * at least one thread.
+     */
+    private synchronized void rebalance() {
+        Map<String, List<JobScanExecutor>> byUser = new HashMap<>();
+        for (JobScanExecutor executor : jobExecutors) {
+            byUser.computeIfAbsent(executor.getUserId(), user -> new ArrayList<>()).add(executor);
         }
+        Map<String, Double> weights = new HashMap<>();
+        byUser.keySet().forEach(user -> weights.put(user, userShareWeights.weightOf(user)));
+        double totalWeight = weights.values().stream().mapToDouble(Double::doubleValue).sum();
         
-        return loadValue; // Return default if all else fails
+        int limit = optimalThreadCount.get();
+        for (Map.Entry<String, List<JobScanExecutor>> user : byUser.entrySet()) {
+            double userShare = limit * weights.get(user.getKey()) / totalWeight;
+            int perJob = Math.max(1, (int) (userShare / user.getValue().size()));
+            user.getValue().forEach(executor -> executor.setConcurrencyLimit(perJob));
+        }
+    }
+    
+    private void release(JobScanExecutor executor) {
+        if (jobExecutors.remove(executor)) {
+            rebalance();
+        }
+    }
+    
+    private void record(String decision) {
+        meterRegistry.counter("scan.autotune.decisions", "action", decision).increment();
+    }
+    
+    /**
+     * Hosts admitted per job: enough to keep the executor busy with a small queue.
+     */
+    private int windowFor(int limit) {
+        return Math.max(20, Math.min(memoryBatchCap, limit * 2));
+    }
+    
+    /**
+     * Recent CPU usage of the machine between 0 and 1, or -1 when the JVM cannot report it.
+     */
+    private double getCpuLoad() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) osBean).getCpuLoad();
+        }
+        return -1;
+    }
+    
+    /**
+     * Creates the executor that runs the host scans of one job. Its concurrency limit is the
+     * job's share of {@link #getOptimalThreadCount()} until the executor is closed.
+     *
+     * @param userId Owner of the job, whose share it draws from
+     */
+    public JobScanExecutor newJobExecutor(String jobId, String userId) {
+        JobScanExecutor.Mode mode = "virtual".equalsIgnoreCase(executorMode)
+                ? JobScanExecutor.Mode.VIRTUAL : JobScanExecutor.Mode.PLATFORM;
+        JobScanExecutor executor = new JobScanExecutor(jobId, userId, mode, optimalThreadCount.get(), this::release);
+        jobExecutors.add(executor);
+        rebalance();
+        logger.debug("Created {} executor for job {} with concurrency {}",
+                     executor.getMode(), jobId, executor.getConcurrencyLimit());
+        return executor;
     }
     
     public int getOptimalThreadCount() {
@@ -143,6 +291,14 @@ public class ResourceAwareExecutionController {
         return maxScanBatchSize.get();
     }
     
+    public double getThroughput() {
+        return throughput;
+    }
+    
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+    
     public ThreadPoolTaskExecutor getScanTaskExecutor() {
         return scanTaskExecutor;
     }
@@ -0,0 +1,185 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.dto.SubnetRttResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Smoothed round-trip estimates per /24 (per name for targets given by host name), kept the
+ * way TCP does for its retransmission timer (RFC 6298). Probes feed in connect times of ports
+ * that answered, and connect timeouts are derived from the estimate within configured bounds.
+ * Subnets without samples yet get the initial timeout. When hosts known to be up stop
+ * answering, the subnet's timeout is backed off by doubling until an answer comes in again
+ * (RFC 6298 section 5.5), so a path that got slower does not make every host look offline.
+ */
+@Component
+public class RttEstimator {
+    private static final double ALPHA = 1.0 / 8;
+    private static final double BETA = 1.0 / 4;
+    private static final int K = 4;
+    private static final double CLOCK_GRANULARITY_MS = 1.0;
+
+    @Value("${scan.rtt.initial-timeout-ms:1000}")
+    private long initialTimeoutMs;
+
+    @Value("${scan.rtt.min-timeout-ms:100}")
+    private long minTimeoutMs;
+
+    @Value("${scan.rtt.max-timeout-ms:3000}")
+    private long maxTimeoutMs;
+
+    @Value("${scan.rtt.max-subnets:65536}")
+    private int maxSubnets;
+
+    @Value("${scan.rtt.backoff-after:3}")
+    private int backoffAfter;
+
+    private final Map<String, SubnetEstimate> estimates = new ConcurrentHashMap<>();
+
+    /**
+     * Records the connect time of a probe that got an answer. Timed out probes must not be
+     * fed in, their duration says nothing about the path.
+     */
+    public void recordSample(String target, long rttNanos) {
+        String key = subnetKey(target);
+        SubnetEstimate estimate = estimates.get(key);
+        if (estimate == null) {
+            if (estimates.size() >= maxSubnets) {
+                return; // Table full, new subnets keep using the initial timeout
+            }
+            estimate = estimates.computeIfAbsent(key, k -> new SubnetEstimate(k, networkOf(target)));
+        }
+        estimate.update(rttNanos / 1_000_000.0);
+    }
+
+    /**
+     * Records that a host known to be up, for example from the discovery sweep, answered
+     * none of its probes within the subnet's timeout. After enough of these in a row without
+     * an answer in between, the timeout is doubled; the next sample clears the backoff.
+     * Subnets without an estimate already wait the initial timeout and are left alone.
+     */
+    public void recordTimeout(String target) {
+        SubnetEstimate estimate = estimates.get(subnetKey(target));
+        if (estimate != null) {
+            estimate.timedOut();
+        }
+    }
+
+    /**
+     * Connect timeout to use for a target, in milliseconds.
+     */
+    public long timeoutFor(String target) {
+        SubnetEstimate estimate = estimates.get(subnetKey(target));
+        if (estimate == null) {
+            return initialTimeoutMs;
+        }
+        return estimate.timeoutMillis();
+    }
+
+    /**
+     * Current estimates of the subnets that contain targets of the given set.
+     */
+    public List<SubnetRttResponse> getEstimates(ScanTargetSet targets) {
+        Set<String> hostnames = new HashSet<>();
+        for (String hostname : targets.getHostnames()) {
+            hostnames.add(hostname.toLowerCase(Locale.ROOT));
+        }
+
+        List<SubnetRttResponse> responses = new ArrayList<>();
+        for (SubnetEstimate estimate : estimates.values()) {
+            boolean relevant = estimate.network >= 0
+                    ? targets.intersects(estimate.network, estimate.network + 255)
+                    : hostnames.contains(estimate.key);
+            if (relevant) {
+                responses.add(estimate.toResponse());
+            }
+        }
+        responses.sort((a, b) -> a.getSubnet().compareTo(b.getSubnet()));
+        return responses;
+    }
+
+    /**
+     * Key the estimates are kept under: the /24 of an IPv4 literal, or the host name itself.
+     */
+    static String subnetKey(String target) {
+        long network = networkOf(target);
+        if (network < 0) {
+            return target.toLowerCase(Locale.ROOT);
+        }
+        return ScanTargetSet.toDottedQuad((int) network) + "/24";
+    }
+
+    /**
+     * Unsigned /24 network address of an IPv4 literal, or -1 for host names.
+     */
+    private static long networkOf(String target) {
+        try {
+            return ScanTargetSet.parseIpv4(target) & 0xFFFFFF00L;
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private final class SubnetEstimate {
+        private final String key;
+        private final long network;
+        private double srtt;
+        private double rttVar;
+        private long samples;
+        private int silentHosts; // Live hosts without an answer since the last sample or backoff
+        private int backoffs;
+
+        private SubnetEstimate(String key, long network) {
+            this.key = key;
+            this.network = network;
+        }
+
+        private synchronized void update(double rttMillis) {
+            if (samples == 0) {
+                srtt = rttMillis;
+                rttVar = rttMillis / 2;
+            } else {
+                rttVar = (1 - BETA) * rttVar + BETA * Math.abs(srtt - rttMillis);
+                srtt = (1 - ALPHA) * srtt + ALPHA * rttMillis;
+            }
+            samples++;
+            silentHosts = 0;
+            backoffs = 0;
+        }
+
+        private synchronized void timedOut() {
+            if (++silentHosts < backoffAfter) {
+                return;
+            }
+            silentHosts = 0;
+            // Doubling stops once the timeout is at its maximum
+            if (timeoutMillis() < maxTimeoutMs) {
+                backoffs++;
+            }
+        }
+
+        private synchronized long timeoutMillis() {
+            double rto = (srtt + Math.max(CLOCK_GRANULARITY_MS, K * rttVar)) * (1L << backoffs);
+            return Math.max(minTimeoutMs, Math.min(maxTimeoutMs, (long) Math.ceil(rto)));
+        }
+
+        private synchronized SubnetRttResponse toResponse() {
+            SubnetRttResponse response = new SubnetRttResponse();
+            response.setSubnet(key);
+            response.setSmoothedRttMillis(srtt);
+            response.setRttVarianceMillis(rttVar);
+            response.setTimeoutMillis(timeoutMillis());
+            response.setSamples(samples);
+            response.setBackoffs(backoffs);
+            return response;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.model.ScanPriority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission of scan jobs. Manual and scheduled runs are queued as QUEUED jobs and admitted
+ * while fewer than the configured number of jobs are in flight. The next job is the one with
+ * the highest priority; among equals, the user with the fewest jobs in flight relative to
+ * their weight goes first, then the job that waited longest. Small jobs get a few slots on
+ * top of the limit, so a quick check never waits for a large sweep to finish. The queue
+ * lives in the job documents, so every node sees and admits from the same queue; a node
+ * counts the jobs in flight again after admitting one and takes its admission back if
+ * another node filled the last slot meanwhile.
+ */
+@Component
+public class ScanAdmissionQueue {
+    private static final Logger logger = LoggerFactory.getLogger(ScanAdmissionQueue.class);
+    private static final List<ScanJobStatus> IN_FLIGHT = List.of(ScanJobStatus.SCHEDULED, ScanJobStatus.RUNNING);
+    private static final List<ScanJobStatus> ACTIVE =
+            List.of(ScanJobStatus.QUEUED, ScanJobStatus.SCHEDULED, ScanJobStatus.RUNNING);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AdaptiveNetworkScanner adaptiveNetworkScanner;
+
+    @Autowired
+    private ScanProgressTracker progressTracker;
+
+    @Autowired
+    private UserShareWeights userShareWeights;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.concurrent.max:10}")
+    private int maxConcurrentJobs;
+
+    @Value("${scan.queue.small-job-max-targets:256}")
+    private int smallJobMaxTargets;
+
+    @Value("${scan.queue.small-job-slots:2}")
+    private int smallJobSlots;
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    @PostConstruct
+    public void initialize() {
+        Gauge.builder("scan.queue.depth", depth, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Queues a run of a job and admits right away what there is room for.
+     *
+     * @return false if the job is already queued or running
+     */
+    public boolean enqueue(String scanJobId) {
+        Query query = Query.query(Criteria.where("id").is(scanJobId).and("status").nin(ACTIVE));
+        Update update = new Update()
+                .set("status", ScanJobStatus.QUEUED)
+                .set("queuedAt", LocalDateTime.now());
+        if (mongoTemplate.updateFirst(query, update, ScanJob.class).getModifiedCount() == 0) {
+            return false;
+        }
+        admit();
+        return true;
+    }
+
+    /**
+     * Starts queued jobs while there is capacity. Admission is a conditional update from
+     * QUEUED, so two nodes never start the same job, and is undone when the count of jobs in
+     * flight taken right after it is over the limit.
+     */
+    @Scheduled(fixedDelayString = "${scan.queue.poll-interval-ms:2000}")
+    public synchronized void admit() {
+        try {
+            List<ScanJob> inFlight = findByStatus(IN_FLIGHT);
+            List<ScanJob> queue = order(findByStatus(List.of(ScanJobStatus.QUEUED)), inFlight);
+            int running = inFlight.size();
+            int admitted = 0;
+            for (ScanJob job : queue) {
+                int limit = isSmall(job) ? maxConcurrentJobs + smallJobSlots : maxConcurrentJobs;
+                if (running >= limit) {
+                    continue;
+                }
+                if (start(job, limit)) {
+                    running++;
+                    admitted++;
+                } else {
+                    // Taken or backed out: other nodes admitted jobs meanwhile
+                    running = (int) countInFlight();
+                }
+            }
+            depth.set(queue.size() - admitted);
+        } catch (Exception e) {
+            logger.error("Error admitting queued scan jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queued jobs in the order they would be admitted now.
+     */
+    public List<ScanJob> getQueue() {
+        return order(findByStatus(List.of(ScanJobStatus.QUEUED)), findByStatus(IN_FLIGHT));
+    }
+
+    /**
+     * Sets the queue position of the queued jobs among the given ones.
+     */
+    public void applyPositions(List<ScanJob> jobs) {
+        if (jobs.stream().noneMatch(job -> job.getStatus() == ScanJobStatus.QUEUED)) {
+            return;
+        }
+        Map<String, Integer> positions = new HashMap<>();
+        List<ScanJob> queue = getQueue();
+        for (int i = 0; i < queue.size(); i++) {
+            positions.put(queue.get(i).getId(), i + 1);
+        }
+        jobs.forEach(job -> job.setQueuePosition(positions.get(job.getId())));
+    }
+
+    public ScanPriority priorityOf(ScanJob job) {
+        if (job.getPriority() != null) {
+            return job.getPriority();
+        }
+        return isSmall(job) ? ScanPriority.HIGH : ScanPriority.NORMAL;
+    }
+
+    private boolean isSmall(ScanJob job) {
+        return job.getTotalTargets() <= smallJobMaxTargets;
+    }
+
+    /**
+     * Orders the queue as admission would go through it, counting each job as in flight for
+     * its user once it has been placed, so users take turns.
+     */
+    private List<ScanJob> order(List<ScanJob> queued, List<ScanJob> inFlight) {
+        Map<String, Integer> jobsByUser = new HashMap<>();
+        inFlight.forEach(job -> jobsByUser.merge(String.valueOf(job.getUserId()), 1, Integer::sum));
+
+        Comparator<ScanJob> next = Comparator.<ScanJob, ScanPriority>comparing(this::priorityOf).reversed()
+                .thenComparingDouble(job -> jobsByUser.getOrDefault(String.valueOf(job.getUserId()), 0)
+                        / userShareWeights.weightOf(job.getUserId()))
+                .thenComparing(ScanJob::getQueuedAt, Comparator.nullsFirst(Comparator.naturalOrder()));
+        List<ScanJob> remaining = new ArrayList<>(queued);
+        List<ScanJob> ordered = new ArrayList<>(queued.size());
+        while (!remaining.isEmpty()) {
+            ScanJob job = remaining.stream().min(next).get();
+            remaining.remove(job);
+            ordered.add(job);
+            jobsByUser.merge(String.valueOf(job.getUserId()), 1, Integer::sum);
+        }
+        return ordered;
+    }
+
+    /**
+     * Admits a job if it is still queued and in-flight jobs stay within the limit. Whichever
+     * of several concurrent admissions is written last sees all of them in its count, so the
+     * limit holds; at worst both back out and the job waits for the next round.
+     */
+    private boolean start(ScanJob job, int limit) {
+        LocalDateTime admittedAt = LocalDateTime.now();
+        Query query = Query.query(Criteria.where("id").is(job.getId()).and("status").is(ScanJobStatus.QUEUED));
+        Update update = new Update()
+                .set("status", ScanJobStatus.SCHEDULED)
+                .set("scheduledAt", admittedAt);
+        if (mongoTemplate.updateFirst(query, update, ScanJob.class).getModifiedCount() == 0) {
+            return false;
+        }
+        long inFlight = countInFlight();
+        if (inFlight > limit) {
+            Query admitted = Query.query(Criteria.where("id").is(job.getId())
+                    .and("status").is(ScanJobStatus.SCHEDULED)
+                    .and("scheduledAt").is(admittedAt));
+            mongoTemplate.updateFirst(admitted, new Update().set("status", ScanJobStatus.QUEUED).unset("scheduledAt"),
+                    ScanJob.class);
+            meterRegistry.counter("scan.queue.backed-out").increment();
+            logger.debug("Scan job {} backed out of admission, {} jobs in flight", job.getId(), inFlight);
+            return false;
+        }
+        ScanPriority priority = priorityOf(job);
+        if (job.getQueuedAt() != null) {
+            Timer.builder("scan.queue.wait").tag("priority", priority.name()).register(meterRegistry)
+                    .record(Duration.between(job.getQueuedAt(), LocalDateTime.now()));
+        }
+        meterRegistry.counter("scan.queue.admitted", "priority", priority.name()).increment();
+        logger.info("Admitting scan job {} ({} priority)", job.getId(), priority);
+        progressTracker.queued(job.getId());
+        adaptiveNetworkScanner.executeScanJob(job.getId());
+        return true;
+    }
+
+    private long countInFlight() {
+        return mongoTemplate.count(Query.query(Criteria.where("status").in(IN_FLIGHT)), ScanJob.class);
+    }
+
+    private List<ScanJob> findByStatus(List<ScanJobStatus> statuses) {
+        Query query = Query.query(Criteria.where("status").in(statuses));
+        query.fields().include("userId", "name", "status", "priority", "totalTargets", "queuedAt");
+        return mongoTemplate.find(query, ScanJob.class);
+    }
+}
\ No newline at end of file
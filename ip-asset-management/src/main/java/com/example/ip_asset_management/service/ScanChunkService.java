@@ -0,0 +1,323 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanChunkStatus;
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanResult;
+import com.example.ip_asset_management.repository.ScanChunkRepository;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits scan jobs into chunks of targets and hands them out to backend nodes through lease
+ * documents. All state lives in the chunk documents and every change is a conditional
+ * update, so any number of nodes can work on the same job without coordinating otherwise.
+ */
+@Component
+public class ScanChunkService {
+
+    @Autowired
+    private ScanChunkRepository scanChunkRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${scan.chunks.size:4096}")
+    private long chunkSize;
+
+    /**
+     * Cuts a job's targets into chunks, per network zone. Nothing is stored yet. Chunk ids
+     * are derived from the job and the chunk's position, so planning a job twice yields the
+     * same ids and only one of two concurrent {@link #insert}s goes through.
+     */
+    public List<ScanChunk> plan(ScanJob job) {
+        List<ScanChunk> chunks = new ArrayList<>();
+        for (Map.Entry<String, ScanTargetSet> group : targetsByZone(job).entrySet()) {
+            String zone = group.getKey().isEmpty() ? null : group.getKey();
+            ScanTargetSet targets = group.getValue();
+            for (long[] bounds : targets.split(chunkSize)) {
+                int count = (int) targets.restrictTo(bounds[0], bounds[1]).getAddressCount();
+                chunks.add(newChunk(job.getId(), chunks.size(), zone, bounds[0], bounds[1], count));
+            }
+            if (!targets.getHostnames().isEmpty()) {
+                chunks.add(newChunk(job.getId(), chunks.size(), zone, null, null, targets.getHostnames().size()));
+            }
+        }
+        return chunks;
+    }
+
+    public void save(List<ScanChunk> chunks) {
+        scanChunkRepository.saveAll(chunks);
+    }
+
+    /**
+     * Stores a job's chunks unless they were stored already.
+     *
+     * @return false if another node stored the job's chunks first
+     */
+    public boolean insert(List<ScanChunk> chunks) {
+        try {
+            mongoTemplate.insert(chunks, ScanChunk.class);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public void delete(String scanJobId) {
+        scanChunkRepository.deleteByScanJobId(scanJobId);
+    }
+
+    public long count(String scanJobId) {
+        return scanChunkRepository.countByScanJobId(scanJobId);
+    }
+
+    /**
+     * Leases the oldest chunk a node may take: pending, or leased by a node whose lease ran
+     * out, and either without a zone or in the node's zone.
+     *
+     * @param scanJobId Only consider chunks of this job, or null for any job
+     * @param busyJobs Jobs to leave out, the node is already working on them
+     * @return The leased chunk, or null if there is none
+     */
+    public ScanChunk claim(String nodeId, String zone, String scanJobId, Collection<String> busyJobs, long leaseSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria claimable = new Criteria().orOperator(
+                Criteria.where("status").is(ScanChunkStatus.PENDING),
+                Criteria.where("status").is(ScanChunkStatus.LEASED).and("leaseExpiresAt").lt(now));
+        Criteria inZone = zone == null || zone.isBlank()
+                ? Criteria.where("zone").is(null)
+                : Criteria.where("zone").in(Arrays.asList(null, zone));
+        Query query = new Query(new Criteria().andOperator(claimable, inZone));
+        if (scanJobId != null) {
+            query.addCriteria(Criteria.where("scanJobId").is(scanJobId));
+        } else if (!busyJobs.isEmpty()) {
+            query.addCriteria(Criteria.where("scanJobId").nin(busyJobs));
+        }
+        query.with(Sort.by("id"));
+
+        Update update = new Update()
+                .set("status", ScanChunkStatus.LEASED)
+                .set("owner", nodeId)
+                .set("leaseExpiresAt", now.plusSeconds(leaseSeconds))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), ScanChunk.class);
+    }
+
+    /**
+     * Extends a lease the node still holds.
+     *
+     * @return false if the lease was lost, the chunk then belongs to someone else
+     */
+    public boolean renew(ScanChunk chunk, String nodeId, long leaseSeconds) {
+        return mongoTemplate.updateFirst(leasedBy(chunk, nodeId),
+                Update.update("leaseExpiresAt", LocalDateTime.now().plusSeconds(leaseSeconds)),
+                ScanChunk.class).getMatchedCount() > 0;
+    }
+
+    public boolean complete(ScanChunk chunk, String nodeId) {
+        Update update = new Update()
+                .set("status", ScanChunkStatus.DONE)
+                .set("completedAt", LocalDateTime.now())
+                .unset("leaseExpiresAt");
+        return mongoTemplate.updateFirst(leasedBy(chunk, nodeId), update, ScanChunk.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Gives a chunk back so another node, or this one later, can take it.
+     */
+    public void release(ScanChunk chunk, String nodeId) {
+        Update update = new Update()
+                .set("status", ScanChunkStatus.PENDING)
+                .unset("owner")
+                .unset("leaseExpiresAt");
+        mongoTemplate.updateFirst(leasedBy(chunk, nodeId), update, ScanChunk.class);
+    }
+
+    /**
+     * Adds progress to the counters of a chunk, provided the lease it was made under is still
+     * the chunk's latest one. Progress of a lease that was lost, or of a chunk that was
+     * released meanwhile, is not counted; whoever scans the chunk next counts it again.
+     *
+     * @param chunk The chunk as it was leased
+     * @param increments $inc of counter fields named like {@link ScanJobProgress#FIELD_NAMES}
+     * @return false if the progress was not counted
+     */
+    public boolean addProgress(ScanChunk chunk, String nodeId, Update increments) {
+        Query sameLease = Query.query(Criteria.where("id").is(chunk.getId())
+                .and("owner").is(nodeId)
+                .and("attempts").is(chunk.getAttempts()));
+        return mongoTemplate.updateFirst(sameLease, increments, ScanChunk.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Zeroes the counters of a chunk the node just leased again, before it is scanned over.
+     *
+     * @return The chunk as it was, holding what earlier holders counted, or null if the lease was lost
+     */
+    public ScanChunk resetProgress(ScanChunk chunk, String nodeId) {
+        Update update = new Update();
+        for (String field : ScanJobProgress.FIELD_NAMES) {
+            update.set(field, 0);
+        }
+        return mongoTemplate.findAndModify(leasedBy(chunk, nodeId), update, ScanChunk.class);
+    }
+
+    /**
+     * Deletes the scan results earlier attempts on a chunk wrote, so a rescanned host has
+     * only the result of the current attempt.
+     */
+    public long deleteEarlierResults(ScanChunk chunk) {
+        Query query = Query.query(Criteria.where("chunkId").is(chunk.getId())
+                .and("chunkAttempt").lt(chunk.getAttempts()));
+        return mongoTemplate.remove(query, ScanResult.class).getDeletedCount();
+    }
+
+    /**
+     * Sums the counters of all of a job's chunks. The job document's running counters are
+     * written after the chunk's, so a failed write or a crash in between can leave them off.
+     *
+     * @return Totals indexed like {@link ScanJobProgress#FIELD_NAMES}
+     */
+    public int[] sumProgress(String scanJobId) {
+        GroupOperation group = Aggregation.group();
+        for (String field : ScanJobProgress.FIELD_NAMES) {
+            group = group.sum(field).as(field);
+        }
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("scanJobId").is(scanJobId)), group);
+        Document sums = mongoTemplate.aggregate(aggregation, ScanChunk.class, Document.class).getUniqueMappedResult();
+
+        int[] totals = new int[ScanJobProgress.FIELD_NAMES.length];
+        for (int i = 0; i < totals.length && sums != null; i++) {
+            Object sum = sums.get(ScanJobProgress.FIELD_NAMES[i]);
+            totals[i] = sum instanceof Number number ? number.intValue() : 0;
+        }
+        return totals;
+    }
+
+    /**
+     * The jobs a node holds leases on.
+     */
+    public List<String> leasedJobs(String nodeId) {
+        Query query = Query.query(Criteria.where("owner").is(nodeId).and("status").is(ScanChunkStatus.LEASED));
+        return mongoTemplate.findDistinct(query, "scanJobId", ScanChunk.class, String.class);
+    }
+
+    /**
+     * Hands back every lease a node holds, for a node that restarted under the same id and
+     * so cannot still be working on them.
+     *
+     * @return Number of chunks released
+     */
+    public long releaseAll(String nodeId) {
+        Query query = Query.query(Criteria.where("owner").is(nodeId).and("status").is(ScanChunkStatus.LEASED));
+        Update update = new Update()
+                .set("status", ScanChunkStatus.PENDING)
+                .unset("owner")
+                .unset("leaseExpiresAt");
+        return mongoTemplate.updateMulti(query, update, ScanChunk.class).getModifiedCount();
+    }
+
+    public boolean isJobDone(String scanJobId) {
+        return scanChunkRepository.countByScanJobIdAndStatusNot(scanJobId, ScanChunkStatus.DONE) == 0;
+    }
+
+    /**
+     * The targets of one chunk, rebuilt from the job.
+     */
+    public ScanTargetSet targetsOf(ScanJob job, ScanChunk chunk) {
+        ScanTargetSet targets = targetsByZone(job).get(chunk.getZone() != null ? chunk.getZone() : "");
+        if (targets == null) {
+            return ScanTargetSet.of(null, null, null);
+        }
+        if (chunk.getFromAddress() == null) {
+            return targets.hostnamesOnly();
+        }
+        return targets.restrictTo(chunk.getFromAddress(), chunk.getToAddress());
+    }
+
+    /**
+     * The job's targets grouped by the zone that must scan them, "" for entries any node may
+     * scan. Groups are built in a fixed order, and an address listed under several zones only
+     * goes to the first group, so every node derives the same groups from the job.
+     */
+    private Map<String, ScanTargetSet> targetsByZone(ScanJob job) {
+        Map<String, String> zones = job.getSegmentZones() != null ? job.getSegmentZones() : Map.of();
+        Map<String, List<String>> entriesByZone = new TreeMap<>();
+        for (List<String> entries : Arrays.asList(job.getIpAddresses(), job.getIpSegments())) {
+            if (entries == null) {
+                continue;
+            }
+            for (String entry : entries) {
+                String zone = zones.get(entry);
+                String key = zone != null ? zone.trim() : "";
+                entriesByZone.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        Map<String, ScanTargetSet> groups = new LinkedHashMap<>();
+        List<String> excluded = new ArrayList<>();
+        if (job.getExcludedSegments() != null) {
+            excluded.addAll(job.getExcludedSegments());
+        }
+        for (Map.Entry<String, List<String>> group : entriesByZone.entrySet()) {
+            groups.put(group.getKey(), ScanTargetSet.of(group.getValue(), null, excluded));
+            for (String entry : group.getValue()) {
+                if (isAddressNotation(entry)) {
+                    excluded.add(entry);
+                }
+            }
+        }
+        return groups;
+    }
+
+    private static boolean isAddressNotation(String entry) {
+        try {
+            ScanTargetSet.parseRange(entry.trim(), false);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static ScanChunk newChunk(String scanJobId, int index, String zone, Long fromAddress, Long toAddress,
+                                      int targetCount) {
+        ScanChunk chunk = new ScanChunk();
+        // Zero-padded so chunks are leased in order
+        chunk.setId(String.format("%s-%06d", scanJobId, index));
+        chunk.setScanJobId(scanJobId);
+        chunk.setZone(zone);
+        chunk.setFromAddress(fromAddress);
+        chunk.setToAddress(toAddress);
+        chunk.setTargetCount(targetCount);
+        chunk.setStatus(ScanChunkStatus.PENDING);
+        return chunk;
+    }
+
+    private static Query leasedBy(ScanChunk chunk, String nodeId) {
+        return Query.query(Criteria.where("id").is(chunk.getId())
+                .and("owner").is(nodeId)
+                .and("status").is(ScanChunkStatus.LEASED));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,318 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.repository.ScanJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This node's side of distributed scanning. It polls for chunks of running jobs it may scan,
+ * leases them, renews the lease while it scans, and marks them done. A node works on one
+ * chunk per job at a time and stays with a job until its chunks run out, so the job's rate
+ * limiter and executor sizing carry over from chunk to chunk.
+ */
+@Component
+public class ScanChunkWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ScanChunkWorker.class);
+
+    @Autowired
+    private ScanChunkService scanChunkService;
+
+    @Autowired
+    private ScanJobRepository scanJobRepository;
+
+    @Autowired
+    private AdaptiveNetworkScanner adaptiveNetworkScanner;
+
+    @Autowired
+    private ScanProgressTracker progressTracker;
+
+    @Autowired
+    private ProbeRateLimiters rateLimiters;
+
+    @Autowired
+    private ResourceAwareExecutionController resourceController;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.node.id:}")
+    private String configuredNodeId;
+
+    @Value("${scan.node.zone:}")
+    private String zone;
+
+    @Value("${scan.chunks.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${scan.chunks.max-jobs-per-node:4}")
+    private int maxJobs;
+
+    @Value("${scan.chunks.max-attempts:3}")
+    private int maxAttempts;
+
+    private final Set<String> workingJobs = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chunk-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService workers;
+    private String nodeId;
+
+    @PostConstruct
+    public void initialize() {
+        nodeId = configuredNodeId.isBlank() ? defaultNodeId() : configuredNodeId;
+        AtomicInteger counter = new AtomicInteger();
+        workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "chunk-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Scan node {} ready{}", nodeId, zone.isBlank() ? "" : " in zone " + zone);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        heartbeats.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Picks up chunks of jobs started by other nodes, or left behind by nodes that died.
+     */
+    @Scheduled(fixedDelayString = "${scan.chunks.poll-interval-ms:5000}")
+    public void pollForChunks() {
+        while (workingJobs.size() < maxJobs) {
+            ScanChunk chunk = scanChunkService.claim(nodeId, zone, null, Set.copyOf(workingJobs), leaseSeconds);
+            if (chunk == null) {
+                return;
+            }
+            String scanJobId = chunk.getScanJobId();
+            if (!workingJobs.add(scanJobId)) {
+                // This node started working on the job in the meantime
+                scanChunkService.release(chunk, nodeId);
+                return;
+            }
+            workers.execute(() -> {
+                try {
+                    workOn(scanJobId, chunk);
+                } finally {
+                    workingJobs.remove(scanJobId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Works on a job's chunks until there are none left for this node to take. Used by the
+     * node that starts the job, so it does not wait for the next poll.
+     */
+    public void drain(String scanJobId) {
+        if (!workingJobs.add(scanJobId)) {
+            return;
+        }
+        try {
+            workOn(scanJobId, null);
+        } finally {
+            workingJobs.remove(scanJobId);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void workOn(String scanJobId, ScanChunk firstChunk) {
+        ScanJobProgress progress = null;
+        ProbeRateLimiter rateLimiter = null;
+        JobScanExecutor hostExecutor = null;
+        try {
+            ScanChunk chunk = firstChunk != null ? firstChunk : claim(scanJobId);
+            while (chunk != null) {
+                ScanJob job = scanJobRepository.findById(scanJobId).orElse(null);
+                if (job == null || job.getStatus() != ScanJobStatus.RUNNING) {
+                    // Cancelled, failed or deleted meanwhile; the chunk has nothing left to do
+                    scanChunkService.complete(chunk, nodeId);
+                    return;
+                }
+                if (progress == null) {
+                    progress = progressTracker.join(scanJobId, job.getTotalTargets());
+                    // Probes to each subnet are paced by its own loss-driven rate
+                    rateLimiter = rateLimiters.newRateLimiter(scanJobId, job.getMaxProbeRate(), job.getMinProbeRate());
+                    // One executor serves all of the job's chunks on this node
+                    hostExecutor = resourceController.newJobExecutor(scanJobId, job.getUserId());
+                }
+
+                if (chunk.getAttempts() > maxAttempts) {
+                    // The last attempt's partial progress and results stand, the rest counts as failed
+                    int unscanned = progressTracker.abandon(chunk, nodeId);
+                    logger.error("Giving up on chunk {} of scan job {} after {} attempts, {} targets were not scanned",
+                                 chunk.getId(), scanJobId, chunk.getAttempts() - 1, unscanned);
+                    meterRegistry.counter("scan.chunks.abandoned").increment();
+                    scanChunkService.complete(chunk, nodeId);
+                } else if (!scanChunk(job, chunk, progress, rateLimiter, hostExecutor)) {
+                    return;
+                }
+
+                if (scanChunkService.isJobDone(scanJobId)) {
+                    completeJob(scanJobId);
+                    return;
+                }
+                chunk = claim(scanJobId);
+            }
+            // Nothing left to claim; a job without targets has no chunks at all and ends here
+            if (scanChunkService.isJobDone(scanJobId)) {
+                completeJob(scanJobId);
+            }
+        } finally {
+            if (hostExecutor != null) {
+                hostExecutor.close();
+            }
+            if (progress != null) {
+                progressTracker.leave(progress);
+            }
+        }
+    }
+
+    /**
+     * @return false if the chunk was not finished and this node should stop working on the job
+     */
+    private boolean scanChunk(ScanJob job, ScanChunk chunk, ScanJobProgress progress,
+                              ProbeRateLimiter rateLimiter, JobScanExecutor hostExecutor) {
+        if (chunk.getAttempts() > 1) {
+            meterRegistry.counter("scan.chunks.reclaimed").increment();
+        }
+        AtomicBoolean leaseLost = new AtomicBoolean();
+        long renewSeconds = Math.max(1, leaseSeconds / 3);
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleWithFixedDelay(
+                () -> heartbeat(chunk, leaseLost), renewSeconds, renewSeconds, TimeUnit.SECONDS);
+        try {
+            if (chunk.getAttempts() > 1 && !discardEarlierAttempts(chunk)) {
+                return false;
+            }
+            progressTracker.workOn(progress, chunk, nodeId);
+            ScanTargetSet targets = scanChunkService.targetsOf(job, chunk);
+            logger.debug("Node {} scanning chunk {} of job {} ({} targets)",
+                         nodeId, chunk.getId(), job.getId(), targets.size());
+            if (!adaptiveNetworkScanner.scanTargets(job, chunk, targets, progress, rateLimiter,
+                                                   hostExecutor, leaseLost::get)) {
+                if (leaseLost.get()) {
+                    logger.warn("Node {} lost the lease on chunk {} of scan job {}", nodeId, chunk.getId(), job.getId());
+                }
+                return false;
+            }
+            // Counters go out before the chunk counts as done, so the node completing the job sees them
+            progressTracker.flush(progress);
+            if (chunk.getAttempts() > 1) {
+                // Hosts an earlier holder still had in flight may have stored their results since
+                scanChunkService.deleteEarlierResults(chunk);
+            }
+            scanChunkService.complete(chunk, nodeId);
+            meterRegistry.counter("scan.chunks.completed").increment();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scanChunkService.release(chunk, nodeId);
+            return false;
+        } catch (Exception e) {
+            logger.error("Error scanning chunk {} of scan job {}: {}", chunk.getId(), job.getId(), e.getMessage());
+            scanChunkService.release(chunk, nodeId);
+            return false;
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    /**
+     * Undoes what earlier leases on a chunk counted and stored before it is scanned again:
+     * their counters come out of the job and their scan results are deleted.
+     *
+     * @return false if the lease was lost in the meantime
+     */
+    private boolean discardEarlierAttempts(ScanChunk chunk) {
+        ScanChunk previous = scanChunkService.resetProgress(chunk, nodeId);
+        if (previous == null) {
+            return false;
+        }
+        progressTracker.retract(previous);
+        long deleted = scanChunkService.deleteEarlierResults(chunk);
+        logger.info("Node {} rescanning chunk {} of scan job {}, discarded {} completed targets and {} results of earlier attempts",
+                    nodeId, chunk.getId(), chunk.getScanJobId(), previous.getCompletedTargets(), deleted);
+        return true;
+    }
+
+    private void heartbeat(ScanChunk chunk, AtomicBoolean leaseLost) {
+        try {
+            if (!scanChunkService.renew(chunk, nodeId, leaseSeconds)) {
+                leaseLost.set(true);
+            }
+            // Cancellation reaches the nodes that did not handle the request through the job document
+            Query cancelled = Query.query(Criteria.where("id").is(chunk.getScanJobId())
+                    .and("status").is(ScanJobStatus.CANCELLED));
+            if (mongoTemplate.exists(cancelled, ScanJob.class)) {
+                progressTracker.observeCancelled(chunk.getScanJobId());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not renew lease on chunk {}: {}", chunk.getId(), e.getMessage());
+        }
+    }
+
+    private ScanChunk claim(String scanJobId) {
+        return scanChunkService.claim(nodeId, zone, scanJobId, Set.of(), leaseSeconds);
+    }
+
+    void completeJob(String scanJobId) {
+        // The chunks' counters are exact, the job's running ones may have missed a write
+        int[] totals = scanChunkService.sumProgress(scanJobId);
+        Update counters = new Update();
+        for (int i = 0; i < totals.length; i++) {
+            counters.set(ScanJobProgress.FIELD_NAMES[i], totals[i]);
+        }
+        // Recurring jobs were moved to their next run when they were launched
+        progressTracker.finish(scanJobId, ScanJobStatus.COMPLETED, counters);
+        scanJobRepository.findById(scanJobId).ifPresent(job ->
+                logger.info("Completed scan job {} with {} successful and {} failed targets",
+                            scanJobId, job.getSuccessfulTargets(), job.getFailedTargets()));
+    }
+
+    /**
+     * The host name, which survives restarts so that startup recovery finds the leases this
+     * node held before. Nodes sharing a host name need scan.node.id set.
+     */
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            logger.warn("Could not determine host name for the scan node id, set scan.node.id: {}", e.getMessage());
+            return "node";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanPhase;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Live counters of a running scan job. Workers update them lock-free; the
+ * {@link ScanProgressTracker} periodically persists what changed since its last write.
+ */
+public class ScanJobProgress {
+    // Counter indexes, named after the ScanJob fields they are persisted to
+    static final int COMPLETED = 0;
+    static final int SUCCESSFUL = 1;
+    static final int FAILED = 2;
+    static final int SWEPT = 3;
+    static final int LIVE = 4;
+    static final String[] FIELD_NAMES = {
+            "completedTargets", "successfulTargets", "failedTargets", "sweptTargets", "liveTargets"
+    };
+
+    private final String jobId;
+    private final int totalTargets;
+    private final AtomicIntegerArray counters = new AtomicIntegerArray(FIELD_NAMES.length);
+    private volatile ScanPhase phase;
+
+    // Values already written to the job document, only touched by the tracker
+    private final int[] persisted = new int[FIELD_NAMES.length];
+    // Callers on this node working on the job, only touched by the tracker
+    int holders;
+    // Lease the counters are being collected under, null before the first chunk; guarded by this
+    ScanChunk chunk;
+    String chunkOwner;
+
+    ScanJobProgress(String jobId, int totalTargets) {
+        this.jobId = jobId;
+        this.totalTargets = totalTargets;
+    }
+
+    /**
+     * Records the outcome of the discovery sweep for one target. Dark targets are finished
+     * at this point; live ones complete when their deep scan does.
+     */
+    public void recordSwept(boolean alive) {
+        counters.incrementAndGet(SWEPT);
+        if (alive) {
+            counters.incrementAndGet(LIVE);
+        } else {
+            counters.incrementAndGet(COMPLETED);
+        }
+    }
+
+    public void recordResult(boolean success) {
+        counters.incrementAndGet(success ? SUCCESSFUL : FAILED);
+        counters.incrementAndGet(COMPLETED);
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public int getTotalTargets() {
+        return totalTargets;
+    }
+
+    public ScanPhase getPhase() {
+        return phase;
+    }
+
+    void setPhase(ScanPhase phase) {
+        this.phase = phase;
+    }
+
+    public int getCompleted() {
+        return counters.get(COMPLETED);
+    }
+
+    public int getSuccessful() {
+        return counters.get(SUCCESSFUL);
+    }
+
+    public int getFailed() {
+        return counters.get(FAILED);
+    }
+
+    public int getSwept() {
+        return counters.get(SWEPT);
+    }
+
+    public int getLive() {
+        return counters.get(LIVE);
+    }
+
+    /**
+     * Returns the increments not yet persisted, indexed like {@link #FIELD_NAMES}, and marks
+     * them as persisted.
+     */
+    synchronized int[] takeUnpersistedDeltas() {
+        int[] deltas = new int[FIELD_NAMES.length];
+        for (int i = 0; i < deltas.length; i++) {
+            int current = counters.get(i);
+            deltas[i] = current - persisted[i];
+            persisted[i] = current;
+        }
+        return deltas;
+    }
+
+    /**
+     * The increments not yet persisted, indexed like {@link #FIELD_NAMES}, without marking
+     * them as persisted.
+     */
+    synchronized int[] peekUnpersistedDeltas() {
+        int[] deltas = new int[FIELD_NAMES.length];
+        for (int i = 0; i < deltas.length; i++) {
+            deltas[i] = counters.get(i) - persisted[i];
+        }
+        return deltas;
+    }
+
+    /**
+     * Gives back deltas whose write failed so the next flush retries them.
+     */
+    synchronized void restoreDeltas(int[] deltas) {
+        for (int i = 0; i < deltas.length; i++) {
+            persisted[i] -= deltas[i];
+        }
+    }
+}
\ No newline at end of file
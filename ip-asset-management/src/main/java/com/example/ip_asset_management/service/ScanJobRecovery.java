@@ -0,0 +1,140 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.repository.ScanJobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks up scan jobs a backend restart or crash left behind. Completed chunks are the jobs'
+ * checkpoints: chunks that were being scanned are leased again once their lease runs out,
+ * and this sweep covers what leases cannot, namely running jobs that lost their chunks or
+ * were never split into any, running jobs whose last chunk finished without the job being
+ * closed, and scheduled jobs that never started. The node that queued a scheduled job keeps
+ * refreshing its launch time while the job waits, so only jobs of dead nodes go stale.
+ */
+@Component
+public class ScanJobRecovery {
+    private static final Logger logger = LoggerFactory.getLogger(ScanJobRecovery.class);
+
+    @Autowired
+    private ScanJobRepository scanJobRepository;
+
+    @Autowired
+    private ScanChunkService scanChunkService;
+
+    @Autowired
+    private ScanChunkWorker chunkWorker;
+
+    @Autowired
+    private ScanProgressTracker progressTracker;
+
+    @Autowired
+    private AdaptiveNetworkScanner adaptiveNetworkScanner;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.recovery.grace-seconds:120}")
+    private long graceSeconds;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        // Nothing runs yet, so leases still held under this node's id are left over from before the restart
+        String nodeId = chunkWorker.getNodeId();
+        List<String> interrupted = scanChunkService.leasedJobs(nodeId);
+        long released = scanChunkService.releaseAll(nodeId);
+        if (released > 0) {
+            logger.info("Released {} chunks leased by this node before it restarted", released);
+            // Jobs running elsewhere are left to their nodes; only the ones cut off here are resumed
+            for (String jobId : interrupted) {
+                logger.info("Scan job {} was running on this node, resuming it from its unfinished chunks", jobId);
+            }
+        }
+        recover();
+    }
+
+    @Scheduled(fixedDelayString = "${scan.recovery.interval-ms:60000}",
+               initialDelayString = "${scan.recovery.interval-ms:60000}")
+    public void recover() {
+        try {
+            // Starting a job takes a moment; only jobs that should have settled by now are looked at
+            LocalDateTime settled = LocalDateTime.now().minusSeconds(graceSeconds);
+            // Jobs waiting for a thread on this node are not stuck, other nodes must not relaunch them
+            Set<String> queued = progressTracker.getQueuedJobs();
+            if (!queued.isEmpty()) {
+                Query query = Query.query(Criteria.where("id").in(queued).and("status").is(ScanJobStatus.SCHEDULED));
+                mongoTemplate.updateMulti(query, Update.update("scheduledAt", LocalDateTime.now()), ScanJob.class);
+            }
+            for (ScanJob job : scanJobRepository.findByStatus(ScanJobStatus.RUNNING)) {
+                if (job.getLastRunAt() == null || job.getLastRunAt().isBefore(settled)) {
+                    recoverRunning(job);
+                }
+            }
+            for (ScanJob job : scanJobRepository.findByStatus(ScanJobStatus.SCHEDULED)) {
+                if (!queued.contains(job.getId())
+                        && (job.getScheduledAt() == null || job.getScheduledAt().isBefore(settled))) {
+                    relaunch(job);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error recovering scan jobs: {}", e.getMessage());
+        }
+    }
+
+    private void recoverRunning(ScanJob job) {
+        if (scanChunkService.count(job.getId()) == 0) {
+            // Its node died between marking it RUNNING and storing the chunks, or it was started
+            // before jobs were chunked; either way no scan progress was checkpointed
+            List<ScanChunk> chunks = scanChunkService.plan(job);
+            if (chunks.isEmpty()) {
+                chunkWorker.completeJob(job.getId());
+            } else if (scanChunkService.insert(chunks)) {
+                long targetCount = chunks.stream().mapToLong(ScanChunk::getTargetCount).sum();
+                progressTracker.restart(job.getId(), (int) Math.min(targetCount, Integer.MAX_VALUE));
+                meterRegistry.counter("scan.recovery.replanned").increment();
+                logger.warn("Scan job {} was running without chunks, scanning it again in {} chunks",
+                            job.getId(), chunks.size());
+            }
+        } else if (scanChunkService.isJobDone(job.getId())) {
+            // The node that finished the last chunk died before closing the job
+            meterRegistry.counter("scan.recovery.completed").increment();
+            chunkWorker.completeJob(job.getId());
+        }
+    }
+
+    private void relaunch(ScanJob job) {
+        // Claimed on the launch time seen, so only one node relaunches the job
+        Query query = Query.query(Criteria.where("id").is(job.getId())
+                .and("status").is(ScanJobStatus.SCHEDULED)
+                .and("scheduledAt").is(job.getScheduledAt()));
+        if (mongoTemplate.updateFirst(query, Update.update("scheduledAt", LocalDateTime.now()), ScanJob.class)
+                .getModifiedCount() == 0) {
+            return;
+        }
+        meterRegistry.counter("scan.recovery.relaunched").increment();
+        logger.warn("Scan job {} was scheduled but never started, launching it again", job.getId());
+        progressTracker.queued(job.getId());
+        adaptiveNetworkScanner.executeScanJob(job.getId());
+    }
+}
\ No newline at end of file
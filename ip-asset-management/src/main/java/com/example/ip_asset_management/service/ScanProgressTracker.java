@@ -0,0 +1,355 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.model.ScanPhase;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the progress of running jobs in memory and persists it with throttled partial
+ * updates ($inc on the counter fields only). Progress is counted on the leased chunk it was
+ * made on first and added to the job only if that lease still holds, so a chunk that is
+ * scanned again never counts twice. Also the registry jobs consult for cancellation, so the
+ * scan loop never has to re-read the job document.
+ */
+@Component
+public class ScanProgressTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ScanProgressTracker.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ScanChunkService scanChunkService;
+
+    @Value("${scan.progress.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "progress-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, ScanJobProgress> activeJobs = new ConcurrentHashMap<>();
+    private final Set<String> cancelledJobs = ConcurrentHashMap.newKeySet();
+    private final Set<String> queuedJobs = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void initialize() {
+        flusher.scheduleWithFixedDelay(this::persistAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        flusher.shutdown();
+        persistAll();
+    }
+
+    /**
+     * Registers a job as running and resets its counters in the job document.
+     */
+    public ScanJobProgress start(ScanJob job, int totalTargets) {
+        queuedJobs.remove(job.getId());
+        cancelledJobs.remove(job.getId());
+        ScanJobProgress progress = new ScanJobProgress(job.getId(), totalTargets);
+        progress.holders = 1;
+        activeJobs.put(job.getId(), progress);
+
+        mongoTemplate.updateFirst(byId(job.getId()), resetCounters(totalTargets)
+                .set("status", ScanJobStatus.RUNNING)
+                .set("lastRunAt", job.getLastRunAt()), ScanJob.class);
+        return progress;
+    }
+
+    /**
+     * Zeroes the counters of a running job whose targets are scanned over from the start.
+     */
+    public void restart(String jobId, int totalTargets) {
+        mongoTemplate.updateFirst(byId(jobId), resetCounters(totalTargets), ScanJob.class);
+    }
+
+    /**
+     * Registers this node as working on a job that was started elsewhere, without resetting
+     * its counters. Counters of all nodes add up in the job document. Every join is paired
+     * with a {@link #leave}.
+     */
+    public ScanJobProgress join(String jobId, int totalTargets) {
+        return activeJobs.compute(jobId, (id, progress) -> {
+            ScanJobProgress joined = progress != null ? progress : new ScanJobProgress(id, totalTargets);
+            joined.holders++;
+            return joined;
+        });
+    }
+
+    /**
+     * Stops tracking a job on this node once nothing here works on it any more, persisting
+     * what is left. The job's status is not touched.
+     */
+    public void leave(ScanJobProgress progress) {
+        boolean[] removed = new boolean[1];
+        activeJobs.computeIfPresent(progress.getJobId(), (id, current) -> {
+            if (current != progress || --current.holders > 0) {
+                return current;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            persist(progress);
+        }
+    }
+
+    /**
+     * Collects the job's progress under a newly leased chunk from now on. What was counted
+     * before is written to the previous chunk first.
+     */
+    public void workOn(ScanJobProgress progress, ScanChunk chunk, String nodeId) {
+        persist(progress);
+        synchronized (progress) {
+            progress.chunk = chunk;
+            progress.chunkOwner = nodeId;
+        }
+    }
+
+    /**
+     * Takes what earlier leases counted on a chunk back out of its job's counters, once the
+     * chunk's own counters were zeroed for another scan.
+     *
+     * @param previous The chunk's counters before they were zeroed
+     */
+    public void retract(ScanChunk previous) {
+        int[] counted = {
+                previous.getCompletedTargets(), previous.getSuccessfulTargets(), previous.getFailedTargets(),
+                previous.getSweptTargets(), previous.getLiveTargets()
+        };
+        Update update = increments(counted, -1);
+        if (update != null) {
+            mongoTemplate.updateFirst(byId(previous.getScanJobId()), update, ScanJob.class);
+        }
+    }
+
+    /**
+     * Counts the targets of a chunk that is given up on, and that the last attempt did not
+     * finish, as failed and unscanned, so the job does not look complete without them.
+     *
+     * @param chunk The chunk as leased for the attempt that gives up on it
+     * @return Number of targets counted as unscanned
+     */
+    public int abandon(ScanChunk chunk, String nodeId) {
+        // No earlier holder can add to the chunk's counters any more, so they are final
+        int unscanned = Math.max(0, chunk.getTargetCount() - chunk.getCompletedTargets());
+        if (unscanned == 0) {
+            return 0;
+        }
+        Update update = new Update().inc("completedTargets", unscanned).inc("failedTargets", unscanned);
+        if (!scanChunkService.addProgress(chunk, nodeId, update)) {
+            return 0;
+        }
+        mongoTemplate.updateFirst(byId(chunk.getScanJobId()), update.inc("unscannedTargets", unscanned), ScanJob.class);
+        return unscanned;
+    }
+
+    /**
+     * Writes a job's pending counter changes right away instead of on the next flush.
+     */
+    public void flush(ScanJobProgress progress) {
+        persist(progress);
+    }
+
+    /**
+     * Moves a job to its next phase. Counters are flushed first so readers never see the new
+     * phase with the previous phase's stale numbers. Phases only move forward: with several
+     * chunks, the job is in the furthest phase any of them reached.
+     */
+    public void enterPhase(ScanJobProgress progress, ScanPhase phase) {
+        if (progress.getPhase() == null || phase.compareTo(progress.getPhase()) > 0) {
+            progress.setPhase(phase);
+        }
+        persist(progress);
+        List<ScanPhase> later = Arrays.asList(ScanPhase.values()).subList(phase.ordinal() + 1, ScanPhase.values().length);
+        Query query = byId(progress.getJobId()).addCriteria(Criteria.where("phase").nin(later));
+        mongoTemplate.updateFirst(query, Update.update("phase", phase), ScanJob.class);
+    }
+
+    /**
+     * Writes the final counters and status of a job and stops tracking it. A job that was
+     * cancelled meanwhile keeps its CANCELLED status.
+     */
+    public void finish(String jobId, ScanJobStatus status, Update extraFields) {
+        ScanJobProgress progress = activeJobs.remove(jobId);
+        if (progress != null) {
+            persist(progress);
+        }
+        cancelledJobs.remove(jobId);
+        queuedJobs.remove(jobId);
+
+        Update update = extraFields != null ? extraFields : new Update();
+        update.set("status", status);
+        Query query = byId(jobId).addCriteria(Criteria.where("status").ne(ScanJobStatus.CANCELLED));
+        mongoTemplate.updateFirst(query, update, ScanJob.class);
+    }
+
+    /**
+     * Notes that a job was handed to this node's scan executor and waits for a thread to
+     * start it.
+     */
+    public void queued(String jobId) {
+        queuedJobs.add(jobId);
+    }
+
+    /**
+     * Forgets a queued job that will not be started after all.
+     */
+    public void dropQueued(String jobId) {
+        queuedJobs.remove(jobId);
+    }
+
+    public Set<String> getQueuedJobs() {
+        return Set.copyOf(queuedJobs);
+    }
+
+    /**
+     * Flags a job as cancelled; its scan loop stops admitting hosts on the next check.
+     */
+    public void cancel(String jobId) {
+        cancelledJobs.add(jobId);
+        mongoTemplate.updateFirst(byId(jobId), Update.update("status", ScanJobStatus.CANCELLED), ScanJob.class);
+    }
+
+    /**
+     * Notes a cancellation another node wrote to the job document.
+     */
+    public void observeCancelled(String jobId) {
+        cancelledJobs.add(jobId);
+    }
+
+    public boolean isCancelled(String jobId) {
+        return cancelledJobs.contains(jobId);
+    }
+
+    public boolean isRunning(String jobId) {
+        return activeJobs.containsKey(jobId);
+    }
+
+    public Collection<ScanJobProgress> getActiveJobs() {
+        return activeJobs.values();
+    }
+
+    /**
+     * Adds this node's not yet flushed counters to a job read from the database, so pollers
+     * see current numbers without waiting for the next flush. The persisted counters already
+     * hold what every node has flushed, so they are only ever added to.
+     */
+    public ScanJob applyTo(ScanJob job) {
+        ScanJobProgress progress = activeJobs.get(job.getId());
+        if (progress != null) {
+            int[] pending = progress.peekUnpersistedDeltas();
+            job.setCompletedTargets(job.getCompletedTargets() + pending[ScanJobProgress.COMPLETED]);
+            job.setSuccessfulTargets(job.getSuccessfulTargets() + pending[ScanJobProgress.SUCCESSFUL]);
+            job.setFailedTargets(job.getFailedTargets() + pending[ScanJobProgress.FAILED]);
+            job.setSweptTargets(job.getSweptTargets() + pending[ScanJobProgress.SWEPT]);
+            job.setLiveTargets(job.getLiveTargets() + pending[ScanJobProgress.LIVE]);
+            ScanPhase phase = progress.getPhase();
+            if (phase != null && (job.getPhase() == null || phase.compareTo(job.getPhase()) > 0)) {
+                job.setPhase(phase);
+            }
+        }
+        return job;
+    }
+
+    private void persistAll() {
+        for (ScanJobProgress progress : activeJobs.values()) {
+            persist(progress);
+        }
+    }
+
+    private void persist(ScanJobProgress progress) {
+        int[] deltas;
+        ScanChunk chunk;
+        String chunkOwner;
+        synchronized (progress) {
+            deltas = progress.takeUnpersistedDeltas();
+            chunk = progress.chunk;
+            chunkOwner = progress.chunkOwner;
+        }
+        Update update = increments(deltas, 1);
+        if (update == null) {
+            return;
+        }
+
+        try {
+            if (chunk != null && !scanChunkService.addProgress(chunk, chunkOwner, update)) {
+                logger.debug("Dropped progress of job {} made under a lost lease on chunk {}",
+                             progress.getJobId(), chunk.getId());
+                return;
+            }
+        } catch (Exception e) {
+            logger.warn("Could not persist progress of job {}: {}", progress.getJobId(), e.getMessage());
+            progress.restoreDeltas(deltas);
+            return;
+        }
+        try {
+            mongoTemplate.updateFirst(byId(progress.getJobId()), update, ScanJob.class);
+        } catch (Exception e) {
+            logger.warn("Could not persist progress of job {}: {}", progress.getJobId(), e.getMessage());
+            // Progress a chunk holds already is not retried, the job's final counters are summed
+            // from its chunks; without a chunk the job document is the only record
+            if (chunk == null) {
+                progress.restoreDeltas(deltas);
+            }
+        }
+    }
+
+    /**
+     * $inc of the non-zero counters, multiplied by the sign, or null if there are none.
+     */
+    private static Update increments(int[] counters, int sign) {
+        Update update = new Update();
+        boolean changed = false;
+        for (int i = 0; i < counters.length; i++) {
+            if (counters[i] != 0) {
+                update.inc(ScanJobProgress.FIELD_NAMES[i], sign * counters[i]);
+                changed = true;
+            }
+        }
+        return changed ? update : null;
+    }
+
+    private static Update resetCounters(int totalTargets) {
+        return new Update()
+                .set("totalTargets", totalTargets)
+                .set("completedTargets", 0)
+                .set("successfulTargets", 0)
+                .set("failedTargets", 0)
+                .set("sweptTargets", 0)
+                .set("liveTargets", 0)
+                .set("enrichedTargets", 0)
+                .set("unscannedTargets", 0)
+                .unset("phase");
+    }
+
+    private static Query byId(String jobId) {
+        return Query.query(Criteria.where("id").is(jobId));
+    }
+}
\ No newline at end of file
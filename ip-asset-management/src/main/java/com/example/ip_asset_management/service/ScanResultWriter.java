@@ -0,0 +1,187 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanResult;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffered writer for scan results. Results are queued in a bounded buffer and written with
+ * unordered insertMany calls when a batch fills up or the flush interval passes. When the
+ * buffer is full, callers block until the writer catches up; those waits are counted.
+ */
+@Component
+public class ScanResultWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ScanResultWriter.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scan.persistence.result-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${scan.persistence.result-buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${scan.persistence.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "result-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private BlockingQueue<PendingResult> buffer;
+    private Counter backpressureWaits;
+    private Counter writtenResults;
+
+    @PostConstruct
+    public void initialize() {
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        backpressureWaits = meterRegistry.counter("scan.results.backpressure.waits");
+        writtenResults = meterRegistry.counter("scan.results.written");
+        Gauge.builder("scan.results.buffered", buffer, BlockingQueue::size).register(meterRegistry);
+
+        flusher.scheduleWithFixedDelay(this::flushBuffered, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        flush();
+        flusher.shutdown();
+    }
+
+    /**
+     * Queues a result for insertion, blocking while the buffer is full.
+     *
+     * @return A future completed with the persisted result (id assigned) once its batch is written
+     */
+    public CompletableFuture<ScanResult> write(ScanResult result) {
+        PendingResult pending = new PendingResult(result);
+        if (!buffer.offer(pending)) {
+            backpressureWaits.increment();
+            logger.debug("Scan result buffer full ({} entries), waiting for the writer", bufferCapacity);
+            flusher.execute(this::flushBuffered);
+            try {
+                buffer.put(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pending.future.completeExceptionally(e);
+                return pending.future;
+            }
+        }
+
+        if (buffer.size() >= batchSize) {
+            flusher.execute(this::flushBuffered);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Writes everything buffered so far and waits until it is persisted. Called when a job
+     * completes or is cancelled so its results are not left sitting in the buffer.
+     */
+    public void flush() {
+        try {
+            flusher.submit(this::flushBuffered).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Scan result flush failed: {}", e.getCause().getMessage());
+        } catch (Exception e) {
+            // Flusher already shut down, write on the calling thread instead
+            flushBuffered();
+        }
+    }
+
+    public int getBufferedCount() {
+        return buffer.size();
+    }
+
+    public double getBackpressureWaits() {
+        return backpressureWaits.count();
+    }
+
+    private synchronized void flushBuffered() {
+        List<PendingResult> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<PendingResult> batch) {
+        List<Document> documents = new ArrayList<>(batch.size());
+        for (PendingResult pending : batch) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(pending.result, document);
+            documents.add(document);
+        }
+
+        Map<Integer, BulkWriteError> failures = new HashMap<>();
+        try {
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(ScanResult.class))
+                    .insertMany(documents, new InsertManyOptions().ordered(false));
+        } catch (MongoBulkWriteException e) {
+            // Unordered: everything except the reported documents was written
+            for (BulkWriteError error : e.getWriteErrors()) {
+                failures.put(error.getIndex(), error);
+            }
+            logger.error("{} of {} scan results failed to insert", failures.size(), batch.size());
+        } catch (Exception e) {
+            logger.error("Inserting {} scan results failed: {}", batch.size(), e.getMessage());
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            PendingResult pending = batch.get(i);
+            BulkWriteError failure = failures.get(i);
+            if (failure != null) {
+                pending.future.completeExceptionally(new IllegalStateException(failure.getMessage()));
+            } else {
+                // The driver assigns the _id on the document it inserted
+                Object id = documents.get(i).get("_id");
+                pending.result.setId(id != null ? id.toString() : null);
+                pending.future.complete(pending.result);
+            }
+        }
+        writtenResults.increment(batch.size() - failures.size());
+    }
+
+    private static final class PendingResult {
+        private final ScanResult result;
+        private final CompletableFuture<ScanResult> future = new CompletableFuture<>();
+
+        private PendingResult(ScanResult result) {
+            this.result = result;
+        }
+    }
+}
\ No newline at end of file
@@ -1,22 +1,33 @@
 package com.example.ip_asset_management.service;
 
 import com.example.ip_asset_management.dto.ScanJobRequest;
+import com.example.ip_asset_management.dto.ScanQueueEntry;
+import com.example.ip_asset_management.dto.SubnetRttResponse;
 import com.example.ip_asset_management.model.*;
 import com.example.ip_asset_management.repository.AssetRepository;
 import com.example.ip_asset_management.repository.ScanJobRepository;
 import com.example.ip_asset_management.repository.ScanResultRepository;
 import com.example.ip_asset_management.repository.UserRepository;
 import com.example.ip_asset_management.security.UserDetailsImpl;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Service
 public class ScanService {
@@ -35,7 +46,25 @@ public class ScanService {
     private UserRepository userRepository;
     
     @Autowired
-    private AdaptiveNetworkScanner adaptiveNetworkScanner;
+    private ScanProgressTracker progressTracker;
+    
+    @Autowired
+    private RttEstimator rttEstimator;
+    
+    @Autowired
+    private RecurringScanScheduler recurringScanScheduler;
+    
+    @Autowired
+    private ScanChunkService scanChunkService;
+    
+    @Autowired
+    private ScanAdmissionQueue admissionQueue;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
 
     public ScanJob createScanJob(ScanJobRequest request) {
         UserDetailsImpl userDetails = getCurrentUserDetails();
@@ -46,29 +75,27 @@ public class ScanService {
         scanJob.setDescription(request.getDescription());
         scanJob.setIpAddresses(request.getIpAddresses());
         scanJob.setIpSegments(request.getIpSegments());
+        scanJob.setExcludedSegments(request.getExcludedSegments());
+        scanJob.setSegmentZones(request.getSegmentZones());
         scanJob.setRecurring(request.isRecurring());
         scanJob.setSchedule(request.getSchedule());
+        if (request.isRecurring()) {
+            try {
+                scanJob.setNextRunAt(recurringScanScheduler.nextRunAt(request.getSchedule(), LocalDateTime.now()));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid schedule: " + e.getMessage());
+            }
+        }
         scanJob.setSettings(request.getSettings());
+        scanJob.setPriority(request.getPriority());
+        scanJob.setMaxProbeRate(request.getMaxProbeRate());
+        scanJob.setMinProbeRate(request.getMinProbeRate());
         scanJob.setCreatedAt(LocalDateTime.now());
         scanJob.setStatus(ScanJobStatus.CREATED);
         
-        int totalTargets = 0;
-        if (request.getIpAddresses() != null) {
-            totalTargets += request.getIpAddresses().size();
-        }
-        if (request.getIpSegments() != null) {
-            // Approximate count for segments
-            for (String segment : request.getIpSegments()) {
-                if (segment.contains("/24")) {
-                    totalTargets += 254; // Typical /24 network
-                } else if (segment.contains("/16")) {
-                    totalTargets += 100; // Just scan a portion of a /16 for demo
-                } else {
-                    totalTargets += 10; // Default for other cases
-                }
-            }
-        }
-        scanJob.setTotalTargets(totalTargets);
+        // Counting the ranges is cheap, no addresses are expanded here
+        long totalTargets = ScanTargetSet.fromJob(scanJob).size();
+        scanJob.setTotalTargets((int) Math.min(totalTargets, Integer.MAX_VALUE));
         scanJob.setCompletedTargets(0);
         scanJob.setSuccessfulTargets(0);
         scanJob.setFailedTargets(0);
@@ -80,29 +107,92 @@ public class ScanService {
         ScanJob scanJob = scanJobRepository.findById(scanJobId)
                 .orElseThrow(() -> new RuntimeException("Scan job not found"));
         
-        // Use the adaptive network scanner to run the job
-        logger.info("Starting scan job {} with adaptive scanning", scanJobId);
-        
-        // The scanner runs asynchronously and updates job status itself
-        CompletableFuture<ScanJob> future = adaptiveNetworkScanner.executeScanJob(scanJobId);
+        // Overlapping runs of one job would double its counters and its load
+        if (!admissionQueue.enqueue(scanJob.getId())) {
+            throw new RuntimeException("Scan job is already queued or running");
+        }
         
-        // We could monitor completion here if needed, but everything is handled in the scanner
+        // The job starts once the admission queue gets to it; the scanner updates its status
+        logger.info("Queued scan job {}", scanJobId);
+    }
+    
+    /**
+     * The admission queue as the current user may see it: other users' jobs only show up by
+     * their place, priority and size.
+     */
+    public List<ScanQueueEntry> getQueue() {
+        UserDetailsImpl userDetails = getCurrentUserDetails();
+        List<ScanQueueEntry> entries = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (ScanJob job : admissionQueue.getQueue()) {
+            ScanQueueEntry entry = new ScanQueueEntry();
+            entry.setPosition(entries.size() + 1);
+            entry.setOwn(userDetails.getId().equals(job.getUserId()));
+            if (entry.isOwn()) {
+                entry.setJobId(job.getId());
+                entry.setName(job.getName());
+            }
+            entry.setPriority(admissionQueue.priorityOf(job));
+            entry.setTotalTargets(job.getTotalTargets());
+            entry.setQueuedAt(job.getQueuedAt());
+            if (job.getQueuedAt() != null) {
+                entry.setWaitSeconds(Duration.between(job.getQueuedAt(), now).getSeconds());
+            }
+            entries.add(entry);
+        }
+        return entries;
     }
 
     public List<ScanJob> getCurrentUserScanJobs() {
         UserDetailsImpl userDetails = getCurrentUserDetails();
-        return scanJobRepository.findByUserId(userDetails.getId());
+        List<ScanJob> scanJobs = scanJobRepository.findByUserId(userDetails.getId());
+        scanJobs.forEach(progressTracker::applyTo);
+        admissionQueue.applyPositions(scanJobs);
+        return scanJobs;
     }
 
     public ScanJob getScanJob(String scanJobId) {
-        return scanJobRepository.findById(scanJobId)
+        ScanJob scanJob = scanJobRepository.findById(scanJobId)
                 .orElseThrow(() -> new RuntimeException("Scan job not found"));
+        // Running jobs report their live counters rather than the last flushed ones
+        progressTracker.applyTo(scanJob);
+        admissionQueue.applyPositions(List.of(scanJob));
+        return scanJob;
+    }
+
+    /**
+     * Round-trip estimates of the subnets a job scans, as used for its connect timeouts.
+     */
+    public List<SubnetRttResponse> getRttEstimates(String scanJobId) {
+        ScanJob scanJob = scanJobRepository.findById(scanJobId)
+                .orElseThrow(() -> new RuntimeException("Scan job not found"));
+        return rttEstimator.getEstimates(ScanTargetSet.fromJob(scanJob));
     }
 
     public List<ScanResult> getScanResults(String scanJobId) {
         return scanResultRepository.findByScanJobId(scanJobId);
     }
 
+    /**
+     * Writes a job's scan results to an export as they are read from a cursor.
+     */
+    public void exportScanResults(String scanJobId, OutputStream out, ExportWriter.Format format, boolean compress)
+            throws IOException {
+        Query query = Query.query(Criteria.where("scanJobId").is(scanJobId))
+                .cursorBatchSize(ExportWriter.CURSOR_BATCH_SIZE);
+        List<String> columns = List.of("id", "scanJobId", "assetId", "ipAddress", "hostname", "successful",
+                                       "errorMessage", "scanTime", "collectedData");
+        
+        try (Stream<ScanResult> results = mongoTemplate.stream(query, ScanResult.class);
+             ExportWriter writer = new ExportWriter(out, format, compress, columns, objectMapper)) {
+            Iterator<ScanResult> iterator = results.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+            }
+            logger.info("Exported {} results of scan job {} as {}", writer.getWritten(), scanJobId, format);
+        }
+    }
+
     public void deleteScanJob(String scanJobId) {
         ScanJob scanJob = scanJobRepository.findById(scanJobId)
                 .orElseThrow(() -> new RuntimeException("Scan job not found"));
@@ -115,10 +205,11 @@ public class ScanService {
         
         // If job is running, mark it as cancelled
         if (scanJob.getStatus() == ScanJobStatus.RUNNING) {
-            scanJob.setStatus(ScanJobStatus.CANCELLED);
-            scanJobRepository.save(scanJob);
+            progressTracker.cancel(scanJobId);
         } else {
+            // A scheduled job still waiting for a thread finds itself gone and is not started
             scanJobRepository.delete(scanJob);
+            scanChunkService.delete(scanJobId);
         }
     }
     
@@ -0,0 +1,382 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * The targets of a scan job. IPv4 addresses are held as sorted, non-overlapping ranges of
+ * ints and streamed lazily, so a /12 costs a few longs instead of a million Strings.
+ * Entries that are not IPv4 literals (host names) are kept as-is.
+ */
+public class ScanTargetSet implements Iterable<String> {
+    private static final Logger logger = LoggerFactory.getLogger(ScanTargetSet.class);
+
+    private static final int MIN_PREFIX_LENGTH = 8;
+
+    // Unsigned address values, inclusive on both ends
+    private final long[] starts;
+    private final long[] ends;
+    private final List<String> hostnames;
+    private final long addressCount;
+
+    private ScanTargetSet(List<long[]> ranges, List<String> hostnames) {
+        this.starts = new long[ranges.size()];
+        this.ends = new long[ranges.size()];
+        long count = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            starts[i] = ranges.get(i)[0];
+            ends[i] = ranges.get(i)[1];
+            count += ends[i] - starts[i] + 1;
+        }
+        this.addressCount = count;
+        this.hostnames = Collections.unmodifiableList(hostnames);
+    }
+
+    public static ScanTargetSet fromJob(ScanJob job) {
+        return of(job.getIpAddresses(), job.getIpSegments(), job.getExcludedSegments());
+    }
+
+    /**
+     * Builds a target set from single addresses, segments (CIDR /8 to /32, full or last-octet
+     * ranges, single addresses) and exclusions in the same notations.
+     */
+    public static ScanTargetSet of(Collection<String> ipAddresses, Collection<String> ipSegments,
+                                   Collection<String> excludedSegments) {
+        List<long[]> included = new ArrayList<>();
+        Set<String> hostnames = new LinkedHashSet<>();
+
+        if (ipAddresses != null) {
+            for (String entry : ipAddresses) {
+                addEntry(entry, included, hostnames);
+            }
+        }
+        if (ipSegments != null) {
+            for (String entry : ipSegments) {
+                addEntry(entry, included, hostnames);
+            }
+        }
+
+        List<long[]> excluded = new ArrayList<>();
+        if (excludedSegments != null) {
+            for (String entry : excludedSegments) {
+                if (entry == null || entry.isBlank()) {
+                    continue;
+                }
+                try {
+                    excluded.add(parseRange(entry.trim(), false));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring invalid exclusion {}: {}", entry, e.getMessage());
+                }
+            }
+        }
+
+        return new ScanTargetSet(subtract(merge(included), merge(excluded)), new ArrayList<>(hostnames));
+    }
+
+    private static void addEntry(String entry, List<long[]> ranges, Set<String> hostnames) {
+        if (entry == null || entry.isBlank()) {
+            return;
+        }
+        String trimmed = entry.trim();
+        try {
+            ranges.add(parseRange(trimmed, true));
+        } catch (IllegalArgumentException e) {
+            // Not an IPv4 notation we understand; keep it so the scan reports the failure
+            // (or resolves it, if it is a host name)
+            if (trimmed.contains("/")) {
+                logger.warn("Error expanding IP segment {}: {}", trimmed, e.getMessage());
+            }
+            hostnames.add(trimmed);
+        }
+    }
+
+    /**
+     * Total number of targets, addresses and host names.
+     */
+    public long size() {
+        return addressCount + hostnames.size();
+    }
+
+    public long getAddressCount() {
+        return addressCount;
+    }
+
+    public List<String> getHostnames() {
+        return hostnames;
+    }
+
+    /**
+     * Whether any address between the two unsigned bounds, inclusive, is a target.
+     */
+    public boolean intersects(long from, long to) {
+        int low = 0;
+        int high = ends.length - 1;
+        // First range that ends at or after the lower bound
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] < from) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low < starts.length && starts[low] <= to;
+    }
+
+    /**
+     * Cuts the addresses into consecutive pieces of at most the given number of addresses.
+     *
+     * @return Unsigned bounds of each piece, inclusive on both ends
+     */
+    public List<long[]> split(long chunkSize) {
+        List<long[]> chunks = new ArrayList<>();
+        long chunkStart = -1;
+        long remaining = 0;
+        for (int i = 0; i < starts.length; i++) {
+            long start = starts[i];
+            while (start <= ends[i]) {
+                if (chunkStart < 0) {
+                    chunkStart = start;
+                    remaining = chunkSize;
+                }
+                long taken = Math.min(remaining, ends[i] - start + 1);
+                start += taken;
+                remaining -= taken;
+                if (remaining == 0) {
+                    chunks.add(new long[]{chunkStart, start - 1});
+                    chunkStart = -1;
+                }
+            }
+        }
+        if (chunkStart >= 0) {
+            chunks.add(new long[]{chunkStart, ends[ends.length - 1]});
+        }
+        return chunks;
+    }
+
+    /**
+     * The addresses between the two unsigned bounds, inclusive, without the host names.
+     */
+    public ScanTargetSet restrictTo(long from, long to) {
+        List<long[]> ranges = new ArrayList<>();
+        for (int i = 0; i < starts.length; i++) {
+            if (ends[i] >= from && starts[i] <= to) {
+                ranges.add(new long[]{Math.max(starts[i], from), Math.min(ends[i], to)});
+            }
+        }
+        return new ScanTargetSet(ranges, new ArrayList<>());
+    }
+
+    /**
+     * Just the host names of this set.
+     */
+    public ScanTargetSet hostnamesOnly() {
+        return new ScanTargetSet(new ArrayList<>(), new ArrayList<>(hostnames));
+    }
+
+    /**
+     * Lazily walks every IPv4 address in ascending order.
+     */
+    public PrimitiveIterator.OfInt addresses() {
+        return new PrimitiveIterator.OfInt() {
+            private int range = 0;
+            private long next = starts.length > 0 ? starts[0] : 0;
+
+            @Override
+            public boolean hasNext() {
+                return range < starts.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int value = (int) next;
+                if (next == ends[range]) {
+                    range++;
+                    if (range < starts.length) {
+                        next = starts[range];
+                    }
+                } else {
+                    next++;
+                }
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Walks all targets as strings: the addresses first, formatted on demand, then the host names.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        PrimitiveIterator.OfInt addressIterator = addresses();
+        Iterator<String> hostnameIterator = hostnames.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return addressIterator.hasNext() || hostnameIterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+                if (addressIterator.hasNext()) {
+                    return toDottedQuad(addressIterator.nextInt());
+                }
+                return hostnameIterator.next();
+            }
+        };
+    }
+
+    /**
+     * Parses CIDR (a.b.c.d/p), full range (a.b.c.d-w.x.y.z), last-octet range (a.b.c.d-e)
+     * or a single address into an inclusive unsigned range. With {@code hostsOnly} the network
+     * and broadcast addresses of a CIDR block are left out.
+     */
+    static long[] parseRange(String notation, boolean hostsOnly) {
+        if (notation.contains("/")) {
+            String[] parts = notation.split("/");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid CIDR notation");
+            }
+            long base = toUnsigned(parseIpv4(parts[0]));
+            int prefixLength;
+            try {
+                prefixLength = Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length");
+            }
+            if (prefixLength < MIN_PREFIX_LENGTH || prefixLength > 32) {
+                throw new IllegalArgumentException("Prefix length must be between /" + MIN_PREFIX_LENGTH + " and /32");
+            }
+
+            long mask = (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+            long network = base & mask;
+            long broadcast = network | (~mask & 0xFFFFFFFFL);
+            if (hostsOnly && prefixLength <= 30) {
+                // Skip the network and broadcast addresses, as a /24 always scanned .1 to .254
+                return new long[]{network + 1, broadcast - 1};
+            }
+            return new long[]{network, broadcast};
+        }
+
+        if (notation.contains("-")) {
+            String[] parts = notation.split("-");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid range notation");
+            }
+            long start = toUnsigned(parseIpv4(parts[0]));
+            long end;
+            if (parts[1].contains(".")) {
+                end = toUnsigned(parseIpv4(parts[1]));
+            } else {
+                end = (start & 0xFFFFFF00L) | parseOctet(parts[1]);
+            }
+            if (end < start) {
+                throw new IllegalArgumentException("Range end is before its start");
+            }
+            return new long[]{start, end};
+        }
+
+        long address = toUnsigned(parseIpv4(notation));
+        return new long[]{address, address};
+    }
+
+    public static int parseIpv4(String address) {
+        String[] octets = address.trim().split("\\.", -1);
+        if (octets.length != 4) {
+            throw new IllegalArgumentException("Not an IPv4 address: " + address);
+        }
+        int value = 0;
+        for (String octet : octets) {
+            value = (value << 8) | parseOctet(octet);
+        }
+        return value;
+    }
+
+    public static String toDottedQuad(int address) {
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "."
+                + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+    private static int parseOctet(String octet) {
+        String trimmed = octet.trim();
+        if (trimmed.isEmpty() || trimmed.length() > 3) {
+            throw new IllegalArgumentException("Invalid octet: " + octet);
+        }
+        int value = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Invalid octet: " + octet);
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (value > 255) {
+            throw new IllegalArgumentException("Invalid octet: " + octet);
+        }
+        return value;
+    }
+
+    private static long toUnsigned(int address) {
+        return address & 0xFFFFFFFFL;
+    }
+
+    private static List<long[]> merge(List<long[]> ranges) {
+        List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : sorted) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new long[]{range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+
+    // Both inputs are sorted and merged
+    private static List<long[]> subtract(List<long[]> included, List<long[]> excluded) {
+        if (excluded.isEmpty()) {
+            return included;
+        }
+
+        List<long[]> result = new ArrayList<>();
+        int e = 0;
+        for (long[] range : included) {
+            long start = range[0];
+            long end = range[1];
+            while (e < excluded.size() && excluded.get(e)[1] < start) {
+                e++;
+            }
+            int i = e;
+            while (start <= end && i < excluded.size() && excluded.get(i)[0] <= end) {
+                long[] cut = excluded.get(i);
+                if (cut[0] > start) {
+                    result.add(new long[]{start, cut[0] - 1});
+                }
+                start = Math.max(start, cut[1] + 1);
+                i++;
+            }
+            if (start <= end) {
+                result.add(new long[]{start, end});
+            }
+        }
+        return result;
+    }
+}
\ No newline at end of file
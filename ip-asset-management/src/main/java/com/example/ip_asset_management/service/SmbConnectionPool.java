@@ -0,0 +1,110 @@
+package com.example.ip_asset_management.service;
+
+import jcifs.CIFSContext;
+import jcifs.CIFSException;
+import jcifs.config.PropertyConfiguration;
+import jcifs.context.BaseContext;
+import jcifs.smb.NtlmPasswordAuthenticator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One JCIFS context shared by every SMB call of every job. JCIFS keeps transports and
+ * authenticated sessions per context, so sharing it lets repeat visits reuse them instead
+ * of reconnecting and logging on again. Transports idle for longer than the idle timeout are
+ * closed by JCIFS itself, and a permit limit caps how many SMB operations run at once.
+ */
+@Component
+public class SmbConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(SmbConnectionPool.class);
+
+    @Value("${scan.windows.username:}")
+    private String windowsUsername;
+
+    @Value("${scan.windows.password:}")
+    private String windowsPassword;
+
+    @Value("${scan.windows.domain:}")
+    private String windowsDomain;
+
+    @Value("${scan.smb.max-connections:32}")
+    private int maxConnections;
+
+    @Value("${scan.smb.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+
+    @Value("${scan.smb.response-timeout-ms:10000}")
+    private int responseTimeoutMs;
+
+    @Value("${scan.smb.idle-timeout-ms:60000}")
+    private int idleTimeoutMs;
+
+    @Value("${scan.smb.acquire-timeout-ms:30000}")
+    private long acquireTimeoutMs;
+
+    private CIFSContext baseContext;
+    private CIFSContext context;
+    private Semaphore permits;
+
+    @PostConstruct
+    public void initialize() throws CIFSException {
+        Properties properties = new Properties();
+        properties.setProperty("jcifs.smb.client.connTimeout", String.valueOf(connectTimeoutMs));
+        properties.setProperty("jcifs.smb.client.responseTimeout", String.valueOf(responseTimeoutMs));
+        properties.setProperty("jcifs.smb.client.soTimeout", String.valueOf(idleTimeoutMs));
+        properties.setProperty("jcifs.smb.client.sessionTimeout", String.valueOf(responseTimeoutMs));
+        baseContext = new BaseContext(new PropertyConfiguration(properties));
+
+        // The authenticated view shares the transport pool of the base context
+        if (!windowsUsername.isEmpty() && !windowsPassword.isEmpty()) {
+            context = baseContext.withCredentials(
+                    new NtlmPasswordAuthenticator(windowsDomain, windowsUsername, windowsPassword));
+        } else {
+            context = baseContext;
+        }
+        permits = new Semaphore(maxConnections);
+        logger.info("SMB connection pool ready with {} max concurrent operations", maxConnections);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        try {
+            baseContext.close();
+        } catch (CIFSException e) {
+            logger.warn("Closing SMB connections failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs an SMB operation on the shared context, waiting for a free connection slot first.
+     *
+     * @throws IllegalStateException if no slot frees up within the acquire timeout
+     */
+    public <T> T execute(SmbOperation<T> operation) throws Exception {
+        if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("No SMB connection slot available after " + acquireTimeoutMs + "ms");
+        }
+        try {
+            return operation.run(context);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getActiveCount() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    @FunctionalInterface
+    public interface SmbOperation<T> {
+        T run(CIFSContext context) throws Exception;
+    }
+}
\ No newline at end of file
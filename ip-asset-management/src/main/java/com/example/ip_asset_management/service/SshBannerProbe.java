@@ -0,0 +1,66 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.AssetType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads the SSH banner of hosts with port 22 open. Distribution builds of OpenSSH name the
+ * platform in their banner, which settles asset type and OS for a single round trip.
+ */
+@Component
+public class SshBannerProbe implements HostProbe {
+    private static final double BANNER_CONFIDENCE = 0.9;
+
+    @Autowired
+    private WindowsScannerService windowsScannerService;
+
+    @Override
+    public String getName() {
+        return "ssh-banner";
+    }
+
+    @Override
+    public Set<String> getProducedFields() {
+        return Set.of(HostProbeContext.ASSET_TYPE, HostProbeContext.OPERATING_SYSTEM);
+    }
+
+    @Override
+    public boolean isApplicable(HostProbeContext context) {
+        return context.isPortOpen(22);
+    }
+
+    @Override
+    public long estimateCostMillis(HostProbeContext context) {
+        // A connect and the banner, each about one round trip
+        return 2 * Math.max(1, context.getProbeResults().get(22).getRttMillis());
+    }
+
+    @Override
+    public void run(HostProbeContext context) {
+        Map<String, Object> sshInfo = windowsScannerService.attemptBasicSshScan(context.getIpAddress());
+        Object banner = sshInfo.get("sshBanner");
+        if (banner != null) {
+            context.getCollectedData().put("sshBanner", banner);
+        }
+
+        Object osType = sshInfo.get("osType");
+        if (osType == null) {
+            return;
+        }
+        String operatingSystem = osType.toString();
+        AssetType assetType;
+        if (operatingSystem.equals("Windows")) {
+            assetType = AssetType.WINDOWS;
+        } else if (operatingSystem.equals("macOS")) {
+            assetType = AssetType.MAC;
+        } else {
+            assetType = AssetType.LINUX;
+        }
+        context.determine(HostProbeContext.ASSET_TYPE, assetType, BANNER_CONFIDENCE);
+        context.determine(HostProbeContext.OPERATING_SYSTEM, operatingSystem, BANNER_CONFIDENCE);
+    }
+}
\ No newline at end of file
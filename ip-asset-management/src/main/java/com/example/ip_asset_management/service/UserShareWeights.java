@@ -0,0 +1,60 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Relative share of scan capacity each user is entitled to. Users get a weight of 1 unless
+ * configured otherwise as {@code username:weight} pairs, e.g. {@code ops:3,audit:0.5}.
+ */
+@Component
+public class UserShareWeights {
+    private static final Logger logger = LoggerFactory.getLogger(UserShareWeights.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${scan.fairshare.user-weights:}")
+    private String configuredWeights;
+
+    private final Map<String, Double> weightsByUsername = new HashMap<>();
+    private final Map<String, Double> weightsByUserId = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        for (String pair : configuredWeights.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.split(":");
+            try {
+                double weight = Double.parseDouble(parts[1].trim());
+                if (weight > 0) {
+                    weightsByUsername.put(parts[0].trim(), weight);
+                    continue;
+                }
+            } catch (RuntimeException e) {
+                // Reported below
+            }
+            logger.warn("Ignoring invalid scan share weight '{}'", pair.trim());
+        }
+    }
+
+    public double weightOf(String userId) {
+        if (userId == null || weightsByUsername.isEmpty()) {
+            return 1;
+        }
+        return weightsByUserId.computeIfAbsent(userId, id -> userRepository.findById(id)
+                .map(user -> weightsByUsername.getOrDefault(user.getUsername(), 1.0))
+                .orElse(1.0));
+    }
+}
\ No newline at end of file
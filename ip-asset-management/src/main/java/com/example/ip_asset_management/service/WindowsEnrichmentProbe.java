@@ -0,0 +1,59 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.AssetType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * Hands Windows hosts over to the enrichment queue, which asks the host itself over WMI, SMB
+ * or PowerShell. By far the most expensive probe, so it is planned last and dropped when a
+ * cheaper probe has already shown the host is not Windows.
+ */
+@Component
+public class WindowsEnrichmentProbe implements HostProbe {
+    // Typical time for the management fallback chain to answer
+    private static final long EXPECTED_COST_MS = 10_000;
+
+    @Autowired
+    private EnrichmentQueue enrichmentQueue;
+
+    @Override
+    public String getName() {
+        return "windows-enrichment";
+    }
+
+    @Override
+    public Set<String> getProducedFields() {
+        return Set.of(HostProbeContext.OPERATING_SYSTEM, HostProbeContext.OS_VERSION,
+                HostProbeContext.MANUFACTURER, HostProbeContext.MODEL);
+    }
+
+    @Override
+    public boolean isApplicable(HostProbeContext context) {
+        AssetType assetType = context.getAssetType();
+        if (assetType != AssetType.WINDOWS && context.isConclusive(HostProbeContext.ASSET_TYPE)) {
+            // Open SMB on a host known to be something else is Samba or a NAS
+            return false;
+        }
+        return assetType == AssetType.WINDOWS
+                || Boolean.TRUE.equals(context.getOpenPorts().get("RDP"))
+                || Boolean.TRUE.equals(context.getOpenPorts().get("SMB"));
+    }
+
+    @Override
+    public long estimateCostMillis(HostProbeContext context) {
+        return EXPECTED_COST_MS;
+    }
+
+    @Override
+    public void run(HostProbeContext context) {
+        // Enrichment can take a long time, so it runs on its own queue and this worker moves
+        // on; it is queued after the basic upsert, so its results are written on top of it
+        context.setEnrichmentPending(true);
+        context.afterAssetWrite(() -> context.getCollectedData().put("enrichmentQueued",
+                enrichmentQueue.submit(context.getScanJobId(), context.getScanRunAt(),
+                        context.getIpAddress(), context.getProbeResults())));
+    }
+}
\ No newline at end of file
@@ -1,13 +1,12 @@
 package com.example.ip_asset_management.service;
 
+import com.example.ip_asset_management.model.EnrichmentMethod;
 import com.profesorfalken.wmi4java.WMI4Java;
 import com.profesorfalken.wmi4java.WMIException;
-import jcifs.CIFSContext;
-import jcifs.context.BaseContext;
-import jcifs.smb.NtlmPasswordAuthenticator;
 import jcifs.smb.SmbFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -16,6 +15,7 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -41,6 +41,21 @@ public class WindowsScannerService {
     @Value("${scan.windows.domain:}")
     private String windowsDomain;
     
+    @Value("${scan.timeout.seconds:30}")
+    private long remoteCommandTimeoutSeconds;
+    
+    @Autowired
+    private NioPortProber portProber;
+    
+    @Autowired
+    private RttEstimator rttEstimator;
+    
+    @Autowired
+    private SmbConnectionPool smbConnectionPool;
+    
+    @Autowired
+    private EnrichmentCircuitBreakers circuitBreakers;
+    
     /**
      * Gets detailed system information from a Windows machine.
      * 
@@ -48,61 +63,99 @@ public class WindowsScannerService {
      * @return A map containing system information, or empty map if retrieval fails
      */
     public Map<String, Object> getWindowsSystemInfo(String ipAddress) {
+        return getWindowsSystemInfo(ipAddress, Map.of());
+    }
+    
+    /**
+     * Gets detailed system information from a Windows machine, reusing port probes the
+     * caller already made instead of connecting to those ports again.
+     * 
+     * @param ipAddress The IP address of the Windows machine
+     * @param knownPorts Probe results by port from an earlier scan of the host
+     * @return A map containing system information, or empty map if retrieval fails
+     */
+    public Map<String, Object> getWindowsSystemInfo(String ipAddress, Map<Integer, NioPortProber.ProbeResult> knownPorts) {
+        return getWindowsSystemInfo(ipAddress, knownPorts, null);
+    }
+    
+    /**
+     * Gets detailed system information from a Windows machine. The method that last worked
+     * for the host is tried first, the others follow in the usual order, and methods whose
+     * circuit breaker is open for the host or its subnet are skipped. The method that
+     * answered is reported under {@code collectionMethod}.
+     * 
+     * @param ipAddress The IP address of the Windows machine
+     * @param knownPorts Probe results by port from an earlier scan of the host
+     * @param preferred Method that last succeeded for this host, or null
+     * @return A map containing system information, or empty map if retrieval fails
+     */
+    public Map<String, Object> getWindowsSystemInfo(String ipAddress, Map<Integer, NioPortProber.ProbeResult> knownPorts,
+                                                    EnrichmentMethod preferred) {
         Map<String, Object> systemInfo = new HashMap<>();
         
-        // First try WMI for remote Windows machines
-        try {
-            if (tryWmiConnection(ipAddress, systemInfo)) {
-                logger.info("Successfully retrieved Windows system info via WMI for {}", ipAddress);
-                return systemInfo;
+        for (EnrichmentMethod method : attemptOrder(preferred)) {
+            // Local commands only exist when we run on Windows ourselves
+            if (method == EnrichmentMethod.LOCAL_COMMANDS && !isWindowsOS()) {
+                continue;
             }
-        } catch (Exception e) {
-            logger.warn("WMI connection failed for {}: {}", ipAddress, e.getMessage());
-        }
-        
-        // Fallback to SMB/CIFS
-        try {
-            if (trySmbConnection(ipAddress, systemInfo)) {
-                logger.info("Successfully retrieved Windows system info via SMB for {}", ipAddress);
-                return systemInfo;
+            // Port scanning reuses known probes and is the last resort, so it is never skipped
+            boolean guarded = method != EnrichmentMethod.PORT_SCAN;
+            if (guarded && !circuitBreakers.allowRequest(method, ipAddress)) {
+                logger.debug("Skipping {} for {}, its circuit breaker is open", method, ipAddress);
+                continue;
             }
-        } catch (Exception e) {
-            logger.warn("SMB connection failed for {}: {}", ipAddress, e.getMessage());
-        }
-        
-        // Fallback to PowerShell remoting
-        try {
-            if (tryPowerShellRemoting(ipAddress, systemInfo)) {
-                logger.info("Successfully retrieved Windows system info via PowerShell remoting for {}", ipAddress);
-                return systemInfo;
+            
+            boolean success = false;
+            try {
+                success = tryMethod(method, ipAddress, knownPorts, systemInfo);
+            } catch (Exception e) {
+                logger.warn("{} collection failed for {}: {}", method, ipAddress, e.getMessage());
             }
-        } catch (Exception e) {
-            logger.warn("PowerShell remoting failed for {}: {}", ipAddress, e.getMessage());
-        }
-        
-        // If all methods failed, try using local system commands if running on Windows
-        try {
-            if (isWindowsOS() && tryLocalCommands(ipAddress, systemInfo)) {
-                logger.info("Retrieved basic Windows system info via local commands for {}", ipAddress);
-                return systemInfo;
+            if (guarded) {
+                circuitBreakers.record(method, ipAddress, success);
             }
-        } catch (Exception e) {
-            logger.warn("Local Windows commands failed for {}: {}", ipAddress, e.getMessage());
-        }
-        
-        // If all else fails, use port scanning to determine as much as possible
-        try {
-            if (determineInfoFromPorts(ipAddress, systemInfo)) {
-                logger.info("Determined basic system info from port scanning for {}", ipAddress);
+            
+            if (success) {
+                logger.info("Retrieved Windows system info via {} for {}", method, ipAddress);
+                systemInfo.put("collectionMethod", method.name());
                 return systemInfo;
             }
-        } catch (Exception e) {
-            logger.warn("Port-based info determination failed for {}: {}", ipAddress, e.getMessage());
+            if (Thread.currentThread().isInterrupted()) {
+                // The caller's deadline passed, the remaining methods would not be waited for
+                break;
+            }
         }
         
         return systemInfo;
     }
     
+    private List<EnrichmentMethod> attemptOrder(EnrichmentMethod preferred) {
+        List<EnrichmentMethod> order = new ArrayList<>(List.of(EnrichmentMethod.values()));
+        if (preferred != null && preferred != EnrichmentMethod.PORT_SCAN) {
+            order.remove(preferred);
+            order.add(0, preferred);
+        }
+        return order;
+    }
+    
+    private boolean tryMethod(EnrichmentMethod method, String ipAddress, Map<Integer, NioPortProber.ProbeResult> knownPorts,
+                              Map<String, Object> systemInfo) {
+        switch (method) {
+            case WMI:
+                return tryWmiConnection(ipAddress, systemInfo);
+            case SMB:
+                return trySmbConnection(ipAddress, systemInfo);
+            case POWERSHELL:
+                return tryPowerShellRemoting(ipAddress, systemInfo);
+            case LOCAL_COMMANDS:
+                return tryLocalCommands(ipAddress, systemInfo);
+            case PORT_SCAN:
+                return determineInfoFromPorts(ipAddress, knownPorts, systemInfo);
+            default:
+                return false;
+        }
+    }
+    
     /**
      * Try to connect to the remote Windows machine using WMI4Java.
      */
@@ -180,20 +233,13 @@ public class WindowsScannerService {
      */
     private boolean trySmbConnection(String ipAddress, Map<String, Object> systemInfo) {
         try {
-            // Create SMB context with credentials if available
-            CIFSContext context;
-            if (windowsUsername != null && !windowsUsername.isEmpty() && 
-                windowsPassword != null && !windowsPassword.isEmpty()) {
-                NtlmPasswordAuthenticator auth = new NtlmPasswordAuthenticator(
-                    windowsDomain, windowsUsername, windowsPassword);
-                context = new BaseContext(null).withCredentials(auth);
-            } else {
-                context = new BaseContext(null);
-            }
-            
-            // Try to connect to the admin share to check accessibility
-            SmbFile smbFile = new SmbFile(String.format("smb://%s/C$/", ipAddress), context);
-            boolean accessible = smbFile.exists();
+            // Try to connect to the admin share to check accessibility; the shared context
+            // reuses the transport and logon of earlier visits
+            boolean accessible = smbConnectionPool.execute(context -> {
+                try (SmbFile smbFile = new SmbFile(String.format("smb://%s/C$/", ipAddress), context)) {
+                    return smbFile.exists();
+                }
+            });
             
             if (accessible) {
                 systemInfo.put("smbAccessible", true);
@@ -257,7 +303,7 @@ public class WindowsScannerService {
             psCommand.append("}\"");
             
             Process process = Runtime.getRuntime().exec(psCommand.toString());
-            if (process.waitFor(30, TimeUnit.SECONDS)) {
+            if (process.waitFor(remoteCommandTimeoutSeconds, TimeUnit.SECONDS)) {
                 BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
                 StringBuilder output = new StringBuilder();
                 String line;
@@ -281,6 +327,10 @@ public class WindowsScannerService {
                     
                     return true;
                 }
+            } else {
+                // Do not leave a hung remoting session behind
+                process.destroyForcibly();
+                logger.debug("PowerShell remoting to {} timed out after {}s", ipAddress, remoteCommandTimeoutSeconds);
             }
             
             return false;
@@ -372,12 +422,23 @@ public class WindowsScannerService {
     /**
      * If other methods fail, try to gather info based on open ports.
      */
-    private boolean determineInfoFromPorts(String ipAddress, Map<String, Object> systemInfo) {
+    private boolean determineInfoFromPorts(String ipAddress, Map<Integer, NioPortProber.ProbeResult> knownPorts,
+                                           Map<String, Object> systemInfo) {
         try {
-            // Check common Windows ports
-            boolean rdpOpen = isPortOpen(ipAddress, 3389);
-            boolean smbOpen = isPortOpen(ipAddress, 445);
-            boolean netbiosOpen = isPortOpen(ipAddress, 139);
+            // Check common Windows ports concurrently, skipping the ones already probed
+            Map<Integer, NioPortProber.ProbeResult> ports = new HashMap<>(knownPorts);
+            List<Integer> missing = new ArrayList<>();
+            for (int port : List.of(3389, 445, 139)) {
+                if (!ports.containsKey(port)) {
+                    missing.add(port);
+                }
+            }
+            if (!missing.isEmpty()) {
+                ports.putAll(portProber.probeAll(ipAddress, missing, rttEstimator.timeoutFor(ipAddress)));
+            }
+            boolean rdpOpen = ports.get(3389).isOpen();
+            boolean smbOpen = ports.get(445).isOpen();
+            boolean netbiosOpen = ports.get(139).isOpen();
             
             // If typical Windows ports are open, it's likely Windows
             if (rdpOpen || smbOpen || netbiosOpen) {
@@ -398,18 +459,6 @@ public class WindowsScannerService {
         }
     }
     
-    /**
-     * Check if a specific port is open.
-     */
-    private boolean isPortOpen(String ip, int port) {
-        try (java.net.Socket socket = new java.net.Socket()) {
-            socket.connect(new java.net.InetSocketAddress(ip, port), 1000); // 1 second timeout
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     /**
      * Attempts basic SSH-based scanning for non-Windows systems
      * Particularly useful for Mac and Linux systems
@@ -422,7 +471,10 @@ public class WindowsScannerService {
         
         // Check if SSH port is open
         try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(ipAddress, 22), 1000);
+            int timeoutMs = (int) rttEstimator.timeoutFor(ipAddress);
+            socket.connect(new InetSocketAddress(ipAddress, 22), timeoutMs);
+            // Servers send the banner right away; one that stays silent must not hold the caller
+            socket.setSoTimeout(timeoutMs);
             if (socket.isConnected()) {
                 results.put("sshAvailable", true);
                 results.put("hostType", "Likely Unix/Linux/Mac");
@@ -443,6 +495,8 @@ public class WindowsScannerService {
                             results.put("osType", "Ubuntu Linux");
                         } else if (banner.toLowerCase().contains("debian")) {
                             results.put("osType", "Debian Linux");
+                        } else if (banner.toLowerCase().contains("windows")) {
+                            results.put("osType", "Windows");
                         }
                     }
                 } catch (Exception e) {
@@ -0,0 +1,334 @@
+package com.example.ip_asset_management.repository;
+
+import com.example.ip_asset_management.model.AssetType;
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.service.AssetFingerprints;
+import com.example.ip_asset_management.service.AssetService;
+import com.example.ip_asset_management.service.AssetUpsertWriter;
+import com.example.ip_asset_management.service.EnrichmentQueue;
+import com.example.ip_asset_management.service.ScanAdmissionQueue;
+import com.example.ip_asset_management.service.ScanChunkService;
+import com.example.ip_asset_management.service.UserShareWeights;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonRegularExpression;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.function.Executable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs every derived repository query and the hot queries the services build on the template
+ * against a real MongoDB with the indexes the models declare, captures the commands they send,
+ * and fails if explain shows a collection scan for any of them, or if one matches by an
+ * unanchored regex, which has no index bounds and reads every key of an index at best.
+ * Needs a MongoDB at {@code ipam.test.mongodb.uri} (default localhost). Without one the checks
+ * are skipped, unless {@code ipam.test.mongodb.required} is set, as the {@code query-plans}
+ * profile does, in which case they fail.
+ */
+class RepositoryQueryPlanTests {
+
+	private static final String DATABASE = "ipam_query_plan_test";
+	private static final List<Class<?>> REPOSITORIES = List.of(AssetRepository.class, RoleRepository.class,
+			ScanChunkRepository.class, ScanJobRepository.class, ScanResultRepository.class, UserRepository.class);
+	private static final Set<String> EXPLAINABLE = Set.of("find", "aggregate", "count", "distinct", "delete",
+			"update", "findAndModify");
+	// Queries accepted although they read a whole index, with the reason
+	private static final Map<String, String> KNOWN_FULL_INDEX_SCANS = Map.of(
+			"AssetRepository.findByOperatingSystemContaining",
+			"ad-hoc substring search, reads the small operatingSystem index instead of every asset");
+
+	private static final List<BsonDocument> commands = Collections.synchronizedList(new ArrayList<>());
+	private static MongoClient client;
+	private static MongoTemplate template;
+	private static MongoRepositoryFactory repositoryFactory;
+
+	@BeforeAll
+	static void connect() {
+		String uri = System.getProperty("ipam.test.mongodb.uri", "mongodb://localhost:27017");
+		CommandListener listener = new CommandListener() {
+			@Override
+			public void commandStarted(CommandStartedEvent event) {
+				if (EXPLAINABLE.contains(event.getCommandName())) {
+					commands.add(event.getCommand().clone());
+				}
+			}
+		};
+		MongoClientSettings settings = MongoClientSettings.builder()
+				.applyConnectionString(new ConnectionString(uri))
+				.applyToClusterSettings(cluster -> cluster.serverSelectionTimeout(2, TimeUnit.SECONDS))
+				.addCommandListener(listener)
+				.build();
+		client = MongoClients.create(settings);
+		try {
+			client.getDatabase("admin").runCommand(new Document("ping", 1));
+		} catch (Exception e) {
+			client.close();
+			client = null;
+			if (Boolean.getBoolean("ipam.test.mongodb.required")) {
+				fail("No MongoDB at " + uri + ", but the query plan checks are required", e);
+			}
+			assumeTrue(false, "No MongoDB at " + uri + ", skipping query plan checks");
+		}
+
+		template = new MongoTemplate(client, DATABASE);
+		template.getDb().drop();
+		createDeclaredIndexes();
+		repositoryFactory = new MongoRepositoryFactory(template);
+	}
+
+	@AfterAll
+	static void disconnect() {
+		if (client != null) {
+			template.getDb().drop();
+			client.close();
+		}
+	}
+
+	@TestFactory
+	Stream<DynamicTest> repositoryQueriesUseIndexes() {
+		return REPOSITORIES.stream()
+				.flatMap(repository -> Stream.of(repository.getDeclaredMethods())
+						.map(method -> DynamicTest.dynamicTest(repository.getSimpleName() + "." + method.getName(),
+								() -> assertUsesIndexes(repository.getSimpleName() + "." + method.getName(),
+										() -> method.invoke(repositoryFactory.getRepository(repository),
+												sampleArguments(method))))));
+	}
+
+	@TestFactory
+	Stream<DynamicTest> templateQueriesUseIndexes() {
+		Map<String, Executable> queries = new LinkedHashMap<>();
+
+		AssetUpsertWriter assetUpsertWriter = new AssetUpsertWriter();
+		ReflectionTestUtils.setField(assetUpsertWriter, "mongoTemplate", template);
+		ReflectionTestUtils.setField(assetUpsertWriter, "meterRegistry", new SimpleMeterRegistry());
+		ReflectionTestUtils.setField(assetUpsertWriter, "batchSize", 100);
+		ReflectionTestUtils.setField(assetUpsertWriter, "bufferCapacity", 100);
+		ReflectionTestUtils.setField(assetUpsertWriter, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+		queries.put("AssetUpsertWriter.flush", () -> {
+			assetUpsertWriter.initialize();
+			try {
+				assetUpsertWriter.upsert("10.0.0.1", Update.update("online", true));
+				assetUpsertWriter.upsert("10.0.0.2", Update.update("online", true));
+				assetUpsertWriter.markOffline("10.0.0.3");
+				assetUpsertWriter.flush();
+			} finally {
+				assetUpsertWriter.cleanup();
+			}
+		});
+
+		ScanChunkService scanChunkService = new ScanChunkService();
+		ReflectionTestUtils.setField(scanChunkService, "mongoTemplate", template);
+		ScanChunk chunk = new ScanChunk();
+		chunk.setId("sample-000000");
+		chunk.setScanJobId("sample");
+		chunk.setAttempts(2);
+		queries.put("ScanChunkService.claim", () -> scanChunkService.claim("node", "dmz", null, List.of("busy"), 60));
+		queries.put("ScanChunkService.claim of one job", () -> scanChunkService.claim("node", null, "sample", List.of(), 60));
+		queries.put("ScanChunkService.addProgress", () -> scanChunkService.addProgress(chunk, "node",
+				new Update().inc("completedTargets", 1)));
+		queries.put("ScanChunkService.deleteEarlierResults", () -> scanChunkService.deleteEarlierResults(chunk));
+		queries.put("ScanChunkService.sumProgress", () -> scanChunkService.sumProgress("sample"));
+		queries.put("ScanChunkService.leasedJobs", () -> scanChunkService.leasedJobs("node"));
+
+		ScanAdmissionQueue admissionQueue = new ScanAdmissionQueue();
+		ReflectionTestUtils.setField(admissionQueue, "mongoTemplate", template);
+		ReflectionTestUtils.setField(admissionQueue, "userShareWeights", new UserShareWeights());
+		queries.put("ScanAdmissionQueue.getQueue", admissionQueue::getQueue);
+		queries.put("ScanAdmissionQueue.enqueue", () -> admissionQueue.enqueue("sample"));
+		queries.put("ScanAdmissionQueue.countInFlight",
+				() -> ReflectionTestUtils.invokeMethod(admissionQueue, "countInFlight"));
+
+		AssetService assetService = new AssetService();
+		ReflectionTestUtils.setField(assetService, "mongoTemplate", template);
+		ReflectionTestUtils.setField(assetService, "defaultPageSize", 100);
+		ReflectionTestUtils.setField(assetService, "maxPageSize", 500);
+		String cursor = new ObjectId().toHexString();
+		queries.put("AssetService.getAssetPage", () -> assetService.getAssetPage(cursor, null, false, null, null, false));
+		queries.put("AssetService.getAssetPage by type",
+				() -> assetService.getAssetPage(cursor, null, true, AssetType.LINUX, null, true));
+		queries.put("AssetService.getAssetPage by online",
+				() -> assetService.getAssetPage(cursor, null, false, null, true, true));
+
+		AssetFingerprints assetFingerprints = new AssetFingerprints();
+		ReflectionTestUtils.setField(assetFingerprints, "mongoTemplate", template);
+		ReflectionTestUtils.setField(assetFingerprints, "enabled", true);
+		queries.put("AssetFingerprints.findAll", () -> assetFingerprints.findAll(List.of("10.0.0.1", "10.0.0.2")));
+
+		EnrichmentQueue enrichmentQueue = new EnrichmentQueue();
+		ReflectionTestUtils.setField(enrichmentQueue, "mongoTemplate", template);
+		queries.put("EnrichmentQueue.findPreferredMethod",
+				() -> ReflectionTestUtils.invokeMethod(enrichmentQueue, "findPreferredMethod", "10.0.0.1"));
+
+		return queries.entrySet().stream().map(query -> DynamicTest.dynamicTest(query.getKey(),
+				() -> assertUsesIndexes(query.getKey(), query.getValue())));
+	}
+
+	private static void assertUsesIndexes(String name, Executable call) throws Throwable {
+		commands.clear();
+		call.execute();
+		List<BsonDocument> sent = new ArrayList<>(commands);
+		assertFalse(sent.isEmpty(), name + " sent no query");
+
+		for (BsonDocument command : sent) {
+			if (!KNOWN_FULL_INDEX_SCANS.containsKey(name) && hasUnanchoredRegex(command)) {
+				fail(name + " matches by an unanchored regex, which has no index bounds: " + command.toJson());
+			}
+			for (BsonDocument statement : explainable(command)) {
+				Document explain = template.getDb().runCommand(new Document("explain", statement)
+						.append("verbosity", "queryPlanner"));
+				if (hasCollectionScan(explain)) {
+					fail(name + " scans the whole collection: " + statement.toJson());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates the indexes of every mapped model, as auto index creation does on startup.
+	 */
+	private static void createDeclaredIndexes() {
+		MongoMappingContext mappingContext = (MongoMappingContext) template.getConverter().getMappingContext();
+		IndexResolver resolver = IndexResolver.create(mappingContext);
+		for (Class<?> repository : REPOSITORIES) {
+			Class<?> type = domainType(repository);
+			resolver.resolveIndexFor(type).forEach(index -> template.indexOps(type).ensureIndex(index));
+		}
+	}
+
+	private static Class<?> domainType(Class<?> repository) {
+		ParameterizedType type = (ParameterizedType) repository.getGenericInterfaces()[0];
+		return (Class<?>) type.getActualTypeArguments()[0];
+	}
+
+	/**
+	 * The command as sent, minus the session and routing fields explain does not accept. A bulk
+	 * update or delete is split into one command per statement, as explain takes only one.
+	 */
+	private static List<BsonDocument> explainable(BsonDocument command) {
+		BsonDocument copy = new BsonDocument();
+		for (String key : command.keySet()) {
+			if (!key.startsWith("$") && !key.equals("lsid") && !key.equals("txnNumber")) {
+				copy.put(key, command.get(key));
+			}
+		}
+		for (String statements : List.of("updates", "deletes")) {
+			if (copy.isArray(statements) && copy.getArray(statements).size() > 1) {
+				List<BsonDocument> split = new ArrayList<>();
+				for (BsonValue statement : copy.getArray(statements)) {
+					split.add(copy.clone().append(statements, new BsonArray(List.of(statement))));
+				}
+				return split;
+			}
+		}
+		return List.of(copy);
+	}
+
+	private static boolean hasUnanchoredRegex(BsonValue value) {
+		if (value instanceof BsonRegularExpression regex) {
+			return isUnanchored(regex.getPattern(), regex.getOptions());
+		}
+		if (value instanceof BsonDocument document) {
+			if (document.isString("$regex")) {
+				String options = document.isString("$options") ? document.getString("$options").getValue() : "";
+				return isUnanchored(document.getString("$regex").getValue(), options);
+			}
+			return document.values().stream().anyMatch(RepositoryQueryPlanTests::hasUnanchoredRegex);
+		}
+		if (value instanceof BsonArray array) {
+			return array.stream().anyMatch(RepositoryQueryPlanTests::hasUnanchoredRegex);
+		}
+		return false;
+	}
+
+	/**
+	 * Only a case-sensitive prefix match turns into index bounds.
+	 */
+	private static boolean isUnanchored(String pattern, String options) {
+		return !pattern.startsWith("^") || options.contains("i");
+	}
+
+	/**
+	 * Looks through every winning plan in the explain output, which nests them differently
+	 * per command and server version.
+	 */
+	private static boolean hasCollectionScan(Object node) {
+		if (node instanceof Document document) {
+			if (document.containsKey("winningPlan")) {
+				return containsStage(document.get("winningPlan"), "COLLSCAN");
+			}
+			return document.values().stream().anyMatch(RepositoryQueryPlanTests::hasCollectionScan);
+		}
+		if (node instanceof List<?> list) {
+			return list.stream().anyMatch(RepositoryQueryPlanTests::hasCollectionScan);
+		}
+		return false;
+	}
+
+	private static boolean containsStage(Object node, String stage) {
+		if (node instanceof Document document) {
+			return stage.equals(document.get("stage"))
+					|| document.values().stream().anyMatch(value -> containsStage(value, stage));
+		}
+		if (node instanceof List<?> list) {
+			return list.stream().anyMatch(value -> containsStage(value, stage));
+		}
+		return false;
+	}
+
+	private static Object[] sampleArguments(Method method) {
+		Class<?>[] types = method.getParameterTypes();
+		Object[] arguments = new Object[types.length];
+		for (int i = 0; i < types.length; i++) {
+			Class<?> type = types[i];
+			if (type == String.class) {
+				arguments[i] = "sample";
+			} else if (type == boolean.class || type == Boolean.class) {
+				arguments[i] = true;
+			} else if (type.isEnum()) {
+				arguments[i] = type.getEnumConstants()[0];
+			} else if (type == LocalDateTime.class) {
+				arguments[i] = LocalDateTime.now();
+			} else if (Collection.class.isAssignableFrom(type)) {
+				arguments[i] = List.of("sample");
+			} else {
+				fail("No sample argument for " + type.getName() + " in " + method.getName());
+			}
+		}
+		return arguments;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.dto.AssetPageResponse;
+import com.example.ip_asset_management.model.Asset;
+import com.example.ip_asset_management.model.AssetType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AssetServiceTests {
+
+	private static final String CURSOR = "65f0a1b2c3d4e5f601234567";
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private AssetService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new AssetService();
+		ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(service, "defaultPageSize", 2);
+		ReflectionTestUtils.setField(service, "maxPageSize", 3);
+	}
+
+	@Test
+	void firstPageStartsAtTheLowestId() {
+		service.getAssetPage(null, null, false, null, null, false);
+
+		Query query = pageQuery();
+		assertEquals(new Document(), query.getQueryObject());
+		assertEquals(new Document("id", 1), query.getSortObject());
+		assertEquals(3, query.getLimit());
+	}
+
+	@Test
+	void nextPageSeeksPastTheCursor() {
+		service.getAssetPage(CURSOR, 3, false, AssetType.LINUX, true, false);
+
+		Query query = pageQuery();
+		assertEquals(new Document("assetType", AssetType.LINUX).append("online", true)
+				.append("id", new Document("$gt", new ObjectId(CURSOR))), query.getQueryObject());
+		assertEquals(new Document("id", 1), query.getSortObject());
+		assertEquals(4, query.getLimit());
+	}
+
+	@Test
+	void pageSizeIsCappedAtTheMaximum() {
+		service.getAssetPage(null, 1000, false, null, null, false);
+		assertEquals(4, pageQuery().getLimit());
+	}
+
+	@Test
+	void onlyTheFullViewReadsAdditionalInfo() {
+		service.getAssetPage(null, null, false, null, null, false);
+		assertFalse(pageQuery().getFieldsObject().containsKey("additionalInfo"));
+		assertTrue(pageQuery().getFieldsObject().containsKey("ipAddress"));
+
+		clearInvocations(mongoTemplate);
+		service.getAssetPage(null, null, true, null, null, false);
+		assertTrue(pageQuery().getFieldsObject().containsKey("additionalInfo"));
+	}
+
+	@Test
+	void extraAssetSignalsANextPage() {
+		when(mongoTemplate.find(any(Query.class), eq(Asset.class))).thenReturn(assets(3));
+
+		AssetPageResponse page = service.getAssetPage(null, null, false, null, null, false);
+
+		assertEquals(2, page.getItems().size());
+		assertEquals(page.getItems().get(1).getId(), page.getNextCursor());
+		assertNull(page.getTotalCount());
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		when(mongoTemplate.find(any(Query.class), eq(Asset.class))).thenReturn(assets(2));
+
+		AssetPageResponse page = service.getAssetPage(null, null, false, null, null, false);
+
+		assertEquals(2, page.getItems().size());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	void invalidCursorIsRejected() {
+		assertThrows(RuntimeException.class, () -> service.getAssetPage("not-an-id", null, false, null, null, false));
+		verify(mongoTemplate, never()).find(any(Query.class), eq(Asset.class));
+	}
+
+	@Test
+	void unfilteredTotalComesFromTheCollectionMetadata() {
+		when(mongoTemplate.estimatedCount(Asset.class)).thenReturn(42L);
+
+		assertEquals(42L, service.getAssetPage(CURSOR, null, false, null, null, true).getTotalCount());
+		verify(mongoTemplate, never()).count(any(Query.class), eq(Asset.class));
+	}
+
+	@Test
+	void filteredTotalCountsTheFilterWithoutTheCursor() {
+		when(mongoTemplate.count(any(Query.class), eq(Asset.class))).thenReturn(7L);
+
+		assertEquals(7L, service.getAssetPage(CURSOR, null, false, null, false, true).getTotalCount());
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).count(query.capture(), eq(Asset.class));
+		assertEquals(new Document("online", false), query.getValue().getQueryObject());
+	}
+
+	private Query pageQuery() {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).find(query.capture(), eq(Asset.class));
+		return query.getValue();
+	}
+
+	private static List<Asset> assets(int count) {
+		List<Asset> assets = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Asset asset = new Asset();
+			asset.setId(new ObjectId().toHexString());
+			asset.setIpAddress("10.0.0." + (i + 1));
+			assets.add(asset);
+		}
+		return assets;
+	}
+}
\ No newline at end of file
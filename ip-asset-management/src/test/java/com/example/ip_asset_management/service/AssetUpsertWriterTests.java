@@ -0,0 +1,217 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.Asset;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AssetUpsertWriterTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// Addresses and updates of every bulk write, one list per batch
+	private final List<List<String>> batches = new ArrayList<>();
+	private final List<List<Update>> updates = new ArrayList<>();
+	private AssetUpsertWriter writer;
+
+	@BeforeEach
+	void setUp() {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Asset.class)).thenAnswer(invocation -> {
+			List<String> batch = new ArrayList<>();
+			List<Update> batchUpdates = new ArrayList<>();
+			batches.add(batch);
+			updates.add(batchUpdates);
+			BulkOperations operations = mock(BulkOperations.class);
+			doAnswer(upsert -> {
+				batch.add(upsert.getArgument(0, Query.class).getQueryObject().getString("ipAddress"));
+				batchUpdates.add(upsert.getArgument(1, Update.class));
+				return operations;
+			}).when(operations).upsert(any(Query.class), any(Update.class));
+			return operations;
+		});
+		// Every asset's id is "id-" and its address
+		when(mongoTemplate.find(any(Query.class), eq(Asset.class))).thenAnswer(invocation -> {
+			Collection<?> addresses = (Collection<?>) invocation.getArgument(0, Query.class)
+					.getQueryObject().get("ipAddress", Document.class).get("$in");
+			List<Asset> assets = new ArrayList<>();
+			for (Object address : addresses) {
+				Asset asset = new Asset();
+				asset.setId("id-" + address);
+				asset.setIpAddress(address.toString());
+				assets.add(asset);
+			}
+			return assets;
+		});
+
+		writer = newWriter(2, 100);
+	}
+
+	@AfterEach
+	void tearDown() {
+		writer.cleanup();
+	}
+
+	@Test
+	void flushWritesQueuedUpsertsAndCompletesWithAssetIds() throws Exception {
+		CountDownLatch paused = pauseWriter();
+		CompletableFuture<String> first = writer.upsert("10.0.0.1", Update.update("online", true));
+		CompletableFuture<String> second = writer.upsert("10.0.0.2", Update.update("online", true));
+		paused.countDown();
+
+		writer.flush();
+
+		assertEquals(List.of(List.of("10.0.0.1", "10.0.0.2")), batches);
+		assertEquals("id-10.0.0.1", first.get(1, TimeUnit.SECONDS));
+		assertEquals("id-10.0.0.2", second.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void repeatedAddressWaitsForTheNextBatch() throws Exception {
+		writer = newWriter(10, 100);
+		Update older = Update.update("hostname", "old");
+		Update newer = Update.update("hostname", "new");
+		writer.upsert("10.0.0.1", older);
+		writer.upsert("10.0.0.2", Update.update("online", true));
+		CompletableFuture<String> repeated = writer.upsert("10.0.0.1", newer);
+
+		writer.flush();
+
+		assertEquals(List.of(List.of("10.0.0.1", "10.0.0.2"), List.of("10.0.0.1")), batches);
+		assertEquals(older, updates.get(0).get(0));
+		assertEquals(newer, updates.get(1).get(0));
+		assertEquals("id-10.0.0.1", repeated.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void carriedUpsertsGoAheadOfLaterOnesInOrder() {
+		CountDownLatch paused = pauseWriter();
+		writer.upsert("10.0.0.1", Update.update("step", 1));
+		writer.upsert("10.0.0.1", Update.update("step", 2));
+		writer.upsert("10.0.0.1", Update.update("step", 3));
+		writer.upsert("10.0.0.2", Update.update("step", 1));
+		paused.countDown();
+
+		writer.flush();
+
+		assertEquals(List.of(List.of("10.0.0.1", "10.0.0.2"), List.of("10.0.0.1"), List.of("10.0.0.1")), batches);
+		assertEquals(Update.update("step", 2), updates.get(1).get(0));
+		assertEquals(Update.update("step", 3), updates.get(2).get(0));
+	}
+
+	@Test
+	void failedUpsertFailsOnlyItsOwnFuture() throws Exception {
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Asset.class)).thenAnswer(invocation -> {
+			BulkOperations operations = mock(BulkOperations.class);
+			BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1);
+			when(operations.execute()).thenThrow(new BulkOperationException("bulk write failed",
+					new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(error), null,
+							new ServerAddress(), Set.of())));
+			return operations;
+		});
+		CountDownLatch paused = pauseWriter();
+		CompletableFuture<String> written = writer.upsert("10.0.0.1", Update.update("online", true));
+		CompletableFuture<String> failed = writer.upsert("10.0.0.2", Update.update("online", true));
+		paused.countDown();
+
+		writer.flush();
+
+		assertEquals("id-10.0.0.1", written.get(1, TimeUnit.SECONDS));
+		assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void fullQueueCountsBackpressureWaits() throws Exception {
+		writer = newWriter(100, 1);
+		writer.upsert("10.0.0.1", Update.update("online", true));
+		CompletableFuture<String> waited = writer.upsert("10.0.0.2", Update.update("online", true));
+
+		writer.flush();
+
+		assertEquals(1, meterRegistry.counter("scan.assets.backpressure.waits").count());
+		assertEquals("id-10.0.0.2", waited.get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void offlineHostsAreMarkedInOneUpdatePerBatch() {
+		// The writer reuses its address list, so each call's addresses are copied as it is made
+		List<List<Object>> marked = new ArrayList<>();
+		when(mongoTemplate.updateMulti(any(Query.class), eq(Update.update("online", false)), eq(Asset.class)))
+				.thenAnswer(invocation -> {
+					Document filter = invocation.getArgument(0, Query.class).getQueryObject();
+					assertEquals(true, filter.get("online"));
+					marked.add(new ArrayList<>((Collection<?>) filter.get("ipAddress", Document.class).get("$in")));
+					return UpdateResult.acknowledged(1, 1L, null);
+				});
+		writer.markOffline("10.0.0.1");
+		writer.markOffline("10.0.0.2");
+		writer.markOffline("10.0.0.3");
+
+		writer.flush();
+
+		assertEquals(List.of(List.of("10.0.0.1", "10.0.0.2"), List.of("10.0.0.3")), marked);
+	}
+
+	/**
+	 * Holds the writer thread until the latch is counted down, so a filled batch is not
+	 * written before the test has queued everything.
+	 */
+	private CountDownLatch pauseWriter() {
+		CountDownLatch latch = new CountDownLatch(1);
+		ScheduledExecutorService flusher = (ScheduledExecutorService) ReflectionTestUtils.getField(writer, "flusher");
+		flusher.execute(() -> {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		return latch;
+	}
+
+	private AssetUpsertWriter newWriter(int batchSize, int bufferCapacity) {
+		if (writer != null) {
+			writer.cleanup();
+		}
+		AssetUpsertWriter newWriter = new AssetUpsertWriter();
+		ReflectionTestUtils.setField(newWriter, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(newWriter, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(newWriter, "batchSize", batchSize);
+		ReflectionTestUtils.setField(newWriter, "bufferCapacity", bufferCapacity);
+		// Only explicit flushes write
+		ReflectionTestUtils.setField(newWriter, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+		newWriter.initialize();
+		return newWriter;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.EnrichmentMethod;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnrichmentCircuitBreakersTests {
+
+	private static final String HOST = "10.0.0.1";
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private EnrichmentCircuitBreakers breakers;
+
+	@BeforeEach
+	void setUp() {
+		breakers = new EnrichmentCircuitBreakers();
+		ReflectionTestUtils.setField(breakers, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(breakers, "hostFailureThreshold", 3);
+		ReflectionTestUtils.setField(breakers, "subnetFailureThreshold", 10);
+		ReflectionTestUtils.setField(breakers, "openSeconds", 600L);
+		ReflectionTestUtils.setField(breakers, "maxEntries", 100000);
+	}
+
+	@Test
+	void closedBreakerAllowsRequests() {
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+		assertEquals(0, breakers.getOpenCount());
+	}
+
+	@Test
+	void hostBreakerOpensAtThreshold() {
+		fail(EnrichmentMethod.WMI, HOST, 2);
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+
+		fail(EnrichmentMethod.WMI, HOST, 1);
+		assertFalse(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+		assertEquals(1, breakers.getOpenCount());
+		assertEquals(1, meterRegistry.counter("scan.enrichment.breaker.opened").count());
+		assertEquals(1, meterRegistry.counter("scan.enrichment.breaker.skipped").count());
+	}
+
+	@Test
+	void openHostBreakerOnlyAffectsItsMethodAndHost() {
+		fail(EnrichmentMethod.WMI, HOST, 3);
+
+		assertTrue(breakers.allowRequest(EnrichmentMethod.SMB, HOST));
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, "10.0.0.2"));
+	}
+
+	@Test
+	void successResetsConsecutiveFailures() {
+		fail(EnrichmentMethod.WMI, HOST, 2);
+		breakers.record(EnrichmentMethod.WMI, HOST, true);
+		fail(EnrichmentMethod.WMI, HOST, 2);
+
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+	}
+
+	@Test
+	void furtherFailuresOfOpenBreakerDoNotCountAsOpening() {
+		fail(EnrichmentMethod.WMI, HOST, 5);
+
+		assertEquals(1, meterRegistry.counter("scan.enrichment.breaker.opened").count());
+	}
+
+	@Test
+	void subnetBreakerOpensOnFailuresAcrossHosts() {
+		for (int i = 1; i <= 10; i++) {
+			fail(EnrichmentMethod.WMI, "10.0.0." + i, 1);
+		}
+
+		assertFalse(breakers.allowRequest(EnrichmentMethod.WMI, "10.0.0.99"));
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, "10.0.1.1"));
+		assertTrue(breakers.allowRequest(EnrichmentMethod.POWERSHELL, "10.0.0.99"));
+	}
+
+	@Test
+	void halfOpenBreakerLetsOneTrialThrough() {
+		ReflectionTestUtils.setField(breakers, "openSeconds", 0L);
+		fail(EnrichmentMethod.WMI, HOST, 3);
+
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+		assertFalse(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+	}
+
+	@Test
+	void successfulTrialClosesBreaker() {
+		ReflectionTestUtils.setField(breakers, "openSeconds", 0L);
+		fail(EnrichmentMethod.WMI, HOST, 3);
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+
+		breakers.record(EnrichmentMethod.WMI, HOST, true);
+
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+	}
+
+	@Test
+	void failedTrialReopensBreaker() {
+		ReflectionTestUtils.setField(breakers, "openSeconds", 0L);
+		fail(EnrichmentMethod.WMI, HOST, 3);
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+
+		ReflectionTestUtils.setField(breakers, "openSeconds", 600L);
+		fail(EnrichmentMethod.WMI, HOST, 1);
+
+		assertFalse(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+		assertEquals(1, breakers.getOpenCount());
+		assertEquals(2, meterRegistry.counter("scan.enrichment.breaker.opened").count());
+	}
+
+	@Test
+	void hostTrialIsReleasedWhenSubnetRefuses() {
+		ReflectionTestUtils.setField(breakers, "openSeconds", 0L);
+		ReflectionTestUtils.setField(breakers, "subnetFailureThreshold", 3);
+		fail(EnrichmentMethod.WMI, HOST, 3);
+		// Another host takes the subnet's trial
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, "10.0.0.2"));
+
+		assertFalse(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+
+		breakers.record(EnrichmentMethod.WMI, "10.0.0.2", true);
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+	}
+
+	@Test
+	void fullTableIsReset() {
+		ReflectionTestUtils.setField(breakers, "maxEntries", 2);
+		fail(EnrichmentMethod.WMI, HOST, 3);
+		fail(EnrichmentMethod.WMI, "10.0.1.1", 1);
+
+		assertTrue(breakers.allowRequest(EnrichmentMethod.WMI, HOST));
+	}
+
+	private void fail(EnrichmentMethod method, String ipAddress, int times) {
+		for (int i = 0; i < times; i++) {
+			breakers.record(method, ipAddress, false);
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.example.ip_asset_management.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExportWriterTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+	@Test
+	void csvStartsWithTheColumnsAndWritesThemInOrder() throws IOException {
+		try (ExportWriter writer = csvWriter(false, "ipAddress", "hostname", "online")) {
+			writer.write(record("hostname", "gateway.local", "ipAddress", "10.0.0.1", "online", true));
+		}
+
+		assertEquals("ipAddress,hostname,online\r\n10.0.0.1,gateway.local,true\r\n", text());
+	}
+
+	@Test
+	void csvQuotesCellsWithSeparatorsQuotesAndLineBreaks() throws IOException {
+		try (ExportWriter writer = csvWriter(false, "a", "b", "c", "d")) {
+			writer.write(record("a", "one, two", "b", "say \"hi\"", "c", "first\nsecond", "d", "cr\rhere"));
+		}
+
+		assertEquals("a,b,c,d\r\n\"one, two\",\"say \"\"hi\"\"\",\"first\nsecond\",\"cr\rhere\"\r\n", text());
+	}
+
+	@Test
+	void csvLeavesMissingValuesEmptyAndWritesNestedOnesAsJson() throws IOException {
+		try (ExportWriter writer = csvWriter(false, "ipAddress", "hostname", "openPorts", "tags")) {
+			Map<String, Object> record = record("ipAddress", "10.0.0.1", "openPorts", List.of(22, 80),
+					"tags", Map.of("zone", "dmz"));
+			record.put("hostname", null);
+			writer.write(record);
+		}
+
+		assertEquals("ipAddress,hostname,openPorts,tags\r\n10.0.0.1,,\"[22,80]\",\"{\"\"zone\"\":\"\"dmz\"\"}\"\r\n",
+				text());
+	}
+
+	@Test
+	void ndjsonWritesOneObjectPerLine() throws IOException {
+		try (ExportWriter writer = new ExportWriter(out, ExportWriter.Format.NDJSON, false, null, objectMapper)) {
+			writer.write(record("ipAddress", "10.0.0.1"));
+			writer.write(record("ipAddress", "10.0.0.2", "note", "line\nbreak"));
+			assertEquals(2, writer.getWritten());
+		}
+
+		assertEquals("{\"ipAddress\":\"10.0.0.1\"}\n{\"ipAddress\":\"10.0.0.2\",\"note\":\"line\\nbreak\"}\n", text());
+	}
+
+	@Test
+	void compressedExportIsACompleteGzipStream() throws IOException {
+		try (ExportWriter writer = csvWriter(true, "ipAddress")) {
+			for (int i = 0; i < 2500; i++) {
+				writer.write(record("ipAddress", "10.0." + (i / 256) + "." + (i % 256)));
+			}
+		}
+
+		String csv;
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+			csv = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		String[] lines = csv.split("\r\n");
+		assertEquals(2501, lines.length);
+		assertEquals("ipAddress", lines[0]);
+		assertEquals("10.0.9.195", lines[2500]);
+	}
+
+	@Test
+	void formatIsParsedIgnoringCase() {
+		assertEquals(ExportWriter.Format.CSV, ExportWriter.Format.parse("csv"));
+		assertEquals(ExportWriter.Format.NDJSON, ExportWriter.Format.parse("NdJson"));
+		assertThrows(RuntimeException.class, () -> ExportWriter.Format.parse("xml"));
+	}
+
+	private ExportWriter csvWriter(boolean compress, String... columns) throws IOException {
+		return new ExportWriter(out, ExportWriter.Format.CSV, compress, Arrays.asList(columns), objectMapper);
+	}
+
+	private String text() {
+		return out.toString(StandardCharsets.UTF_8);
+	}
+
+	private static Map<String, Object> record(Object... keysAndValues) {
+		Map<String, Object> record = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			record.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return record;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.example.ip_asset_management.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HostnameResolverTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// PTR names the fake lookup knows, every other address has none
+	private final Map<String, String> names = Map.of("10.0.0.1", "gateway.local", "10.0.0.3", "printer.local");
+	private final List<String> lookups = new ArrayList<>();
+	private final CountDownLatch lookupsMayFinish = new CountDownLatch(1);
+	private HostnameResolver resolver;
+
+	@BeforeEach
+	void setUp() {
+		resolver = new HostnameResolver() {
+			@Override
+			String lookUp(String address) {
+				synchronized (lookups) {
+					lookups.add(address);
+				}
+				try {
+					lookupsMayFinish.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return names.getOrDefault(address, address);
+			}
+		};
+		ReflectionTestUtils.setField(resolver, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(resolver, "cacheTtlSeconds", 3600L);
+		ReflectionTestUtils.setField(resolver, "negativeTtlSeconds", 300L);
+		ReflectionTestUtils.setField(resolver, "lookupTimeoutMs", 5000L);
+		ReflectionTestUtils.setField(resolver, "maxParallelLookups", 4);
+		ReflectionTestUtils.setField(resolver, "maxEntries", 100);
+		resolver.initialize();
+	}
+
+	@AfterEach
+	void tearDown() {
+		lookupsMayFinish.countDown();
+		resolver.cleanup();
+	}
+
+	@Test
+	void resolvedNameIsCached() throws Exception {
+		lookupsMayFinish.countDown();
+
+		assertEquals("gateway.local", resolver.resolve(address("10.0.0.1")));
+		assertEquals("gateway.local", resolver.resolve(address("10.0.0.1")));
+
+		assertEquals(List.of("10.0.0.1"), lookups);
+		assertEquals(1, meterRegistry.counter("scan.dns.cache.hits").count());
+		assertEquals(1, meterRegistry.counter("scan.dns.cache.misses").count());
+	}
+
+	@Test
+	void addressWithoutANameIsCachedToo() throws Exception {
+		lookupsMayFinish.countDown();
+
+		assertEquals("10.0.0.2", resolver.resolve(address("10.0.0.2")));
+		assertEquals("10.0.0.2", resolver.resolve(address("10.0.0.2")));
+
+		assertEquals(List.of("10.0.0.2"), lookups);
+	}
+
+	@Test
+	void addressWithoutANameExpiresAfterTheNegativeTtl() throws Exception {
+		ReflectionTestUtils.setField(resolver, "negativeTtlSeconds", 0L);
+		lookupsMayFinish.countDown();
+
+		resolver.resolve(address("10.0.0.1"));
+		resolver.resolve(address("10.0.0.2"));
+		resolver.resolve(address("10.0.0.1"));
+		resolver.resolve(address("10.0.0.2"));
+
+		// Only the name that resolved is still cached
+		assertEquals(List.of("10.0.0.1", "10.0.0.2", "10.0.0.2"), lookups);
+	}
+
+	@Test
+	void slowLookupAnswersWithTheAddressAndKeepsGoing() throws Exception {
+		ReflectionTestUtils.setField(resolver, "lookupTimeoutMs", 50L);
+
+		assertEquals("10.0.0.1", resolver.resolve(address("10.0.0.1")));
+		assertEquals(1, meterRegistry.counter("scan.dns.timeouts").count());
+
+		lookupsMayFinish.countDown();
+		ReflectionTestUtils.setField(resolver, "lookupTimeoutMs", 5000L);
+		assertEquals("gateway.local", resolver.resolve(address("10.0.0.1")));
+		assertEquals(List.of("10.0.0.1"), lookups);
+	}
+
+	@Test
+	void concurrentRequestsShareOneLookup() throws Exception {
+		InetAddress gateway = address("10.0.0.1");
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> resolver.resolve(gateway));
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> resolver.resolve(gateway));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (meterRegistry.counter("scan.dns.cache.hits").count()
+				+ meterRegistry.counter("scan.dns.cache.misses").count() < 2 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+
+		lookupsMayFinish.countDown();
+
+		assertEquals("gateway.local", first.get(5, TimeUnit.SECONDS));
+		assertEquals("gateway.local", second.get(5, TimeUnit.SECONDS));
+		assertEquals(List.of("10.0.0.1"), lookups);
+	}
+
+	@Test
+	void fullCacheDropsExpiredEntriesFirst() throws Exception {
+		ReflectionTestUtils.setField(resolver, "maxEntries", 2);
+		ReflectionTestUtils.setField(resolver, "negativeTtlSeconds", 0L);
+		lookupsMayFinish.countDown();
+
+		resolver.resolve(address("10.0.0.1"));
+		resolver.resolve(address("10.0.0.2"));
+		resolver.resolve(address("10.0.0.3"));
+
+		assertEquals(2, resolver.getCacheSize());
+		assertEquals("printer.local", resolver.resolve(address("10.0.0.3")));
+		assertEquals(List.of("10.0.0.1", "10.0.0.2", "10.0.0.3"), lookups);
+	}
+
+	private static InetAddress address(String literal) throws Exception {
+		return InetAddress.getByName(literal);
+	}
+}
\ No newline at end of file
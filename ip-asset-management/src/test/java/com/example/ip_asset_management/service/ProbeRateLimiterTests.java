@@ -0,0 +1,145 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.PortState;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProbeRateLimiterTests {
+
+	private static final int WINDOW = 10;
+	private static final String TARGET = "10.0.0.1";
+
+	// 100 probes/s to start, between 10 and 200, +5 per clean window, halved on a 0.2 spike
+	private final ProbeRateLimiter limiter = new ProbeRateLimiter("job", 100, 10, 200, 5, 0.5, 0.2, WINDOW);
+
+	@Test
+	void unknownSubnetStartsAtInitialRate() {
+		assertEquals(100, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void initialRateIsClampedToBounds() {
+		assertEquals(10, new ProbeRateLimiter("job", 1, 10, 200, 5, 0.5, 0.2, WINDOW).getRate(TARGET));
+		assertEquals(200, new ProbeRateLimiter("job", 1000, 10, 200, 5, 0.5, 0.2, WINDOW).getRate(TARGET));
+		// A maximum below the minimum is raised to it
+		assertEquals(50, new ProbeRateLimiter("job", 100, 50, 20, 5, 0.5, 0.2, WINDOW).getRate(TARGET));
+	}
+
+	@Test
+	void firstWindowOnlySetsTheBaseline() {
+		record(TARGET, PortState.FILTERED, WINDOW);
+
+		assertEquals(100, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void incompleteWindowDoesNotChangeTheRate() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		record(TARGET, PortState.OPEN, WINDOW - 1);
+
+		assertEquals(100, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void cleanWindowsIncreaseAdditively() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		record(TARGET, PortState.OPEN, WINDOW);
+		assertEquals(105, limiter.getRate(TARGET));
+
+		record(TARGET, PortState.OPEN, WINDOW);
+		assertEquals(110, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void increaseStopsAtMaximum() {
+		record(TARGET, PortState.OPEN, WINDOW * 100);
+
+		assertEquals(200, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void timeoutSpikeDecreasesMultiplicatively() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		record(TARGET, PortState.FILTERED, WINDOW);
+
+		assertEquals(50, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void resetSpikeDecreasesMultiplicatively() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		record(TARGET, PortState.CLOSED, WINDOW);
+
+		assertEquals(50, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void decreaseStopsAtMinimum() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		for (int i = 0; i < 10; i++) {
+			record(TARGET, PortState.OPEN, WINDOW);
+			record(TARGET, PortState.FILTERED, WINDOW);
+		}
+
+		assertEquals(10, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void riseWithinThresholdIsNotASpike() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		// 2 of 10 timed out: exactly the threshold above a baseline of 0
+		record(TARGET, PortState.FILTERED, 2);
+		record(TARGET, PortState.OPEN, WINDOW - 2);
+
+		assertEquals(105, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void steadilyLossySubnetIsNotThrottled() {
+		// Half of every window times out, as on a sparse or firewalled subnet
+		for (int i = 0; i < 5; i++) {
+			record(TARGET, PortState.FILTERED, WINDOW / 2);
+			record(TARGET, PortState.OPEN, WINDOW / 2);
+		}
+
+		assertEquals(120, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void lastingChangeStopsCountingAsSpike() {
+		record(TARGET, PortState.OPEN, WINDOW);
+		// Every window times out from now on; the baseline follows and the cuts stop
+		for (int i = 0; i < 30; i++) {
+			record(TARGET, PortState.FILTERED, WINDOW);
+		}
+		double settled = limiter.getRate(TARGET);
+		record(TARGET, PortState.FILTERED, WINDOW);
+
+		assertEquals(settled + 5, limiter.getRate(TARGET));
+	}
+
+	@Test
+	void ratesAreKeptPerSlash24() {
+		record("10.0.0.1", PortState.OPEN, WINDOW);
+		record("10.0.0.200", PortState.FILTERED, WINDOW);
+
+		assertEquals(50, limiter.getRate("10.0.0.99"));
+		assertEquals(100, limiter.getRate("10.0.1.1"));
+	}
+
+	@Test
+	void firstProbeOfIdleSubnetDoesNotWait() throws InterruptedException {
+		long started = System.nanoTime();
+		limiter.acquire(TARGET, 1);
+
+		assertTrue(System.nanoTime() - started < 1_000_000_000L);
+	}
+
+	private void record(String target, PortState state, int count) {
+		for (int i = 0; i < count; i++) {
+			limiter.record(target, state);
+		}
+	}
+}
\ No newline at end of file
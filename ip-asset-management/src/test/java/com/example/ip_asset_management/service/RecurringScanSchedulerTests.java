@@ -0,0 +1,84 @@
+package com.example.ip_asset_management.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecurringScanSchedulerTests {
+
+	// A Wednesday
+	private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 12, 10, 7, 30);
+
+	@Test
+	void fiveFieldExpressionRunsOnTheMinute() {
+		assertEquals(LocalDateTime.of(2025, 3, 12, 10, 15),
+				RecurringScanScheduler.parse("*/15 * * * *").next(NOW));
+		assertEquals(LocalDateTime.of(2025, 3, 13, 2, 30),
+				RecurringScanScheduler.parse("30 2 * * *").next(NOW));
+	}
+
+	@Test
+	void sixFieldExpressionKeepsItsSeconds() {
+		assertEquals(LocalDateTime.of(2025, 3, 13, 3, 0, 45),
+				RecurringScanScheduler.parse("45 0 3 * * *").next(NOW));
+	}
+
+	@Test
+	void extraWhitespaceIsAllowed() {
+		assertEquals(LocalDateTime.of(2025, 3, 12, 11, 0),
+				RecurringScanScheduler.parse("  0   *  * * *  ").next(NOW));
+	}
+
+	@Test
+	void macrosWorkWithOrWithoutAtSign() {
+		for (String macro : List.of("daily", "@daily", "DAILY", " midnight ")) {
+			assertEquals(LocalDateTime.of(2025, 3, 13, 0, 0), RecurringScanScheduler.parse(macro).next(NOW), macro);
+		}
+		assertEquals(LocalDateTime.of(2025, 3, 12, 11, 0), RecurringScanScheduler.parse("hourly").next(NOW));
+		assertEquals(LocalDateTime.of(2025, 3, 16, 0, 0), RecurringScanScheduler.parse("weekly").next(NOW));
+		assertEquals(LocalDateTime.of(2025, 4, 1, 0, 0), RecurringScanScheduler.parse("@monthly").next(NOW));
+		assertEquals(LocalDateTime.of(2026, 1, 1, 0, 0), RecurringScanScheduler.parse("yearly").next(NOW));
+		assertEquals(LocalDateTime.of(2026, 1, 1, 0, 0), RecurringScanScheduler.parse("annually").next(NOW));
+	}
+
+	@Test
+	void invalidSchedulesAreRejected() {
+		for (String schedule : Arrays.asList(null, "", "   ", "sometimes", "@fortnightly", "* * *",
+				"61 * * * *", "* * * * * * * *")) {
+			assertThrows(IllegalArgumentException.class, () -> RecurringScanScheduler.parse(schedule), schedule);
+		}
+	}
+
+	@Test
+	void nextRunWithoutJitterIsTheCronTime() {
+		RecurringScanScheduler scheduler = scheduler(0);
+
+		assertEquals(LocalDateTime.of(2025, 3, 13, 0, 0), scheduler.nextRunAt("daily", NOW));
+	}
+
+	@Test
+	void jitterOnlyDelaysWithinItsBound() {
+		RecurringScanScheduler scheduler = scheduler(300);
+		LocalDateTime cronTime = LocalDateTime.of(2025, 3, 13, 0, 0);
+
+		for (int i = 0; i < 100; i++) {
+			LocalDateTime next = scheduler.nextRunAt("daily", NOW);
+			assertFalse(next.isBefore(cronTime));
+			assertTrue(next.isBefore(cronTime.plusSeconds(301)));
+		}
+	}
+
+	private static RecurringScanScheduler scheduler(long maxJitterSeconds) {
+		RecurringScanScheduler scheduler = new RecurringScanScheduler();
+		ReflectionTestUtils.setField(scheduler, "maxJitterSeconds", maxJitterSeconds);
+		return scheduler;
+	}
+}
\ No newline at end of file
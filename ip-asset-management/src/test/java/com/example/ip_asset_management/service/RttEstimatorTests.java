@@ -0,0 +1,158 @@
+package com.example.ip_asset_management.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RttEstimatorTests {
+
+	private RttEstimator estimator;
+
+	@BeforeEach
+	void setUp() {
+		estimator = new RttEstimator();
+		ReflectionTestUtils.setField(estimator, "initialTimeoutMs", 1000L);
+		ReflectionTestUtils.setField(estimator, "minTimeoutMs", 100L);
+		ReflectionTestUtils.setField(estimator, "maxTimeoutMs", 3000L);
+		ReflectionTestUtils.setField(estimator, "maxSubnets", 65536);
+		ReflectionTestUtils.setField(estimator, "backoffAfter", 3);
+	}
+
+	@Test
+	void subnetWithoutSamplesUsesInitialTimeout() {
+		assertEquals(1000, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void firstSampleSetsVarianceToHalfTheRtt() {
+		// SRTT = 200, RTTVAR = 100, RTO = 200 + 4 * 100
+		estimator.recordSample("10.0.0.1", millis(200));
+
+		assertEquals(600, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void laterSamplesAreSmoothed() {
+		estimator.recordSample("10.0.0.1", millis(200));
+		// RTTVAR = 3/4 * 100 + 1/4 * |200 - 100| = 100, SRTT = 7/8 * 200 + 1/8 * 100 = 187.5
+		estimator.recordSample("10.0.0.1", millis(100));
+
+		assertEquals(588, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void varianceIsUpdatedWithThePreviousSmoothedRtt() {
+		estimator.recordSample("10.0.0.1", millis(100));
+		// RTTVAR = 3/4 * 50 + 1/4 * |100 - 500| = 137.5, SRTT = 7/8 * 100 + 1/8 * 500 = 150
+		estimator.recordSample("10.0.0.1", millis(500));
+
+		assertEquals(700, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void steadyRttFallsBackToClockGranularity() {
+		for (int i = 0; i < 50; i++) {
+			estimator.recordSample("10.0.0.1", millis(150));
+		}
+
+		// RTTVAR has decayed below 1/4 ms, so G = 1 ms is added instead of 4 * RTTVAR
+		assertEquals(151, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void timeoutIsClampedToBounds() {
+		estimator.recordSample("10.0.0.1", millis(1));
+		estimator.recordSample("10.0.1.1", millis(5000));
+
+		assertEquals(100, estimator.timeoutFor("10.0.0.1"));
+		assertEquals(3000, estimator.timeoutFor("10.0.1.1"));
+	}
+
+	@Test
+	void estimatesAreSharedPerSlash24() {
+		estimator.recordSample("10.0.0.1", millis(200));
+
+		assertEquals(600, estimator.timeoutFor("10.0.0.254"));
+		assertEquals(1000, estimator.timeoutFor("10.0.1.1"));
+	}
+
+	@Test
+	void hostnamesAreKeyedCaseInsensitively() {
+		estimator.recordSample("Server.Local", millis(200));
+
+		assertEquals(600, estimator.timeoutFor("server.local"));
+		assertEquals("server.local", RttEstimator.subnetKey("SERVER.local"));
+		assertEquals("192.168.7.0/24", RttEstimator.subnetKey("192.168.7.42"));
+	}
+
+	@Test
+	void fullTableIgnoresNewSubnets() {
+		ReflectionTestUtils.setField(estimator, "maxSubnets", 1);
+		estimator.recordSample("10.0.0.1", millis(200));
+		estimator.recordSample("10.0.1.1", millis(200));
+		estimator.recordSample("10.0.0.2", millis(200));
+
+		assertEquals(1000, estimator.timeoutFor("10.0.1.1"));
+		// The subnet already in the table still learns: SRTT = 200, RTTVAR = 75
+		assertEquals(500, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void silentLiveHostsDoubleTheTimeout() {
+		estimator.recordSample("10.0.0.1", millis(50));
+		// SRTT = 50, RTTVAR = 25
+		assertEquals(150, estimator.timeoutFor("10.0.0.1"));
+
+		timeouts("10.0.0.2", 2);
+		assertEquals(150, estimator.timeoutFor("10.0.0.1"));
+
+		timeouts("10.0.0.3", 1);
+		assertEquals(300, estimator.timeoutFor("10.0.0.1"));
+		timeouts("10.0.0.3", 3);
+		assertEquals(600, estimator.timeoutFor("10.0.0.1"));
+		assertEquals(2, estimator.getEstimates(ScanTargetSet.of(List.of("10.0.0.1"), null, null)).get(0).getBackoffs());
+	}
+
+	@Test
+	void backoffStopsAtMaximum() {
+		estimator.recordSample("10.0.0.1", millis(200));
+		timeouts("10.0.0.1", 30);
+
+		assertEquals(3000, estimator.timeoutFor("10.0.0.1"));
+		assertEquals(3, estimator.getEstimates(ScanTargetSet.of(List.of("10.0.0.1"), null, null)).get(0).getBackoffs());
+	}
+
+	@Test
+	void sampleClearsTheBackoff() {
+		estimator.recordSample("10.0.0.1", millis(200));
+		timeouts("10.0.0.1", 2);
+		estimator.recordSample("10.0.0.1", millis(200));
+		// The run of silent hosts starts over after the sample
+		timeouts("10.0.0.1", 2);
+
+		// SRTT = 200, RTTVAR = 75
+		assertEquals(500, estimator.timeoutFor("10.0.0.1"));
+	}
+
+	@Test
+	void timeoutsWithoutEstimateKeepInitialTimeout() {
+		timeouts("10.0.0.1", 10);
+
+		assertEquals(1000, estimator.timeoutFor("10.0.0.1"));
+		assertEquals(0, estimator.getEstimates(ScanTargetSet.of(List.of("10.0.0.1"), null, null)).size());
+	}
+
+	private void timeouts(String target, int count) {
+		for (int i = 0; i < count; i++) {
+			estimator.recordTimeout(target);
+		}
+	}
+
+	private static long millis(long millis) {
+		return millis * 1_000_000L;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import com.example.ip_asset_management.model.ScanPriority;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScanAdmissionQueueTests {
+
+	private static final LocalDateTime QUEUED_AT = LocalDateTime.of(2025, 3, 12, 10, 0);
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final AdaptiveNetworkScanner adaptiveNetworkScanner = mock(AdaptiveNetworkScanner.class);
+	private final ScanProgressTracker progressTracker = mock(ScanProgressTracker.class);
+	private final UserShareWeights userShareWeights = mock(UserShareWeights.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<ScanJob> queued = new ArrayList<>();
+	private final List<ScanJob> inFlight = new ArrayList<>();
+	private ScanAdmissionQueue queue;
+
+	@BeforeEach
+	void setUp() {
+		queue = new ScanAdmissionQueue();
+		ReflectionTestUtils.setField(queue, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(queue, "adaptiveNetworkScanner", adaptiveNetworkScanner);
+		ReflectionTestUtils.setField(queue, "progressTracker", progressTracker);
+		ReflectionTestUtils.setField(queue, "userShareWeights", userShareWeights);
+		ReflectionTestUtils.setField(queue, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(queue, "maxConcurrentJobs", 2);
+		ReflectionTestUtils.setField(queue, "smallJobMaxTargets", 256);
+		ReflectionTestUtils.setField(queue, "smallJobSlots", 1);
+		queue.initialize();
+
+		when(userShareWeights.weightOf(any())).thenReturn(1.0);
+		// Queued and in-flight jobs are looked up by the statuses they are in
+		when(mongoTemplate.find(any(Query.class), eq(ScanJob.class))).thenAnswer(invocation -> {
+			Collection<?> statuses = (Collection<?>) invocation.getArgument(0, Query.class)
+					.getQueryObject().get("status", Document.class).get("$in");
+			return new ArrayList<>(statuses.contains(ScanJobStatus.QUEUED) ? queued : inFlight);
+		});
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+	}
+
+	@Test
+	void higherPriorityGoesFirst() {
+		queued.add(job("low", "alice", ScanPriority.LOW, 0));
+		queued.add(job("normal", "alice", ScanPriority.NORMAL, 1));
+		queued.add(job("high", "alice", ScanPriority.HIGH, 2));
+
+		assertEquals(List.of("high", "normal", "low"), idsOf(queue.getQueue()));
+	}
+
+	@Test
+	void usersTakeTurns() {
+		queued.add(job("a1", "alice", null, 0));
+		queued.add(job("a2", "alice", null, 1));
+		queued.add(job("a3", "alice", null, 2));
+		queued.add(job("b1", "bob", null, 3));
+
+		assertEquals(List.of("a1", "b1", "a2", "a3"), idsOf(queue.getQueue()));
+	}
+
+	@Test
+	void userWithJobsInFlightWaitsBehindOthers() {
+		inFlight.add(job("running", "alice", null, 0));
+		queued.add(job("a1", "alice", null, 1));
+		queued.add(job("b1", "bob", null, 2));
+
+		assertEquals(List.of("b1", "a1"), idsOf(queue.getQueue()));
+	}
+
+	@Test
+	void weightScalesAUsersShare() {
+		when(userShareWeights.weightOf("alice")).thenReturn(2.0);
+		queued.add(job("a1", "alice", null, 0));
+		queued.add(job("a2", "alice", null, 1));
+		queued.add(job("a3", "alice", null, 2));
+		queued.add(job("b1", "bob", null, 3));
+		queued.add(job("b2", "bob", null, 4));
+
+		// Alice gets two turns for every one of Bob's
+		assertEquals(List.of("a1", "b1", "a2", "a3", "b2"), idsOf(queue.getQueue()));
+	}
+
+	@Test
+	void longestWaitingJobGoesFirstAmongEquals() {
+		queued.add(job("later", "alice", null, 5));
+		queued.add(job("never", "bob", null, 0));
+		queued.get(1).setQueuedAt(null);
+		queued.add(job("earlier", "carol", null, 1));
+
+		assertEquals(List.of("never", "earlier", "later"), idsOf(queue.getQueue()));
+	}
+
+	@Test
+	void smallJobsArePrioritisedUnlessAPriorityWasRequested() {
+		assertEquals(ScanPriority.HIGH, queue.priorityOf(job("small", "alice", null, 0)));
+		assertEquals(ScanPriority.NORMAL, queue.priorityOf(sized(job("large", "alice", null, 0), 1000)));
+		assertEquals(ScanPriority.LOW, queue.priorityOf(job("small", "alice", ScanPriority.LOW, 0)));
+	}
+
+	@Test
+	void applyPositionsNumbersQueuedJobsInAdmissionOrder() {
+		queued.add(job("a1", "alice", null, 0));
+		queued.add(job("b1", "bob", null, 1));
+		ScanJob running = job("running", "carol", null, 0);
+		running.setStatus(ScanJobStatus.RUNNING);
+		List<ScanJob> jobs = List.of(queued.get(1), running, queued.get(0));
+
+		queue.applyPositions(jobs);
+
+		assertEquals(2, jobs.get(0).getQueuePosition());
+		assertNull(jobs.get(1).getQueuePosition());
+		assertEquals(1, jobs.get(2).getQueuePosition());
+	}
+
+	@Test
+	void enqueueOfAnActiveJobIsRefused() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class)))
+				.thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+		assertFalse(queue.enqueue("job"));
+
+		verify(mongoTemplate, never()).find(any(Query.class), eq(ScanJob.class));
+	}
+
+	@Test
+	void admitStartsJobsUpToTheLimit() {
+		inFlight.add(job("running", "carol", null, 0));
+		queued.add(sized(job("a1", "alice", null, 0), 1000));
+		queued.add(sized(job("b1", "bob", null, 1), 1000));
+		when(mongoTemplate.count(any(Query.class), eq(ScanJob.class))).thenReturn(2L);
+
+		queue.admit();
+
+		verify(adaptiveNetworkScanner).executeScanJob("a1");
+		verify(adaptiveNetworkScanner, never()).executeScanJob("b1");
+		verify(progressTracker).queued("a1");
+		assertEquals(1, meterRegistry.get("scan.queue.depth").gauge().value());
+		assertEquals(1, meterRegistry.counter("scan.queue.admitted", "priority", "NORMAL").count());
+	}
+
+	@Test
+	void smallJobsUseTheSlotsOnTopOfTheLimit() {
+		inFlight.add(job("running", "carol", null, 0));
+		inFlight.add(job("also-running", "carol", null, 0));
+		queued.add(sized(job("large", "alice", null, 0), 1000));
+		queued.add(job("small", "bob", null, 1));
+		when(mongoTemplate.count(any(Query.class), eq(ScanJob.class))).thenReturn(3L);
+
+		queue.admit();
+
+		verify(adaptiveNetworkScanner).executeScanJob("small");
+		verify(adaptiveNetworkScanner, never()).executeScanJob("large");
+	}
+
+	@Test
+	void admissionIsTakenBackWhenAnotherNodeFilledTheLastSlot() {
+		queued.add(sized(job("a1", "alice", null, 0), 1000));
+		// Another node admitted two jobs between the lookup and the admission
+		when(mongoTemplate.count(any(Query.class), eq(ScanJob.class))).thenReturn(3L);
+
+		queue.admit();
+
+		verify(adaptiveNetworkScanner, never()).executeScanJob(anyString());
+		ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate, times(2)).updateFirst(any(Query.class), updates.capture(), eq(ScanJob.class));
+		Document backedOut = updates.getAllValues().get(1).getUpdateObject();
+		assertEquals(new Document("status", ScanJobStatus.QUEUED), backedOut.get("$set"));
+		assertEquals(new Document("scheduledAt", 1), backedOut.get("$unset"));
+		assertEquals(1, meterRegistry.counter("scan.queue.backed-out").count());
+		assertEquals(1, meterRegistry.get("scan.queue.depth").gauge().value());
+	}
+
+	private static List<String> idsOf(List<ScanJob> jobs) {
+		return jobs.stream().map(ScanJob::getId).toList();
+	}
+
+	private static ScanJob sized(ScanJob job, int totalTargets) {
+		job.setTotalTargets(totalTargets);
+		return job;
+	}
+
+	private static ScanJob job(String id, String userId, ScanPriority priority, int minutesQueued) {
+		ScanJob job = new ScanJob();
+		job.setId(id);
+		job.setUserId(userId);
+		job.setStatus(ScanJobStatus.QUEUED);
+		job.setPriority(priority);
+		job.setTotalTargets(10);
+		job.setQueuedAt(QUEUED_AT.plusMinutes(minutesQueued));
+		return job;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,235 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanChunkStatus;
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanResult;
+import com.example.ip_asset_management.repository.ScanChunkRepository;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScanChunkServiceTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final ScanChunkRepository scanChunkRepository = mock(ScanChunkRepository.class);
+	private ScanChunkService service;
+
+	@BeforeEach
+	void setUp() {
+		service = new ScanChunkService();
+		ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(service, "scanChunkRepository", scanChunkRepository);
+		ReflectionTestUtils.setField(service, "chunkSize", 100L);
+	}
+
+	@Test
+	void planCutsEachZoneIntoChunksInOrder() {
+		List<ScanChunk> chunks = service.plan(job());
+
+		assertEquals(7, chunks.size());
+		List<Integer> counts = new ArrayList<>();
+		List<String> zones = new ArrayList<>();
+		for (int i = 0; i < chunks.size(); i++) {
+			assertEquals(String.format("job-%06d", i), chunks.get(i).getId());
+			assertEquals(ScanChunkStatus.PENDING, chunks.get(i).getStatus());
+			counts.add(chunks.get(i).getTargetCount());
+			zones.add(chunks.get(i).getZone());
+		}
+		// Chunks without a zone come first, the host names last within their zone
+		assertEquals(List.of(100, 100, 54, 1, 100, 100, 54), counts);
+		assertEquals(Arrays.asList(null, null, null, null, "dmz", "dmz", "dmz"), zones);
+		assertNull(chunks.get(3).getFromAddress());
+	}
+
+	@Test
+	void planningTwiceYieldsTheSameChunks() {
+		assertEquals(service.plan(job()), service.plan(job()));
+	}
+
+	@Test
+	void chunkTargetsAreRebuiltFromTheJob() {
+		ScanJob job = job();
+		List<ScanChunk> chunks = service.plan(job);
+
+		List<String> hostnames = new ArrayList<>();
+		service.targetsOf(job, chunks.get(3)).forEach(hostnames::add);
+		assertEquals(List.of("host.local"), hostnames);
+
+		ScanTargetSet dmz = service.targetsOf(job, chunks.get(6));
+		assertEquals(54, dmz.size());
+		assertEquals("10.0.1.201", dmz.iterator().next());
+	}
+
+	@Test
+	void claimTakesPendingChunksAndLeasesThatRanOut() {
+		LocalDateTime before = LocalDateTime.now();
+		service.claim("node", "", null, List.of(), 60);
+
+		Query query = claimQuery();
+		List<?> conditions = (List<?>) query.getQueryObject().get("$and");
+		List<?> claimable = (List<?>) ((Document) conditions.get(0)).get("$or");
+		assertEquals(new Document("status", ScanChunkStatus.PENDING), claimable.get(0));
+		Document expired = (Document) claimable.get(1);
+		assertEquals(ScanChunkStatus.LEASED, expired.get("status"));
+		LocalDateTime expiredBefore = (LocalDateTime) ((Document) expired.get("leaseExpiresAt")).get("$lt");
+		assertFalse(expiredBefore.isBefore(before));
+		assertFalse(expiredBefore.isAfter(LocalDateTime.now()));
+		// A node without a zone only takes chunks without one
+		assertEquals(new Document("zone", null), conditions.get(1));
+		assertEquals(new Document("id", 1), query.getSortObject());
+	}
+
+	@Test
+	void claimLeasesTheChunkToTheNode() {
+		LocalDateTime before = LocalDateTime.now();
+		service.claim("node", null, null, List.of(), 60);
+
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+		verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), options.capture(), eq(ScanChunk.class));
+		Document set = (Document) update.getValue().getUpdateObject().get("$set");
+		assertEquals(ScanChunkStatus.LEASED, set.get("status"));
+		assertEquals("node", set.get("owner"));
+		assertFalse(((LocalDateTime) set.get("leaseExpiresAt")).isBefore(before.plusSeconds(60)));
+		assertEquals(new Document("attempts", 1), update.getValue().getUpdateObject().get("$inc"));
+		assertTrue(options.getValue().isReturnNew());
+	}
+
+	@Test
+	void nodeInAZoneAlsoTakesChunksWithoutOne() {
+		service.claim("node", "dmz", null, List.of(), 60);
+
+		List<?> conditions = (List<?>) claimQuery().getQueryObject().get("$and");
+		assertEquals(new Document("zone", new Document("$in", Arrays.asList(null, "dmz"))), conditions.get(1));
+	}
+
+	@Test
+	void claimCanBeLimitedToOneJobOrSkipBusyJobs() {
+		service.claim("node", null, "job", List.of("other"), 60);
+		assertEquals("job", claimQuery().getQueryObject().get("scanJobId"));
+
+		clearInvocations(mongoTemplate);
+		service.claim("node", null, null, List.of("busy"), 60);
+		assertEquals(new Document("$nin", List.of("busy")), claimQuery().getQueryObject().get("scanJobId"));
+	}
+
+	@Test
+	void renewOnlyExtendsALeaseTheNodeStillHolds() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanChunk.class)))
+				.thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+		assertFalse(service.renew(chunk(), "node", 60));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).updateFirst(query.capture(), any(UpdateDefinition.class), eq(ScanChunk.class));
+		assertEquals(new Document("id", "job-000000").append("owner", "node").append("status", ScanChunkStatus.LEASED),
+				query.getValue().getQueryObject());
+	}
+
+	@Test
+	void completeMarksTheChunkDone() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanChunk.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		assertTrue(service.complete(chunk(), "node"));
+
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(ScanChunk.class));
+		assertEquals(ScanChunkStatus.DONE, ((Document) update.getValue().getUpdateObject().get("$set")).get("status"));
+	}
+
+	@Test
+	void releaseHandsTheChunkBack() {
+		service.release(chunk(), "node");
+
+		ArgumentCaptor<UpdateDefinition> update = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(ScanChunk.class));
+		assertEquals(new Document("status", ScanChunkStatus.PENDING), update.getValue().getUpdateObject().get("$set"));
+		assertEquals(new Document("owner", 1).append("leaseExpiresAt", 1),
+				update.getValue().getUpdateObject().get("$unset"));
+	}
+
+	@Test
+	void progressIsOnlyAddedUnderTheSameLease() {
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanChunk.class)))
+				.thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+		assertTrue(service.addProgress(chunk(), "node", new Update().inc("completedTargets", 1)));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).updateFirst(query.capture(), any(UpdateDefinition.class), eq(ScanChunk.class));
+		assertEquals(new Document("id", "job-000000").append("owner", "node").append("attempts", 2),
+				query.getValue().getQueryObject());
+	}
+
+	@Test
+	void onlyResultsOfEarlierAttemptsAreDeleted() {
+		when(mongoTemplate.remove(any(Query.class), eq(ScanResult.class))).thenReturn(DeleteResult.acknowledged(3));
+
+		assertEquals(3, service.deleteEarlierResults(chunk()));
+
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).remove(query.capture(), eq(ScanResult.class));
+		assertEquals(new Document("chunkId", "job-000000").append("chunkAttempt", new Document("$lt", 2)),
+				query.getValue().getQueryObject());
+	}
+
+	@Test
+	void jobIsDoneWhenNoChunkIsLeftOpen() {
+		when(scanChunkRepository.countByScanJobIdAndStatusNot("job", ScanChunkStatus.DONE)).thenReturn(0L, 1L);
+
+		assertTrue(service.isJobDone("job"));
+		assertFalse(service.isJobDone("job"));
+	}
+
+	private Query claimQuery() {
+		ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).findAndModify(query.capture(), any(UpdateDefinition.class),
+				any(FindAndModifyOptions.class), eq(ScanChunk.class));
+		return query.getValue();
+	}
+
+	private static ScanChunk chunk() {
+		ScanChunk chunk = new ScanChunk();
+		chunk.setId("job-000000");
+		chunk.setScanJobId("job");
+		chunk.setAttempts(2);
+		return chunk;
+	}
+
+	private static ScanJob job() {
+		ScanJob job = new ScanJob();
+		job.setId("job");
+		job.setIpAddresses(List.of("host.local"));
+		job.setIpSegments(List.of("10.0.0.0/24", "10.0.1.0/24"));
+		job.setSegmentZones(Map.of("10.0.1.0/24", "dmz"));
+		return job;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,295 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanChunk;
+import com.example.ip_asset_management.model.ScanJob;
+import com.example.ip_asset_management.model.ScanJobStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScanProgressTrackerTests {
+
+	private static final String JOB_ID = "job";
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final ScanChunkService scanChunkService = mock(ScanChunkService.class);
+	private ScanProgressTracker tracker;
+
+	@BeforeEach
+	void setUp() {
+		tracker = new ScanProgressTracker();
+		ReflectionTestUtils.setField(tracker, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(tracker, "scanChunkService", scanChunkService);
+	}
+
+	@Test
+	void startResetsCountersAndMarksTheJobRunning() {
+		tracker.queued(JOB_ID);
+		ScanJobProgress progress = tracker.start(job(), 10);
+
+		Document set = (Document) lastJobUpdate().get("$set");
+		assertEquals(ScanJobStatus.RUNNING, set.get("status"));
+		assertEquals(10, set.get("totalTargets"));
+		assertEquals(0, set.get("completedTargets"));
+		assertEquals(10, progress.getTotalTargets());
+		assertTrue(tracker.isRunning(JOB_ID));
+		assertFalse(tracker.getQueuedJobs().contains(JOB_ID));
+	}
+
+	@Test
+	void flushIncrementsOnlyWhatChangedSinceTheLastWrite() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		clearInvocations(mongoTemplate);
+		progress.recordSwept(false);
+		progress.recordSwept(true);
+		progress.recordResult(true);
+
+		tracker.flush(progress);
+
+		assertEquals(new Document("completedTargets", 2).append("successfulTargets", 1)
+				.append("sweptTargets", 2).append("liveTargets", 1), lastJobUpdate().get("$inc"));
+
+		progress.recordResult(false);
+		tracker.flush(progress);
+		assertEquals(new Document("completedTargets", 1).append("failedTargets", 1), lastJobUpdate().get("$inc"));
+	}
+
+	@Test
+	void flushWithoutChangesWritesNothing() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		clearInvocations(mongoTemplate);
+
+		tracker.flush(progress);
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class));
+	}
+
+	@Test
+	void failedWriteIsRetriedOnTheNextFlush() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		progress.recordResult(true);
+		when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class)))
+				.thenThrow(new IllegalStateException("connection refused"))
+				.thenReturn(null);
+		tracker.flush(progress);
+		progress.recordResult(true);
+
+		tracker.flush(progress);
+
+		assertEquals(new Document("completedTargets", 2).append("successfulTargets", 2), lastJobUpdate().get("$inc"));
+	}
+
+	@Test
+	void applyToAddsCountersNotYetFlushed() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		progress.recordResult(true);
+		tracker.flush(progress);
+		progress.recordResult(false);
+
+		ScanJob persisted = job();
+		persisted.setCompletedTargets(1);
+		persisted.setSuccessfulTargets(1);
+		tracker.applyTo(persisted);
+
+		assertEquals(2, persisted.getCompletedTargets());
+		assertEquals(1, persisted.getSuccessfulTargets());
+		assertEquals(1, persisted.getFailedTargets());
+	}
+
+	@Test
+	void joinedJobIsTrackedUntilItsLastHolderLeaves() {
+		ScanJobProgress progress = tracker.join(JOB_ID, 10);
+		assertEquals(progress, tracker.join(JOB_ID, 10));
+		progress.recordResult(true);
+
+		tracker.leave(progress);
+		assertTrue(tracker.isRunning(JOB_ID));
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class));
+
+		tracker.leave(progress);
+		assertFalse(tracker.isRunning(JOB_ID));
+		assertEquals(new Document("completedTargets", 1).append("successfulTargets", 1), lastJobUpdate().get("$inc"));
+	}
+
+	@Test
+	void cancelFlagsTheJobHereAndInTheDatabase() {
+		tracker.start(job(), 10);
+
+		tracker.cancel(JOB_ID);
+
+		assertTrue(tracker.isCancelled(JOB_ID));
+		assertEquals(new Document("status", ScanJobStatus.CANCELLED), lastJobUpdate().get("$set"));
+	}
+
+	@Test
+	void cancellationFromAnotherNodeIsObserved() {
+		assertFalse(tracker.isCancelled(JOB_ID));
+
+		tracker.observeCancelled(JOB_ID);
+
+		assertTrue(tracker.isCancelled(JOB_ID));
+	}
+
+	@Test
+	void finishKeepsACancelledStatus() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		progress.recordResult(true);
+		tracker.cancel(JOB_ID);
+
+		tracker.finish(JOB_ID, ScanJobStatus.COMPLETED, null);
+
+		ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate, times(4)).updateFirst(queries.capture(), any(UpdateDefinition.class), eq(ScanJob.class));
+		Query finished = queries.getValue();
+		assertEquals(new Document("$ne", ScanJobStatus.CANCELLED), finished.getQueryObject().get("status"));
+		assertEquals(new Document("status", ScanJobStatus.COMPLETED), lastJobUpdate().get("$set"));
+		assertFalse(tracker.isCancelled(JOB_ID));
+		assertFalse(tracker.isRunning(JOB_ID));
+	}
+
+	@Test
+	void restartOfAJobClearsItsCancellation() {
+		tracker.cancel(JOB_ID);
+
+		tracker.start(job(), 10);
+
+		assertFalse(tracker.isCancelled(JOB_ID));
+	}
+
+	@Test
+	void progressIsCountedOnItsChunkBeforeTheJob() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		ScanChunk chunk = chunk(1);
+		when(scanChunkService.addProgress(eq(chunk), eq("node"), any(Update.class))).thenReturn(true);
+		tracker.workOn(progress, chunk, "node");
+		progress.recordResult(true);
+
+		tracker.flush(progress);
+
+		Document increments = new Document("completedTargets", 1).append("successfulTargets", 1);
+		ArgumentCaptor<Update> chunkUpdate = ArgumentCaptor.forClass(Update.class);
+		verify(scanChunkService).addProgress(eq(chunk), eq("node"), chunkUpdate.capture());
+		assertEquals(increments, chunkUpdate.getValue().getUpdateObject().get("$inc"));
+		assertEquals(increments, lastJobUpdate().get("$inc"));
+	}
+
+	@Test
+	void progressMadeUnderALostLeaseIsDropped() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		tracker.workOn(progress, chunk(1), "node");
+		clearInvocations(mongoTemplate);
+		progress.recordResult(true);
+
+		tracker.flush(progress);
+		tracker.flush(progress);
+
+		verify(scanChunkService, times(1)).addProgress(any(ScanChunk.class), eq("node"), any(Update.class));
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class));
+	}
+
+	@Test
+	void progressBeforeANewChunkGoesToThePreviousOne() {
+		ScanJobProgress progress = tracker.start(job(), 10);
+		ScanChunk first = chunk(1);
+		ScanChunk second = chunk(1);
+		second.setId("job-000001");
+		when(scanChunkService.addProgress(any(ScanChunk.class), eq("node"), any(Update.class))).thenReturn(true);
+		tracker.workOn(progress, first, "node");
+		progress.recordResult(true);
+
+		tracker.workOn(progress, second, "node");
+		progress.recordResult(false);
+		tracker.flush(progress);
+
+		verify(scanChunkService).addProgress(eq(first), eq("node"), any(Update.class));
+		verify(scanChunkService).addProgress(eq(second), eq("node"), any(Update.class));
+	}
+
+	@Test
+	void retractSubtractsWhatEarlierLeasesCounted() {
+		ScanChunk previous = chunk(2);
+		previous.setCompletedTargets(5);
+		previous.setFailedTargets(2);
+		previous.setSweptTargets(5);
+
+		tracker.retract(previous);
+
+		assertEquals(new Document("completedTargets", -5).append("failedTargets", -2).append("sweptTargets", -5),
+				lastJobUpdate().get("$inc"));
+	}
+
+	@Test
+	void retractOfAnUncountedChunkWritesNothing() {
+		tracker.retract(chunk(2));
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class));
+	}
+
+	@Test
+	void abandonedChunkCountsWhatItsLastAttemptLeftAsFailed() {
+		ScanChunk chunk = chunk(4);
+		chunk.setCompletedTargets(40);
+		when(scanChunkService.addProgress(eq(chunk), eq("node"), any(Update.class))).thenReturn(true);
+
+		assertEquals(60, tracker.abandon(chunk, "node"));
+
+		assertEquals(new Document("completedTargets", 60).append("failedTargets", 60).append("unscannedTargets", 60),
+				lastJobUpdate().get("$inc"));
+	}
+
+	@Test
+	void abandonedChunkOfALostLeaseCountsNothing() {
+		assertEquals(0, tracker.abandon(chunk(4), "node"));
+
+		verify(mongoTemplate, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ScanJob.class));
+	}
+
+	/**
+	 * The update document of the last write to the job.
+	 */
+	private Document lastJobUpdate() {
+		ArgumentCaptor<UpdateDefinition> updates = ArgumentCaptor.forClass(UpdateDefinition.class);
+		verify(mongoTemplate, atLeastOnce())
+				.updateFirst(any(Query.class), updates.capture(), eq(ScanJob.class));
+		List<UpdateDefinition> all = updates.getAllValues();
+		return all.get(all.size() - 1).getUpdateObject();
+	}
+
+	private static ScanChunk chunk(int attempts) {
+		ScanChunk chunk = new ScanChunk();
+		chunk.setId("job-000000");
+		chunk.setScanJobId(JOB_ID);
+		chunk.setTargetCount(100);
+		chunk.setAttempts(attempts);
+		return chunk;
+	}
+
+	private static ScanJob job() {
+		ScanJob job = new ScanJob();
+		job.setId(JOB_ID);
+		job.setLastRunAt(LocalDateTime.of(2025, 3, 12, 10, 0));
+		return job;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package com.example.ip_asset_management.service;
+
+import com.example.ip_asset_management.model.ScanResult;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ScanResultWriterTests {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final MongoCollection<Document> collection = mock(MongoCollection.class);
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	// Addresses of every insertMany call, one list per batch
+	private final List<List<String>> batches = new ArrayList<>();
+	private ScanResultWriter writer;
+
+	@BeforeEach
+	void setUp() {
+		MongoConverter converter = mock(MongoConverter.class);
+		doAnswer(invocation -> {
+			invocation.getArgument(1, Document.class).put("ipAddress", invocation.getArgument(0, ScanResult.class).getIpAddress());
+			return null;
+		}).when(converter).write(any(), any(Document.class));
+		when(mongoTemplate.getConverter()).thenReturn(converter);
+		when(mongoTemplate.getCollectionName(ScanResult.class)).thenReturn("scan_results");
+		when(mongoTemplate.getCollection("scan_results")).thenReturn(collection);
+		// The driver assigns ids to the documents it inserts
+		when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+			List<String> batch = new ArrayList<>();
+			for (Object document : invocation.getArgument(0, List.class)) {
+				String ipAddress = ((Document) document).getString("ipAddress");
+				((Document) document).put("_id", "id-" + ipAddress);
+				batch.add(ipAddress);
+			}
+			batches.add(batch);
+			return null;
+		});
+
+		writer = newWriter(2, 100);
+	}
+
+	@AfterEach
+	void tearDown() {
+		writer.cleanup();
+	}
+
+	@Test
+	void flushWritesBufferedResultsInBatches() throws Exception {
+		CountDownLatch paused = pauseWriter();
+		List<CompletableFuture<ScanResult>> written = new ArrayList<>();
+		for (int i = 1; i <= 3; i++) {
+			written.add(writer.write(result("10.0.0." + i)));
+		}
+		paused.countDown();
+
+		writer.flush();
+
+		assertEquals(List.of(List.of("10.0.0.1", "10.0.0.2"), List.of("10.0.0.3")), batches);
+		assertEquals("id-10.0.0.3", written.get(2).get(1, TimeUnit.SECONDS).getId());
+		assertEquals(0, writer.getBufferedCount());
+		assertEquals(3, meterRegistry.counter("scan.results.written").count());
+	}
+
+	@Test
+	void fullBufferBlocksTheCallerUntilTheWriterCatchesUp() throws Exception {
+		writer = newWriter(100, 1);
+		CountDownLatch paused = pauseWriter();
+		writer.write(result("10.0.0.1"));
+
+		AtomicReference<CompletableFuture<ScanResult>> blocked = new AtomicReference<>();
+		Thread caller = new Thread(() -> blocked.set(writer.write(result("10.0.0.2"))));
+		caller.start();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (writer.getBackpressureWaits() == 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, writer.getBackpressureWaits());
+		assertTrue(caller.isAlive());
+
+		paused.countDown();
+		caller.join(5000);
+		assertFalse(caller.isAlive());
+		writer.flush();
+
+		assertEquals(List.of(List.of("10.0.0.1"), List.of("10.0.0.2")), batches);
+		assertEquals("id-10.0.0.2", blocked.get().get(1, TimeUnit.SECONDS).getId());
+	}
+
+	@Test
+	void failedInsertFailsOnlyItsOwnFuture() throws Exception {
+		BulkWriteError error = new BulkWriteError(11000, "duplicate key", new BsonDocument(), 0);
+		when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenThrow(new MongoBulkWriteException(
+				BulkWriteResult.unacknowledged(), List.of(error), null, new ServerAddress(), Set.of()));
+		CountDownLatch paused = pauseWriter();
+		CompletableFuture<ScanResult> failed = writer.write(result("10.0.0.1"));
+		CompletableFuture<ScanResult> written = writer.write(result("10.0.0.2"));
+		paused.countDown();
+
+		writer.flush();
+
+		assertThrows(ExecutionException.class, () -> failed.get(1, TimeUnit.SECONDS));
+		assertEquals("10.0.0.2", written.get(1, TimeUnit.SECONDS).getIpAddress());
+		assertEquals(1, meterRegistry.counter("scan.results.written").count());
+	}
+
+	@Test
+	void failedBatchFailsEveryFuture() {
+		when(collection.insertMany(anyList(), any(InsertManyOptions.class)))
+				.thenThrow(new IllegalStateException("connection refused"));
+		CompletableFuture<ScanResult> first = writer.write(result("10.0.0.1"));
+
+		writer.flush();
+
+		assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+		assertEquals(0, meterRegistry.counter("scan.results.written").count());
+	}
+
+	/**
+	 * Holds the writer thread until the latch is counted down, so a filled batch is not
+	 * written before the test has queued everything.
+	 */
+	private CountDownLatch pauseWriter() {
+		CountDownLatch latch = new CountDownLatch(1);
+		ScheduledExecutorService flusher = (ScheduledExecutorService) ReflectionTestUtils.getField(writer, "flusher");
+		flusher.execute(() -> {
+			try {
+				latch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		return latch;
+	}
+
+	private ScanResultWriter newWriter(int batchSize, int bufferCapacity) {
+		if (writer != null) {
+			writer.cleanup();
+		}
+		ScanResultWriter newWriter = new ScanResultWriter();
+		ReflectionTestUtils.setField(newWriter, "mongoTemplate", mongoTemplate);
+		ReflectionTestUtils.setField(newWriter, "meterRegistry", meterRegistry);
+		ReflectionTestUtils.setField(newWriter, "batchSize", batchSize);
+		ReflectionTestUtils.setField(newWriter, "bufferCapacity", bufferCapacity);
+		// Only explicit flushes and full batches write
+		ReflectionTestUtils.setField(newWriter, "flushIntervalMs", TimeUnit.HOURS.toMillis(1));
+		newWriter.initialize();
+		return newWriter;
+	}
+
+	private static ScanResult result(String ipAddress) {
+		ScanResult result = new ScanResult();
+		result.setScanJobId("job");
+		result.setIpAddress(ipAddress);
+		return result;
+	}
+}
\ No newline at end of file
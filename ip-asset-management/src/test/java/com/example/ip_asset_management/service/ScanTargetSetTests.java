@@ -0,0 +1,228 @@
+package com.example.ip_asset_management.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScanTargetSetTests {
+
+	@Test
+	void cidrSkipsNetworkAndBroadcastAddress() {
+		List<String> targets = targets(ScanTargetSet.of(null, List.of("192.168.1.0/24"), null));
+
+		assertEquals(254, targets.size());
+		assertEquals("192.168.1.1", targets.get(0));
+		assertEquals("192.168.1.254", targets.get(targets.size() - 1));
+	}
+
+	@Test
+	void cidrUsesNetworkOfAnyAddressInTheBlock() {
+		assertEquals(List.of("10.0.0.5", "10.0.0.6"), targets(ScanTargetSet.of(null, List.of("10.0.0.6/30"), null)));
+	}
+
+	@Test
+	void cidrAcceptsPrefixesFromEightToThirtyTwo() {
+		assertEquals((1L << 24) - 2, ScanTargetSet.of(null, List.of("10.0.0.0/8"), null).getAddressCount());
+		assertEquals((1L << 16) - 2, ScanTargetSet.of(null, List.of("172.16.0.0/16"), null).getAddressCount());
+		assertEquals(2, ScanTargetSet.of(null, List.of("10.0.0.0/30"), null).getAddressCount());
+	}
+
+	@Test
+	void pointToPointAndHostPrefixesKeepEveryAddress() {
+		assertEquals(List.of("10.0.0.4", "10.0.0.5"), targets(ScanTargetSet.of(null, List.of("10.0.0.4/31"), null)));
+		assertEquals(List.of("10.0.0.7"), targets(ScanTargetSet.of(null, List.of("10.0.0.7/32"), null)));
+	}
+
+	@Test
+	void prefixOutsideSupportedRangeIsKeptAsHostname() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.0/7", "10.0.0.0/33", "10.0.0.0/x"), null);
+
+		assertEquals(0, set.getAddressCount());
+		assertEquals(List.of("10.0.0.0/7", "10.0.0.0/33", "10.0.0.0/x"), set.getHostnames());
+		assertEquals(3, set.size());
+	}
+
+	@Test
+	void fullRangeCrossesOctetBoundary() {
+		List<String> targets = targets(ScanTargetSet.of(null, List.of("10.0.0.254-10.0.1.1"), null));
+
+		assertEquals(List.of("10.0.0.254", "10.0.0.255", "10.0.1.0", "10.0.1.1"), targets);
+	}
+
+	@Test
+	void lastOctetRangeStaysInItsSubnet() {
+		List<String> targets = targets(ScanTargetSet.of(null, List.of("192.168.5.10-12"), null));
+
+		assertEquals(List.of("192.168.5.10", "192.168.5.11", "192.168.5.12"), targets);
+	}
+
+	@Test
+	void reversedOrMalformedRangesAreKeptAsHostnames() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.9-3", "10.0.0.1-10.0.0.2-10.0.0.3", "10.0.0.1-256"), null);
+
+		assertEquals(0, set.getAddressCount());
+		assertEquals(3, set.getHostnames().size());
+	}
+
+	@Test
+	void overlappingEntriesAreCountedOnce() {
+		ScanTargetSet set = ScanTargetSet.of(List.of("10.0.0.2", "10.0.0.2"), List.of("10.0.0.0/30", "10.0.0.1-3"), null);
+
+		assertEquals(List.of("10.0.0.1", "10.0.0.2", "10.0.0.3"), targets(set));
+	}
+
+	@Test
+	void hostnamesFollowAddressesWithoutDuplicates() {
+		ScanTargetSet set = ScanTargetSet.of(List.of("printer.local", "10.0.0.1", " printer.local "), null, null);
+
+		assertEquals(List.of("10.0.0.1", "printer.local"), targets(set));
+		assertEquals(2, set.size());
+	}
+
+	@Test
+	void blankAndNullEntriesAreIgnored() {
+		List<String> entries = new ArrayList<>();
+		entries.add(null);
+		entries.add(" ");
+
+		assertEquals(0, ScanTargetSet.of(entries, entries, entries).size());
+	}
+
+	@Test
+	void exclusionsKeepTheirNetworkAndBroadcastAddress() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("192.168.1.0/24"), List.of("192.168.1.0/28"));
+
+		List<String> targets = targets(set);
+		assertEquals(254 - 15, targets.size());
+		assertEquals("192.168.1.16", targets.get(0));
+	}
+
+	@Test
+	void exclusionsSplitRanges() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.1-10"),
+				List.of("10.0.0.3", "10.0.0.5-7", "10.0.0.10/32"));
+
+		assertEquals(List.of("10.0.0.1", "10.0.0.2", "10.0.0.4", "10.0.0.8", "10.0.0.9"), targets(set));
+	}
+
+	@Test
+	void exclusionCoveringEverythingLeavesNoAddresses() {
+		ScanTargetSet set = ScanTargetSet.of(List.of("10.0.0.1"), List.of("10.0.0.0/24"), List.of("10.0.0.0/16"));
+
+		assertEquals(0, set.getAddressCount());
+		assertFalse(set.iterator().hasNext());
+	}
+
+	@Test
+	void invalidExclusionsAreIgnored() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.1-4"), List.of("not-an-address", "10.0.0.0/4"));
+
+		assertEquals(4, set.getAddressCount());
+	}
+
+	@Test
+	void addressesAboveSignedRangeIterateInOrder() {
+		List<String> targets = targets(ScanTargetSet.of(List.of("255.255.255.255", "127.255.255.255", "128.0.0.0"), null, null));
+
+		assertEquals(List.of("127.255.255.255", "128.0.0.0", "255.255.255.255"), targets);
+	}
+
+	@Test
+	void intersectsChecksInclusiveBounds() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.10-20", "10.0.0.40-50"), null);
+		long base = ScanTargetSet.parseIpv4("10.0.0.0");
+
+		assertTrue(set.intersects(base, base + 10));
+		assertTrue(set.intersects(base + 20, base + 30));
+		assertFalse(set.intersects(base + 21, base + 39));
+		assertFalse(set.intersects(base + 51, base + 255));
+	}
+
+	@Test
+	void splitCutsIntoChunksOfAtMostTheGivenSize() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.0/24"), null);
+		long base = ScanTargetSet.parseIpv4("10.0.0.0");
+
+		List<long[]> chunks = set.split(100);
+
+		assertEquals(3, chunks.size());
+		assertArrayEquals(new long[]{base + 1, base + 100}, chunks.get(0));
+		assertArrayEquals(new long[]{base + 101, base + 200}, chunks.get(1));
+		assertArrayEquals(new long[]{base + 201, base + 254}, chunks.get(2));
+	}
+
+	@Test
+	void splitCountsAddressesNotTheSpanBetweenRanges() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.1-3", "10.0.0.10-12"), null);
+		long base = ScanTargetSet.parseIpv4("10.0.0.0");
+
+		List<long[]> chunks = set.split(4);
+
+		assertEquals(2, chunks.size());
+		assertArrayEquals(new long[]{base + 1, base + 10}, chunks.get(0));
+		assertArrayEquals(new long[]{base + 11, base + 12}, chunks.get(1));
+	}
+
+	@Test
+	void splitOfExactMultipleLeavesNoEmptyChunk() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.1-4"), null);
+
+		assertEquals(2, set.split(2).size());
+		assertEquals(1, set.split(4).size());
+		assertEquals(1, set.split(1000).size());
+	}
+
+	@Test
+	void splitOfEmptySetHasNoChunks() {
+		assertTrue(ScanTargetSet.of(List.of("host.local"), null, null).split(10).isEmpty());
+	}
+
+	@Test
+	void chunksRestoreTheWholeSet() {
+		ScanTargetSet set = ScanTargetSet.of(null, List.of("10.0.0.0/22", "10.1.0.5-9"), List.of("10.0.1.0/24"));
+
+		List<String> restored = new ArrayList<>();
+		for (long[] chunk : set.split(97)) {
+			ScanTargetSet part = set.restrictTo(chunk[0], chunk[1]);
+			assertTrue(part.getAddressCount() <= 97);
+			restored.addAll(targets(part));
+		}
+		assertEquals(targets(set), restored);
+	}
+
+	@Test
+	void restrictToDropsHostnames() {
+		ScanTargetSet set = ScanTargetSet.of(List.of("10.0.0.1", "host.local"), null, null);
+		long address = ScanTargetSet.parseIpv4("10.0.0.1");
+
+		assertEquals(List.of("10.0.0.1"), targets(set.restrictTo(address, address)));
+		assertEquals(List.of("host.local"), targets(set.hostnamesOnly()));
+	}
+
+	@Test
+	void parseIpv4RejectsMalformedAddresses() {
+		for (String address : List.of("256.0.0.1", "1.2.3", "1.2.3.4.5", "1..2.3", "a.b.c.d", "1.2.3.-4", "1.2.3.0001")) {
+			assertThrows(IllegalArgumentException.class, () -> ScanTargetSet.parseIpv4(address), address);
+		}
+	}
+
+	@Test
+	void dottedQuadRoundTrips() {
+		for (String address : List.of("0.0.0.0", "10.20.30.40", "192.168.255.1", "255.255.255.255")) {
+			assertEquals(address, ScanTargetSet.toDottedQuad(ScanTargetSet.parseIpv4(address)));
+		}
+	}
+
+	private static List<String> targets(ScanTargetSet set) {
+		List<String> targets = new ArrayList<>();
+		set.forEach(targets::add);
+		return targets;
+	}
+}
\ No newline at end of file